@@ -0,0 +1,111 @@
+package jgf.pathfinding;
+
+import java.util.Random;
+
+/**
+ * Builds the graphs used by the path finding benchmarks. All maps keep the
+ * top left and bottom right corners free, so they can be used as start and
+ * target.
+ */
+public class BenchmarkMaps {
+	private BenchmarkMaps() {
+	}
+
+	/**
+	 * A map without any wall.
+	 */
+	public static MatrixGraph open(int width, int height) {
+		return new MatrixGraph(width, height);
+	}
+
+	/**
+	 * A map with randomly placed walls.
+	 *
+	 * @param density Probability of a tile being a wall, from 0 to 1.
+	 * @param seed Seed of the random generator, so runs are comparable.
+	 */
+	public static MatrixGraph cluttered(int width, int height,
+			double density, long seed) {
+		MatrixGraph graph = new MatrixGraph(width, height);
+		Random random = new Random(seed);
+
+		for (int x = 0; x < width; x++)
+			for (int y = 0; y < height; y++)
+				if (random.nextDouble() < density)
+					graph.set(x, y, MatrixGraph.WALL);
+
+		freeCorners(graph);
+		return graph;
+	}
+
+	/**
+	 * A perfect maze, carved by a randomized depth first search. The cells
+	 * are the tiles with even coordinates and the corridors are one tile
+	 * wide, so there is exactly one path between any two cells.
+	 *
+	 * @param seed Seed of the random generator, so runs are comparable.
+	 */
+	public static MatrixGraph maze(int width, int height, long seed) {
+		MatrixGraph graph = new MatrixGraph(width, height);
+		for (int x = 0; x < width; x++)
+			for (int y = 0; y < height; y++)
+				graph.set(x, y, MatrixGraph.WALL);
+
+		Random random = new Random(seed);
+		int cellsX = (width + 1) / 2;
+		int cellsY = (height + 1) / 2;
+		int[] stack = new int[cellsX * cellsY];
+		int[] directions = { 0, 1, 2, 3 };
+		int top = 0;
+
+		graph.set(0, 0, 0);
+		stack[top++] = 0;
+		while (top > 0) {
+			int cell = stack[top - 1];
+			int cx = cell / cellsY;
+			int cy = cell % cellsY;
+
+			shuffle(directions, random);
+			boolean carved = false;
+			for (int direction : directions) {
+				int nx = cx + MatrixGraph.NEIGHBORS_4[direction][0];
+				int ny = cy + MatrixGraph.NEIGHBORS_4[direction][1];
+				if (nx < 0 || ny < 0 || nx >= cellsX || ny >= cellsY
+						|| !graph.isWall(nx * 2, ny * 2))
+					continue;
+
+				graph.set(cx + nx, cy + ny, 0); // the wall between the cells
+				graph.set(nx * 2, ny * 2, 0);
+				stack[top++] = nx * cellsY + ny;
+				carved = true;
+				break;
+			}
+
+			if (!carved)
+				top--;
+		}
+
+		// links the bottom right corner to the closest cell
+		int cx = (width - 1) & ~1;
+		int cy = (height - 1) & ~1;
+		for (int x = cx; x < width; x++)
+			graph.set(x, cy, 0);
+		for (int y = cy; y < height; y++)
+			graph.set(width - 1, y, 0);
+		return graph;
+	}
+
+	private static void shuffle(int[] values, Random random) {
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+	}
+
+	private static void freeCorners(MatrixGraph graph) {
+		graph.set(0, 0, 0);
+		graph.set(graph.getWidth() - 1, graph.getHeight() - 1, 0);
+	}
+}
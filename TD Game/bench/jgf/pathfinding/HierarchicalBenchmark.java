@@ -0,0 +1,125 @@
+package jgf.pathfinding;
+
+import java.util.Random;
+
+/**
+ * Runs random long queries on a 1024x1024 cluttered map with
+ * {@link HierarchicalPathFinder} and with the flat engines, reporting the time
+ * per search and how much longer the hierarchical paths are. Then walls and
+ * frees random tiles, one at a time, reporting the time to update the
+ * abstract graph and how many clusters were rebuilt.
+ */
+public class HierarchicalBenchmark {
+	private static final int SIZE = 1024;
+	private static final int QUERIES = 50;
+	private static final int CHANGES = 200;
+
+	public static void main(String[] args) {
+		MatrixGraph graph = BenchmarkMaps.cluttered(SIZE, SIZE, 0.2, 42);
+		int[][] queries = createQueries(graph, new Random(7));
+
+		System.out.printf("map %dx%d, %d queries%n", SIZE, SIZE, QUERIES);
+		System.out.printf("%-6s %-10s %10s %12s %10s%n", "moves", "engine",
+				"build ms", "ms/search", "cost");
+		for (int moves = 4; moves <= 8; moves += 4) {
+			boolean ignoreEdges = moves == 4;
+
+			long start = System.nanoTime();
+			for (int[] q : queries)
+				graph.getGridAStar().search(q[0], q[1], q[2], q[3],
+						ignoreEdges, graph.getGridAStar().getPathBuffer());
+			long time = System.nanoTime() - start;
+			float optimal = 0;
+			for (int[] q : queries) {
+				GridAStar aStar = graph.getGridAStar();
+				aStar.search(q[0], q[1], q[2], q[3], ignoreEdges, aStar
+						.getPathBuffer());
+				optimal += aStar.getPathCost(q[2], q[3]);
+			}
+			print(moves, "A*", 0, time, optimal, optimal);
+
+			start = System.nanoTime();
+			for (int[] q : queries) {
+				JumpPointSearch jps = graph.getJumpPointSearch();
+				jps.search(q[0], q[1], q[2], q[3], ignoreEdges, jps
+						.getPathBuffer());
+			}
+			time = System.nanoTime() - start;
+			print(moves, "JPS", 0, time, optimal, optimal);
+
+			for (int clusterSize = 8; clusterSize <= 32; clusterSize *= 2) {
+				start = System.nanoTime();
+				HierarchicalPathFinder finder = new HierarchicalPathFinder(
+						graph, ignoreEdges, clusterSize);
+				finder.update();
+				long build = System.nanoTime() - start;
+
+				float cost = 0;
+				start = System.nanoTime();
+				for (int[] q : queries) {
+					finder.search(q[0], q[1], q[2], q[3], ignoreEdges, finder
+							.getPathBuffer());
+					cost += finder.getPathCost();
+				}
+				time = System.nanoTime() - start;
+				print(moves, "HPA* " + clusterSize, build, time, cost, optimal);
+
+				if (ignoreEdges && clusterSize == HierarchicalPathFinder.DEFAULT_CLUSTER_SIZE)
+					runChanges(graph, finder);
+				finder.dispose();
+			}
+		}
+	}
+
+	private static void print(int moves, String engine, long build,
+			long time, float cost, float optimal) {
+		System.out.printf("%-6d %-10s %10.1f %12.3f %9.1f%%%n", moves, engine,
+				build / 1000000.0, time / 1000000.0 / QUERIES, 100 * cost
+						/ optimal);
+	}
+
+	private static void runChanges(MatrixGraph graph,
+			HierarchicalPathFinder finder) {
+		Random random = new Random(11);
+		long time = 0;
+		long rebuilt = 0;
+		for (int i = 0; i < CHANGES; i++) {
+			int x = random.nextInt(SIZE);
+			int y = random.nextInt(SIZE);
+			int old = graph.get(x, y);
+			graph.set(x, y, old == MatrixGraph.WALL ? 0 : MatrixGraph.WALL);
+
+			long start = System.nanoTime();
+			finder.update();
+			time += System.nanoTime() - start;
+			rebuilt += finder.getRebuiltClusters();
+
+			graph.set(x, y, old);
+			finder.update();
+		}
+		System.out.printf("tile change (cluster %d): %.1f us/update, "
+				+ "%.2f clusters rebuilt of %d%n", finder.getClusterSize(),
+				time / 1000.0 / CHANGES, (double) rebuilt / CHANGES,
+				(SIZE / finder.getClusterSize()) * (SIZE / finder.getClusterSize()));
+	}
+
+	/**
+	 * Creates queries between random free tiles at least half the map apart.
+	 */
+	private static int[][] createQueries(MatrixGraph graph, Random random) {
+		int[][] queries = new int[QUERIES][];
+		GridAStar aStar = graph.getGridAStar();
+		for (int i = 0; i < QUERIES; i++) {
+			int[] q;
+			do {
+				q = new int[] { random.nextInt(SIZE), random.nextInt(SIZE),
+						random.nextInt(SIZE), random.nextInt(SIZE) };
+			} while (graph.isWall(q[0], q[1]) || graph.isWall(q[2], q[3])
+					|| Math.abs(q[0] - q[2]) + Math.abs(q[1] - q[3]) < SIZE / 2
+					|| aStar.search(q[0], q[1], q[2], q[3], true, aStar
+							.getPathBuffer()) == 0);
+			queries[i] = q;
+		}
+		return queries;
+	}
+}
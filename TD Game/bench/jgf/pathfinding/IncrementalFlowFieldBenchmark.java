@@ -0,0 +1,90 @@
+package jgf.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays hundreds of tower placements and sales on a large map, comparing a
+ * flow field rebuilt from scratch after every change with one repaired by
+ * {@link IncrementalFlowField}. Both fields are compared at the end, to make
+ * sure the repairs reach the same costs.
+ */
+public class IncrementalFlowFieldBenchmark {
+	private static final int SIZE = 512;
+	private static final int CHANGES = 500;
+
+	public static void main(String[] args) {
+		MatrixGraph graph = BenchmarkMaps.cluttered(SIZE, SIZE, 0.15, 7);
+		int[][] changes = createChanges(graph, new Random(11));
+
+		FlowField full = new FlowField(graph, true);
+		IncrementalFlowField incremental = new IncrementalFlowField(graph, true);
+		for (int y = 0; y < SIZE; y++) {
+			graph.set(SIZE - 1, y, 0);
+			full.addTarget(SIZE - 1, y);
+			incremental.addTarget(SIZE - 1, y);
+		}
+		full.update();
+		incremental.update();
+
+		long fullTime = 0;
+		long incrementalTime = 0;
+		long processed = 0;
+
+		for (int i = 0; i < changes.length; i++) {
+			int x = graph.indexToX(changes[i][0]);
+			int y = graph.indexToY(changes[i][0]);
+			graph.set(x, y, changes[i][1]);
+
+			long start = System.nanoTime();
+			full.update();
+			fullTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			incremental.update();
+			incrementalTime += System.nanoTime() - start;
+			processed += incremental.getProcessedTiles();
+		}
+
+		int differences = 0;
+		for (int x = 0; x < SIZE; x++)
+			for (int y = 0; y < SIZE; y++)
+				if (Math.abs(full.getDistance(x, y)
+						- incremental.getDistance(x, y)) > 0.01f)
+					differences++;
+
+		System.out.printf("map %dx%d, %d changes%n", SIZE, SIZE,
+				changes.length);
+		System.out.printf("%-12s %12s %16s%n", "field", "us/change",
+				"tiles/change");
+		System.out.printf("%-12s %12.1f %16d%n", "rebuild", fullTime / 1000.0
+				/ changes.length, SIZE * SIZE);
+		System.out.printf("%-12s %12.1f %16d%n", "incremental",
+				incrementalTime / 1000.0 / changes.length, processed
+						/ changes.length);
+		System.out.printf("different tiles: %d%n", differences);
+	}
+
+	/**
+	 * Creates the replayed changes, as pairs of tile index and new value. Each
+	 * placement has a 50% chance of being sold right after, so the map gets
+	 * more cluttered as the replay goes on.
+	 */
+	private static int[][] createChanges(MatrixGraph graph, Random random) {
+		List<int[]> changes = new ArrayList<int[]>();
+		while (changes.size() < CHANGES) {
+			int x, y;
+			do {
+				x = random.nextInt(SIZE - 1);
+				y = random.nextInt(SIZE);
+			} while (graph.get(x, y) == MatrixGraph.WALL);
+
+			int tile = graph.toIndex(x, y);
+			changes.add(new int[] { tile, MatrixGraph.WALL });
+			if (random.nextBoolean())
+				changes.add(new int[] { tile, 0 });
+		}
+		return changes.toArray(new int[changes.size()][]);
+	}
+}
@@ -0,0 +1,95 @@
+package jgf.pathfinding;
+
+import java.util.List;
+
+/**
+ * Compares {@link JumpPointSearch} with {@link GridAStar} searching from
+ * corner to corner of open, maze and cluttered maps, with and without
+ * diagonal moves. For each search it reports the nodes expanded, the time
+ * per search and the path cost, which must be the same as the one found by
+ * {@link AStar} ("same" column). On open maps JPS expands only a couple of
+ * nodes, but each diagonal step scans both straight lines ahead of it.
+ */
+public class JumpPointSearchBenchmark {
+	private static final int SIZE = 512;
+	private static final long MIN_TIME = 1000000000L;
+
+	private interface Search {
+		void run();
+	}
+
+	public static void main(String[] args) {
+		MatrixGraph[] maps = { BenchmarkMaps.open(SIZE, SIZE),
+				BenchmarkMaps.maze(SIZE, SIZE, 42),
+				BenchmarkMaps.cluttered(SIZE, SIZE, 0.2, 42) };
+		String[] names = { "open", "maze", "cluttered" };
+
+		System.out.printf("map %dx%d%n", SIZE, SIZE);
+		System.out.printf("%-10s %-6s %-7s %10s %14s %10s %5s%n", "map",
+				"moves", "engine", "expanded", "ns/search", "cost", "same");
+		for (int i = 0; i < maps.length; i++)
+			for (int moves = 8; moves >= 4; moves -= 4) {
+				MatrixGraph graph = maps[i];
+				final int tx = graph.getWidth() - 1;
+				final int ty = graph.getHeight() - 1;
+				final boolean ignoreEdges = moves == 4;
+				float expected = aStarCost(graph, ignoreEdges);
+
+				final GridAStar aStar = graph.getGridAStar();
+				long time = run(new Search() {
+					public void run() {
+						aStar.search(0, 0, tx, ty, ignoreEdges, aStar
+								.getPathBuffer());
+					}
+				});
+				print(names[i], moves, "A*", aStar.getExpandedNodes(), time,
+						aStar.getPathCost(tx, ty), expected);
+
+				final JumpPointSearch jps = graph.getJumpPointSearch();
+				time = run(new Search() {
+					public void run() {
+						jps.search(0, 0, tx, ty, ignoreEdges, jps
+								.getPathBuffer());
+					}
+				});
+				print(names[i], moves, "JPS", jps.getExpandedNodes(), time,
+						jps.getPathCost(tx, ty), expected);
+			}
+	}
+
+	private static float aStarCost(MatrixGraph graph, boolean ignoreEdges) {
+		List<Node> path = new AStar(graph).search(0, 0, graph.getWidth() - 1,
+				graph.getHeight() - 1, ignoreEdges);
+		return path.isEmpty() ? 0 : path.get(path.size() - 1).getG();
+	}
+
+	/**
+	 * @return The mean time of a search, in nanoseconds. The last search
+	 *         leaves the expanded nodes and costs to be printed.
+	 */
+	private static long run(Search search) {
+		// warm up
+		for (int i = 0; i < 3; i++)
+			search.run();
+
+		int searches = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			search.run();
+			searches++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < MIN_TIME);
+
+		return elapsed / searches;
+	}
+
+	private static void print(String map, int moves, String name,
+			int expanded, long time, float cost, float expected) {
+		// the costs are float sums, so long paths differ in the last digits
+		boolean same = Math.abs(cost - expected) <= 0.0001f * Math.max(1,
+				expected);
+		System.out.printf("%-10s %-6d %-7s %10d %14d %10.1f %5s%n", map,
+				moves, name, expanded, time, cost, same ? "yes" : "NO");
+	}
+}
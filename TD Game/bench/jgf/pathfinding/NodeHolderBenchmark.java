@@ -0,0 +1,63 @@
+package jgf.pathfinding;
+
+import java.util.List;
+
+import jgf.pathfinding.MatrixGraph.HolderType;
+
+/**
+ * Compares the NodeHolder implementations running AStar from corner to corner
+ * of cluttered maps. The holders that scan all open nodes on removeMinF() are
+ * quadratic, so they are skipped on the largest map unless "-all" is given.
+ * The GRID row is the flat array engine, {@link GridAStar}.
+ */
+public class NodeHolderBenchmark {
+	private static final int[][] SIZES = { { 40, 30 }, { 256, 256 },
+			{ 1024, 1024 } };
+	private static final int LINEAR_LIMIT = 256 * 256;
+	private static final long MIN_TIME = 1000000000L;
+
+	public static void main(String[] args) {
+		boolean all = args.length > 0 && args[0].equals("-all");
+
+		System.out.printf("%-10s %-8s %8s %12s%n", "map", "holder",
+				"length", "ms/search");
+		for (int[] size : SIZES) {
+			MatrixGraph graph = BenchmarkMaps.cluttered(size[0], size[1], 0.2,
+					42);
+			for (HolderType type : HolderType.values()) {
+				String map = size[0] + "x" + size[1];
+				if (type != HolderType.HEAP && !all
+						&& size[0] * size[1] > LINEAR_LIMIT) {
+					System.out.printf("%-10s %-8s %8s %12s%n", map, type, "-",
+							"skipped");
+					continue;
+				}
+				graph.setHolderType(type);
+				run(map, type.toString(), new AStar(graph), graph);
+			}
+			run(size[0] + "x" + size[1], "GRID", graph.getGridAStar(), graph);
+		}
+	}
+
+	private static void run(String map, String name, PathFinder aStar,
+			MatrixGraph graph) {
+		int tx = graph.getWidth() - 1;
+		int ty = graph.getHeight() - 1;
+
+		// warm up
+		List<Node> path = aStar.search(0, 0, tx, ty);
+		aStar.search(0, 0, tx, ty);
+
+		int searches = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			aStar.search(0, 0, tx, ty);
+			searches++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < MIN_TIME);
+
+		System.out.printf("%-10s %-8s %8d %12.3f%n", map, name, path.size(),
+				elapsed / 1000000.0 / searches);
+	}
+}
@@ -0,0 +1,159 @@
+package td.path;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jgf.pathfinding.BenchmarkMaps;
+import jgf.pathfinding.FlowField;
+import jgf.pathfinding.JumpPointSearch;
+import jgf.pathfinding.MatrixGraph;
+import td.cfg.GameConfig;
+
+/**
+ * Measures the heap used by the paths of many monsters heading to the exits
+ * of a map, in bytes per monster, and the time to advance every monster to
+ * its next tile.
+ * <p>
+ * Before: each monster owns a list with one Point2D per tile, copied from the
+ * path manager, and advances by removing the first point. After: each monster
+ * holds one reference to the shared route of the path cache, and advances by
+ * following it. Unshared routes, as the ones searched to tiles other than the
+ * exits, are measured too.
+ */
+public class PathFootprintBenchmark {
+	private static final int WIDTH = 256;
+	private static final int HEIGHT = 256;
+	private static final int MONSTERS = 20000;
+
+	public static void main(String[] args) {
+		MatrixGraph graph = BenchmarkMaps.cluttered(WIDTH, HEIGHT, 0.2, 42);
+		PathManager manager = new PathManager();
+		for (int y = 0; y < HEIGHT; y++) {
+			graph.set(WIDTH - 1, y, 0);
+			manager.addExit(graph, WIDTH - 1, y);
+		}
+
+		int[] starts = createStarts(graph, manager.getFlowField(graph));
+		System.out.printf("map %dx%d, %d monsters%n", WIDTH, HEIGHT, MONSTERS);
+		System.out.printf("%-22s %12s %14s%n", "representation",
+				"bytes/monster", "ns/advance");
+
+		measureLists(graph, manager, starts);
+		measureShared(graph, manager, starts);
+		measureUnshared(graph, manager, starts);
+	}
+
+	/**
+	 * Before: a list of points per monster, not counting the cache.
+	 */
+	private static void measureLists(MatrixGraph graph, PathManager manager,
+			int[] starts) {
+		for (int start : starts)
+			manager.getExitPath(graph, graph.indexToX(start), graph
+					.indexToY(start));
+		long used = usedMemory();
+		List<List<Point2D>> lists = new ArrayList<List<Point2D>>(MONSTERS);
+		for (int start : starts)
+			lists.add(toPoints(manager.getExitPath(graph, graph.indexToX(start),
+					graph.indexToY(start))));
+		long bytes = usedMemory() - used;
+		long time = System.nanoTime();
+		long steps = 0;
+		for (List<Point2D> list : lists)
+			while (!list.isEmpty()) {
+				list.remove(0);
+				steps++;
+			}
+		print("point lists", bytes, System.nanoTime() - time, steps);
+	}
+
+	/**
+	 * After: one reference to the shared route, counting the cache.
+	 */
+	private static void measureShared(MatrixGraph graph, PathManager manager,
+			int[] starts) {
+		manager.clear();
+		long used = usedMemory();
+		PathNode[] routes = new PathNode[MONSTERS];
+		for (int i = 0; i < MONSTERS; i++)
+			routes[i] = manager.getExitPath(graph, graph.indexToX(starts[i]),
+					graph.indexToY(starts[i]));
+		long bytes = usedMemory() - used;
+		long time = System.nanoTime();
+		long steps = 0;
+		for (int i = 0; i < MONSTERS; i++)
+			for (PathNode route = routes[i]; route != null; route = route
+					.getNext())
+				steps++;
+		print("shared routes", bytes, System.nanoTime() - time, steps);
+		System.out.println("cache: " + manager.getCache());
+	}
+
+	/**
+	 * Searched routes, to tiles other than the exits, are not shared.
+	 */
+	private static void measureUnshared(MatrixGraph graph,
+			PathManager manager, int[] starts) {
+		manager.clear();
+		JumpPointSearch search = graph.getJumpPointSearch();
+		int[] tiles = search.getPathBuffer();
+		long used = usedMemory();
+		PathNode[] routes = new PathNode[MONSTERS];
+		for (int i = 0; i < MONSTERS; i++) {
+			int length = search.search(graph.indexToX(starts[i]), graph
+					.indexToY(starts[i]), WIDTH - 1, HEIGHT / 2, true, tiles);
+			routes[i] = PathNode.create(tiles, length);
+		}
+		long bytes = usedMemory() - used;
+		long time = System.nanoTime();
+		long steps = 0;
+		for (int i = 0; i < MONSTERS; i++)
+			for (PathNode route = routes[i]; route != null; route = route
+					.getNext())
+				steps++;
+		print("unshared routes", bytes, System.nanoTime() - time, steps);
+	}
+
+	private static void print(String name, long bytes, long time, long steps) {
+		System.out.printf("%-22s %12.0f %14.1f%n", name, (double) bytes
+				/ MONSTERS, (double) time / steps);
+	}
+
+	/**
+	 * Picks random reachable tiles, as the tiles where the monsters are.
+	 */
+	private static int[] createStarts(MatrixGraph graph, FlowField field) {
+		Random random = new Random(7);
+		int[] starts = new int[MONSTERS];
+		for (int i = 0; i < MONSTERS; i++) {
+			int x, y;
+			do {
+				x = random.nextInt(WIDTH);
+				y = random.nextInt(HEIGHT);
+			} while (field.getDistance(x, y) == FlowField.UNREACHABLE);
+			starts[i] = graph.toIndex(x, y);
+		}
+		return starts;
+	}
+
+	private static List<Point2D> toPoints(PathNode route) {
+		List<Point2D> points = new ArrayList<Point2D>();
+		for (; route != null; route = route.getNext())
+			points.add(new Point2D.Double(GameConfig.TILE_SIZE
+					* (route.getTile() / HEIGHT), GameConfig.TILE_SIZE
+					* (route.getTile() % HEIGHT)));
+		return points;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
@@ -0,0 +1,61 @@
+package jgf.imaging;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import jgf.core.ScreenManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ImageWorker#rotateImage(BufferedImage, double)} on a
+ * translucent image the size of a tile and on a bigger one. The angle changes
+ * in every call, as it does for a turning piece.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RotateImageBenchmark
+{
+	@Param( { "20", "64" })
+	private int size;
+
+	private BufferedImage source;
+	private double angle;
+
+	@Setup
+	public void setup()
+	{
+		System.setProperty("java.awt.headless", "true");
+
+		source = ScreenManager.getInstance().createCompatibleImage(size, size);
+		Graphics2D surface = source.createGraphics();
+		surface.setColor(Color.RED);
+		surface.fillOval(0, 0, size, size / 2);
+		surface.setColor(Color.BLUE);
+		surface.fillRect(size / 4, size / 4, size / 2, size / 2);
+		surface.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage rotate()
+	{
+		angle += 0.1;
+		return ImageWorker.getInstance().rotateImage(source, angle);
+	}
+}
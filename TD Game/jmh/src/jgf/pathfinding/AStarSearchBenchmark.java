@@ -0,0 +1,61 @@
+package jgf.pathfinding;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link AStar#search(int, int, int, int, boolean)} from corner to
+ * corner of the maps of {@link BenchmarkMaps}, with and without diagonal
+ * moves. The 40 tiles maps are about the size of the game map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AStarSearchBenchmark {
+	@Param( { "open", "maze", "cluttered" })
+	private String map;
+
+	@Param( { "40", "128" })
+	private int size;
+
+	@Param( { "8", "4" })
+	private int moves;
+
+	private AStar aStar;
+	private MatrixGraph graph;
+
+	@Setup
+	public void setup() {
+		if (map.equals("open"))
+			graph = BenchmarkMaps.open(size, size);
+		else if (map.equals("maze"))
+			graph = BenchmarkMaps.maze(size, size, 42);
+		else if (map.equals("cluttered"))
+			graph = BenchmarkMaps.cluttered(size, size, 0.2, 42);
+		else
+			throw new IllegalArgumentException("Unknown map: " + map);
+
+		aStar = new AStar(graph);
+	}
+
+	@Benchmark
+	public List<Node> search() {
+		return aStar.search(0, 0, graph.getWidth() - 1, graph.getHeight() - 1,
+				moves == 4);
+	}
+}
@@ -0,0 +1,80 @@
+package td.cfg;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import td.gui.TDGame;
+import td.pieces.Monster;
+import td.pieces.Tower;
+import td.pieces.template.TowerTemplate;
+import td.sim.BenchmarkGames;
+
+/**
+ * Measures the buff towers on a map covered with hundreds of them, next to
+ * the towers they buff: the tick of every piece, with monsters on the lane,
+ * and the placing and selling of a tower in the middle of the auras.
+ * <p>
+ * As in {@link ProcessPiecesBenchmark}, the monsters are stopped and the
+ * clock doesn't tick, so every call keeps the same pieces.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AuraBenchmark {
+	@Param( { "100", "400" })
+	private int auras;
+
+	private TDGame game;
+	private PiecesManager piecesManager;
+	private Tower tower;
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create();
+		BenchmarkGames.placeAuras(game, auras);
+		BenchmarkGames.spawnMonsters(game, 1000);
+		piecesManager = game.getPiecesManager();
+		for (Monster monster : piecesManager.getMonsters())
+			monster.setSpeed(0);
+
+		// a tile between four buff towers, off the lane
+		tower = TowerTemplate.Basic.createTower(GameConfig.tileToPixel(4),
+				GameConfig.tileToPixel(3), game.getContext());
+		for (Tower t : piecesManager.getTowers())
+			if (t.getX() == tower.getX() && t.getY() == tower.getY())
+				piecesManager.remove(t);
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.tearDown();
+	}
+
+	@Benchmark
+	public void processPiecesAI() {
+		piecesManager.processPiecesAI();
+	}
+
+	@Benchmark
+	public int placeAndSell() {
+		piecesManager.add(tower);
+		int buffs = tower.getShootStrenght();
+		piecesManager.remove(tower);
+		return buffs;
+	}
+}
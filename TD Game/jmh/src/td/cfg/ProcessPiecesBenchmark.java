@@ -0,0 +1,67 @@
+package td.cfg;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import td.gui.TDGame;
+import td.pieces.Monster;
+import td.sim.BenchmarkGames;
+
+/**
+ * Measures a call of {@link PiecesManager#processPiecesAI()}, the tick of
+ * every piece, on the game map crowded with monsters, with and without towers
+ * looking for them.
+ * <p>
+ * The monsters are stopped, so every call measures the same crowd instead of
+ * an emptying map: they still turn to their next tile and apply their effects
+ * every tick. The clock doesn't tick either, so the towers never fire and
+ * every call keeps the same pieces.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ProcessPiecesBenchmark {
+	@Param( { "100", "1000", "10000" })
+	private int monsters;
+
+	@Param( { "0", "40" })
+	private int towers;
+
+	private TDGame game;
+	private PiecesManager piecesManager;
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create();
+		BenchmarkGames.placeTowers(game, towers);
+		BenchmarkGames.spawnMonsters(game, monsters);
+		piecesManager = game.getPiecesManager();
+		for (Monster monster : piecesManager.getMonsters())
+			monster.setSpeed(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.tearDown();
+	}
+
+	@Benchmark
+	public void processPiecesAI() {
+		piecesManager.processPiecesAI();
+	}
+}
@@ -0,0 +1,71 @@
+package td.gui;
+
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import jgf.core.ScreenManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import td.cfg.GameConfig;
+import td.sim.BenchmarkGames;
+
+/**
+ * Measures a whole frame of {@link MapView#renderGraphics()}, drawn into an
+ * off-screen image instead of the screen, under java.awt.headless: the
+ * background, the pieces of the last snapshot and the HUDs of the level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+	@Param( { "0", "100", "1000" })
+	private int monsters;
+
+	private TDGame game;
+	private MapView mapView;
+	private BufferedImage screen;
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create();
+		BenchmarkGames.placeTowers(game, 40);
+		BenchmarkGames.spawnMonsters(game, monsters);
+
+		mapView = game.getMapView();
+		mapView.setupLevel();
+		mapView.publishSnapshot();
+		screen = ScreenManager.getInstance().createCompatibleImage(
+				GameConfig.MAP_WIDTH, GameConfig.MAP_HEIGHT,
+				Transparency.OPAQUE);
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.tearDown();
+	}
+
+	@Benchmark
+	public BufferedImage renderGraphics() {
+		Graphics2D g2d = screen.createGraphics();
+		mapView.render(g2d);
+		g2d.dispose();
+		return screen;
+	}
+}
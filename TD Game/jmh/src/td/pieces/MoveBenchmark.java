@@ -0,0 +1,72 @@
+package td.pieces;
+
+import java.util.concurrent.TimeUnit;
+
+import jgf.math.Vector2D;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import td.cfg.GameConfig;
+import td.gui.TDGame;
+import td.pieces.template.MonsterTemplate;
+import td.sim.BenchmarkGames;
+
+/**
+ * Measures a step of {@link MovablePiece#move()}, of a monster walking the
+ * lane from the left border to an exit. When the monster arrives it starts
+ * again from the left border, remaking its path, once every few hundred
+ * steps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MoveBenchmark {
+	@Param( { "Basic", "Fast" })
+	private MonsterTemplate template;
+
+	private TDGame game;
+	private Monster monster;
+	private double startX, startY;
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create();
+
+		startX = GameConfig.TILE_SIZE;
+		startY = (GameConfig.TILE_WIDTH / 2 - 3) * GameConfig.TILE_SIZE;
+		monster = template.createMonster(new Vector2D(startX, startY),
+				new Vector2D(GameConfig.MAP_WIDTH - 20, startY), game
+						.getContext(), 1, false);
+		monster.setDirection(monster.getPosition());
+		monster.remakePath();
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.tearDown();
+	}
+
+	@Benchmark
+	public boolean move() {
+		if (monster.move())
+			return true;
+
+		monster.setPosition(startX, startY);
+		monster.remakePath();
+		return false;
+	}
+}
@@ -0,0 +1,75 @@
+package td.pieces;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jgf.math.Vector2D;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import td.cfg.GameConfig;
+import td.gui.TDGame;
+import td.pieces.template.MonsterTemplate;
+import td.pieces.template.TowerTemplate;
+import td.sim.BenchmarkGames;
+
+/**
+ * Measures {@link Piece#getVision()} in the middle of the lane crowded with
+ * monsters: the full circle of a basic tower and the narrow cone of a monster.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class VisionBenchmark {
+	@Param( { "100", "1000", "10000" })
+	private int monsters;
+
+	private TDGame game;
+	private Tower tower;
+	private Monster monster;
+	private List<Piece> vision = new ArrayList<Piece>();
+
+	@Setup
+	public void setup() {
+		game = BenchmarkGames.create();
+		BenchmarkGames.spawnMonsters(game, monsters);
+
+		int x = GameConfig.MAP_WIDTH / 2;
+		int y = (GameConfig.TILE_WIDTH / 2 - 3) * GameConfig.TILE_SIZE;
+		tower = TowerTemplate.Basic.createTower(x, y, game.getContext());
+		monster = MonsterTemplate.Basic.createMonster(new Vector2D(x, y),
+				new Vector2D(GameConfig.MAP_WIDTH - 20, y), game.getContext(),
+				1, false);
+		monster.setDirection(new Vector2D(1, 0));
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.tearDown();
+	}
+
+	@Benchmark
+	public List<Piece> towerVision() {
+		return tower.getVision(vision);
+	}
+
+	@Benchmark
+	public List<Piece> monsterVision() {
+		return monster.getVision(vision);
+	}
+}
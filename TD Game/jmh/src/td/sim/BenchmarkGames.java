@@ -0,0 +1,107 @@
+package td.sim;
+
+import java.util.Random;
+
+import jgf.math.Vector2D;
+import td.cfg.GameConfig;
+import td.gui.TDGame;
+import td.pieces.Monster;
+import td.pieces.template.MonsterTemplate;
+import td.pieces.template.TowerTemplate;
+
+/**
+ * Builds the headless games measured by the benchmarks: the map of the real
+ * game, with its walls and exits, crowded with monsters spread along the lane
+ * and lined with towers. The games are seeded, so every run measures the same
+ * state.
+ */
+public class BenchmarkGames {
+	public static final long SEED = 42;
+
+	private BenchmarkGames() {
+	}
+
+	/**
+	 * Creates a headless game with the walls and the exits of the map, but
+	 * without waves. It must be torn down when the benchmark ends.
+	 */
+	public static TDGame create() {
+		System.setProperty("java.awt.headless", "true");
+
+		TDGame game = TDGame.createHeadless();
+		game.setSeed(SEED);
+		game.setup();
+		return game;
+	}
+
+	/**
+	 * Adds monsters at random positions of the lane, between the left border
+	 * and the last quarter of the map, heading to the exits like the monsters
+	 * of the waves.
+	 */
+	public static void spawnMonsters(TDGame game, int count) {
+		Random random = new Random(SEED);
+		int half = GameConfig.TILE_WIDTH / 2;
+		int laneTop = (half - 5) * GameConfig.TILE_SIZE;
+		int laneHeight = 5 * GameConfig.TILE_SIZE;
+		int width = GameConfig.MAP_WIDTH * 3 / 4 - GameConfig.TILE_SIZE;
+
+		for (int i = 0; i < count; i++) {
+			Vector2D pos = new Vector2D(GameConfig.TILE_SIZE
+					+ random.nextInt(width), laneTop
+					+ random.nextInt(laneHeight));
+			Vector2D target = new Vector2D(GameConfig.MAP_WIDTH - 20, laneTop
+					+ random.nextInt(laneHeight));
+			Monster monster = MonsterTemplate.values()[i
+					% MonsterTemplate.values().length].createMonster(pos,
+					target, game.getContext(), 1, false);
+			monster.setDirection(monster.getPosition());
+			monster.remakePath();
+			game.getPiecesManager().add(monster);
+		}
+	}
+
+	/**
+	 * Places basic towers along both sides of the lane, leaving it free.
+	 *
+	 * @param count At most twice the width of the map minus its borders.
+	 */
+	public static void placeTowers(TDGame game, int count) {
+		int half = GameConfig.TILE_WIDTH / 2;
+		int[] rows = { half - 6, half };
+		int placed = 0;
+		for (int x = 1; x < GameConfig.TILE_WIDTH - 1; x++)
+			for (int y : rows) {
+				if (placed == count)
+					return;
+				game.doPlaceTower(TowerTemplate.Basic, x, y);
+				placed++;
+			}
+	}
+
+	/**
+	 * Places buff towers of every kind and basic towers in turn, like a
+	 * checkerboard, on the tiles off the lane, so every basic tower is in the
+	 * range of the buff towers around it.
+	 *
+	 * @param count The number of buff towers, at most half the tiles off the
+	 *            lane.
+	 */
+	public static void placeAuras(TDGame game, int count) {
+		TowerTemplate[] buffs = { TowerTemplate.DamageBoost,
+				TowerTemplate.FireRateBoost, TowerTemplate.RangeBoost };
+		int half = GameConfig.TILE_WIDTH / 2;
+		int placed = 0;
+		for (int y = 1; y < GameConfig.TILE_HEIGHT - 1; y++)
+			for (int x = 1; x < GameConfig.TILE_WIDTH - 1; x++) {
+				if (y >= half - 5 && y < half)
+					continue;
+				if ((x + y) % 2 == 1)
+					game.doPlaceTower(TowerTemplate.Basic, x, y);
+				else if (placed < count)
+					game.doPlaceTower(buffs[placed++ % buffs.length], x, y);
+				if (placed == count)
+					return;
+			}
+	}
+}
@@ -0,0 +1,70 @@
+package td.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import td.cfg.GameConfig;
+
+/**
+ * Measures {@link MappedMap} used as the game uses it, keyed by the tile
+ * coordinates: a get of a tile that has a value, a get of a tile that hasn't
+ * and a put. Every call moves to the next tile of the map, so the boxing of
+ * the keys is measured too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedMapBenchmark {
+	private static final int TILES = GameConfig.TILE_WIDTH
+			* GameConfig.TILE_HEIGHT;
+
+	private MappedMap<Integer, Integer, Object> map;
+	private int tile;
+
+	@Setup
+	public void setup() {
+		map = new MappedMap<Integer, Integer, Object>();
+		// every other column, like towers built side by side
+		for (int x = 0; x < GameConfig.TILE_WIDTH; x += 2)
+			for (int y = 0; y < GameConfig.TILE_HEIGHT; y++)
+				map.put(x, y, new Object());
+	}
+
+	private int nextTile() {
+		tile = (tile + 2) % TILES;
+		return tile;
+	}
+
+	@Benchmark
+	public Object getHit() {
+		int t = nextTile();
+		return map.get(t % GameConfig.TILE_WIDTH, t
+				/ GameConfig.TILE_WIDTH);
+	}
+
+	@Benchmark
+	public Object getMiss() {
+		int t = nextTile();
+		return map.get(t % GameConfig.TILE_WIDTH | 1, t
+				/ GameConfig.TILE_WIDTH);
+	}
+
+	@Benchmark
+	public void put() {
+		int t = nextTile();
+		map.put(t % GameConfig.TILE_WIDTH, t / GameConfig.TILE_WIDTH, map);
+	}
+}
@@ -0,0 +1,44 @@
+package jgf.core;
+
+/**
+ * What a MainLoop does when the logic updates take longer than the time they
+ * represent, so the loop falls behind the wall clock.
+ */
+public enum CatchUpPolicy
+{
+    /**
+     * Runs a few extra updates per frame to catch up, and drops the rest of
+     * the late time. The game keeps its speed while it can, and stutters when
+     * it can't.
+     */
+    DROP_TIME,
+
+    /**
+     * Never catches up. The time scale is lowered while the updates don't fit
+     * in a frame, and raised back when they do, so the game runs slower but
+     * smoothly.
+     */
+    SLOW_DOWN,
+
+    /**
+     * Catches up with up to one second of late updates, drawing less frames
+     * while it is behind, so the game time isn't lost.
+     */
+    REDUCE_RENDER;
+
+    /**
+     * @param name "drop", "slow" or "render".
+     * @return The policy with the given short name.
+     */
+    public static CatchUpPolicy forName(String name)
+    {
+        if (name.equals("drop"))
+            return DROP_TIME;
+        if (name.equals("slow"))
+            return SLOW_DOWN;
+        if (name.equals("render"))
+            return REDUCE_RENDER;
+
+        throw new IllegalArgumentException("Unknown catch up policy: " + name);
+    }
+}
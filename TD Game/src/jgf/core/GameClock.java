@@ -0,0 +1,62 @@
+package jgf.core;
+
+/**
+ * Measures the game time in logic updates (ticks). Every tick advances the
+ * clock by the same amount of game time, no matter how long it took to be
+ * processed, so the game behaves the same when paced by a MainLoop and when
+ * simulated as fast as possible by a HeadlessLoop.
+ * <p>
+ * The game objects must read the time from this clock instead of the system
+ * clock.
+ */
+public class GameClock
+{
+    private long nanosPerTick;
+    private long ticks;
+
+    /**
+     * Create a new GameClock object.
+     *
+     * @param ups Number of updates per second of game time.
+     */
+    public GameClock(int ups)
+    {
+        if (ups < 1)
+            throw new IllegalArgumentException("You must have at least one update per second!");
+
+        this.nanosPerTick = 1000000000L / ups;
+    }
+
+    /**
+     * Advances the clock by one tick. Should be called once, before each
+     * logic update.
+     */
+    public void tick()
+    {
+        ticks++;
+    }
+
+    /**
+     * @return The number of ticks since the clock was created.
+     */
+    public long getTicks()
+    {
+        return ticks;
+    }
+
+    /**
+     * @return The game time, in milliseconds, since the clock was created.
+     */
+    public long currentTimeMillis()
+    {
+        return ticks * nanosPerTick / 1000000L;
+    }
+
+    /**
+     * @return The amount of game time of each tick, in nanoseconds.
+     */
+    public long getNanosPerTick()
+    {
+        return nanosPerTick;
+    }
+}
@@ -0,0 +1,82 @@
+package jgf.core;
+
+/**
+ * Runs the logics of a game as fast as possible, without rendering or painting
+ * anything, so a game can be simulated or tested without a display.
+ * <p>
+ * The loop calls setup(), then processLogics() until it's stopped or the
+ * maximum number of ticks is reached, and tearDown(). The renderGraphics() and
+ * paintScreen() steps are never called. Unlike the MainLoop, exceptions are
+ * not caught and the virtual machine is not terminated when the loop ends.
+ */
+public class HeadlessLoop implements Runnable
+{
+    private LoopSteps game;
+    private long maxTicks;
+    private long ticks;
+    private volatile boolean running;
+
+    /**
+     * Create a new HeadlessLoop object.
+     *
+     * @param loopSteps The LoopSteps that will be controlled by this loop.
+     * @param maxTicks The maximum number of logic updates.
+     */
+    public HeadlessLoop(LoopSteps loopSteps, long maxTicks)
+    {
+        if (maxTicks < 0)
+            throw new IllegalArgumentException("The number of ticks can't be negative!");
+
+        this.game = loopSteps;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Create a new HeadlessLoop object, that runs until it's stopped.
+     *
+     * @param loopSteps The LoopSteps that will be controlled by this loop.
+     */
+    public HeadlessLoop(LoopSteps loopSteps)
+    {
+        this(loopSteps, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs the loop in the current thread. This method is not thread safe and
+     * should not be called more than once.
+     */
+    public void run()
+    {
+        running = true;
+        try
+        {
+            game.setup();
+            while (running && ticks < maxTicks)
+            {
+                game.processLogics();
+                ticks++;
+            }
+        }
+        finally
+        {
+            running = false;
+            game.tearDown();
+        }
+    }
+
+    /**
+     * Stops the loop after the current logic update.
+     */
+    public void stop()
+    {
+        running = false;
+    }
+
+    /**
+     * @return The number of logic updates processed.
+     */
+    public long getTicks()
+    {
+        return ticks;
+    }
+}
@@ -1,5 +1,10 @@
 package jgf.core;
 
+import jgf.core.pacing.PacingStrategy;
+import jgf.core.pacing.ParkSpinPacing;
+import jgf.core.profile.LoopMetrics;
+import jgf.core.profile.LoopMetrics.Phase;
+
 /**
  * Controls the main loop. This class will try to update the logics in a
  * fixed rate per second (ups). This guarantees consistence among animations
@@ -10,14 +15,32 @@ package jgf.core;
  * updated per logics update (that is, fps == ups). The sleep time between
  * frames will be automatically calculated and maintained.
  * <p>
+ * How the loop waits between frames is decided by a PacingStrategy, that can
+ * be changed while the loop runs (see setPacingStrategy()). By default the
+ * thread is parked and then spins for a short time, so the updates aren't
+ * delayed by the imprecision of Thread.sleep().
+ * <p>
  * If the hardware is not fast enough, there will be no sleep time between
  * frames. Since this could hang all the other threads, the loop will generate
  * an yield signal every time the noDelaysPerYield count is achieved.
  * <p>
  * The excess time to render a frame will be accumulated every cicle. When this
  * represents an error big enough to skip a frame, the frame will be
- * automatically skiped. The maximum number of frames skiped in one single step
- * is given by the maxFrameSkips attribute.
+ * automatically skiped. What happens when the loop is too far behind is
+ * decided by the CatchUpPolicy: by default the maximum number of frames skiped
+ * in one single step is given by the maxFrameSkips attribute, and the rest of
+ * the time is dropped.
+ * <p>
+ * The game can be fast forwarded by a time scale (see setTimeScale()): each
+ * frame runs that many logic updates in a row, so the game time runs that
+ * many times faster than the wall clock. The updates still to be run in the
+ * current frame are the tick backlog.
+ * <p>
+ * The time taken by each step, the oversleep time, the skipped frames and the
+ * forced yields are kept in the LoopMetrics returned by getMetrics().
+ * <p>
+ * The frames can also be drawn by a RenderLoop in a thread of its own (see
+ * setRenderThread()), so only the logic updates are paced by this loop.
  * <p>
  * To start the MainLoop call the run() method. For convenience, the
  * <code>MainLoop</code> class implements the runnable interface.
@@ -27,13 +50,15 @@ public class MainLoop implements Runnable
     public static final int DEFAULT_UPS = 80;
     public static final int DEFAULT_NO_DELAYS_PER_YIELD = 16;
     public static final int DEFAULT_MAX_FRAME_SKIPS = 5;
+    public static final int REDUCED_RENDER_DIVIDER = 4;
 
     private LoopSteps game;
+    private int ups;
     private long desiredUpdateTime;
     private boolean running;
 
     private long afterTime;
-    private long beforeTime = System.currentTimeMillis();
+    private long beforeTime = System.nanoTime();
 
     private long overSleepTime = 0;
     private long excessTime = 0;
@@ -41,6 +66,21 @@ public class MainLoop implements Runnable
     private int noDelaysPerYield = DEFAULT_NO_DELAYS_PER_YIELD;
     private int maxFrameSkips = DEFAULT_MAX_FRAME_SKIPS;
 
+    private volatile int timeScale = 1;
+    private volatile CatchUpPolicy catchUpPolicy = CatchUpPolicy.DROP_TIME;
+    // the time scale lowered by the SLOW_DOWN policy
+    private int effectiveScale = 1;
+    private int framesWithSpareTime = 0;
+    private long backlog = 0;
+    private boolean behind = false;
+
+    private long speedTime = System.nanoTime();
+    private long speedTicks = 0;
+
+    private volatile PacingStrategy pacing = new ParkSpinPacing();
+    private RenderLoop renderLoop;
+    private LoopMetrics metrics = new LoopMetrics();
+
     int noDelays = 0;    
 
     /**
@@ -68,6 +108,7 @@ public class MainLoop implements Runnable
             ups = 1000;
 
         this.game = loopSteps;
+        this.ups = ups;
         this.desiredUpdateTime = 1000000000L / ups;
         this.running = true;
 
@@ -97,8 +138,85 @@ public class MainLoop implements Runnable
     }
 
     /**
-     * Sleep the given amount of time. Since the sleep() method of the thread
-     * class is not precise, the overSleepTime will be calculated.
+     * Makes the frames be rendered and painted by a RenderLoop, in a thread
+     * started after the setup, instead of after each logic update. Must be
+     * called before run().
+     * 
+     * @param fps Number of desired frames per second.
+     */
+    public void setRenderThread(int fps)
+    {
+        renderLoop = new RenderLoop(game, fps, metrics);
+    }
+
+    /**
+     * Changes how the loop waits between two updates. Can be called while the
+     * loop runs, by any thread; the next wait uses the new strategy.
+     */
+    public void setPacingStrategy(PacingStrategy pacing)
+    {
+        if (pacing == null)
+            throw new IllegalArgumentException("The pacing strategy can't be null!");
+
+        this.pacing = pacing;
+    }
+
+    public PacingStrategy getPacingStrategy()
+    {
+        return pacing;
+    }
+
+    /**
+     * Makes each frame run the given number of logic updates, so the game
+     * runs that many times faster. Can be called while the loop runs, by any
+     * thread.
+     * 
+     * @param timeScale The number of updates per frame, 1 for normal speed.
+     */
+    public void setTimeScale(int timeScale)
+    {
+        if (timeScale < 1)
+            throw new IllegalArgumentException("The time scale must be at least 1!");
+
+        this.timeScale = timeScale;
+        metrics.setTimeScale(timeScale);
+    }
+
+    public int getTimeScale()
+    {
+        return timeScale;
+    }
+
+    /**
+     * Changes what the loop does when it falls behind. Can be called while the
+     * loop runs, by any thread.
+     */
+    public void setCatchUpPolicy(CatchUpPolicy catchUpPolicy)
+    {
+        if (catchUpPolicy == null)
+            throw new IllegalArgumentException("The catch up policy can't be null!");
+
+        this.catchUpPolicy = catchUpPolicy;
+    }
+
+    public CatchUpPolicy getCatchUpPolicy()
+    {
+        return catchUpPolicy;
+    }
+
+    /**
+     * Tells if more logic updates will run before the current frame is drawn.
+     * Should be called from processLogics(), to do the work that only matters
+     * to the drawing in the last update of a frame.
+     */
+    public boolean hasPendingTicks()
+    {
+        return backlog > 0;
+    }
+
+    /**
+     * Sleep the given amount of time, as the pacing strategy does. Since no
+     * strategy is exact, the overSleepTime will be calculated.
      * 
      * @param nanos Number of nanoseconds to sleep.
      */
@@ -107,11 +225,10 @@ public class MainLoop implements Runnable
         try
         {
             noDelays = 0;
-            long beforeSleep = System.nanoTime();
-            Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
-            overSleepTime = System.nanoTime() - beforeSleep - nanos;
+            overSleepTime = pacing.pause(nanos);
+            metrics.record(Phase.OVERSLEEP, overSleepTime);
         }
-        catch (Exception e)
+        catch (InterruptedException e)
         {}
     }
 
@@ -124,6 +241,7 @@ public class MainLoop implements Runnable
         if (++noDelays == noDelaysPerYield)
         {
             Thread.yield();
+            metrics.forcedYield();
             noDelays = 0;
         }
     }
@@ -147,22 +265,46 @@ public class MainLoop implements Runnable
     public void run()
     {
         running = true;
+        Thread renderThread = null;
         try
         {
             game.setup();
+            if (renderLoop != null)
+            {
+                renderThread = new Thread(renderLoop, "Render loop");
+                renderThread.start();
+            }
+
             while (running)
             {
                 beforeTime = System.nanoTime();
-                skipFramesInExcessTime();
-    
+                CatchUpPolicy policy = catchUpPolicy;
+                int scale = scaleFor(policy);
+                addTicks(policy, scale);
+
                 // Updates, renders and paint the screen
-                game.processLogics();
-                game.renderGraphics();
-                game.paintScreen();
-                afterTime = System.nanoTime();
+                runTicks(scale);
+                long logicsTime = System.nanoTime();
+                boolean reduceRender = policy == CatchUpPolicy.REDUCE_RENDER && behind;
+                if (renderLoop != null)
+                    renderLoop.setFrameRateDivider(reduceRender ? REDUCED_RENDER_DIVIDER : 1);
+                if (renderLoop == null && !reduceRender)
+                {
+                    game.renderGraphics();
+                    long renderTime = System.nanoTime();
+                    metrics.record(Phase.RENDER, renderTime - logicsTime);
+                    game.paintScreen();
+                    afterTime = System.nanoTime();
+                    metrics.record(Phase.PAINT, afterTime - renderTime);
+                }
+                else
+                    afterTime = logicsTime;
     
                 long sleepTime = calculateSleepTime();
-    
+                adjustScale(policy, sleepTime);
+                measureSpeed();
+
+                behind = sleepTime < 0;
                 if (sleepTime >= 0)
                     sleep(sleepTime);
                 else
@@ -180,30 +322,138 @@ public class MainLoop implements Runnable
         finally
         {
             running = false;
+            if (renderThread != null)
+            {
+                renderLoop.stop();
+                try
+                {
+                    renderThread.join();
+                }
+                catch (InterruptedException e)
+                {}
+            }
             game.tearDown();
             System.exit(0);
         }
     }
 
     /**
-     * Skip the number of frames according to the given excess time. This allow
-     * the game to run with the same speed even if the computer has a frame rate
-     * minor than the necessary.The number of total skips are limited to
-     * MAX_FRAME_SKIPS.
-     * 
-     * @param exceededTime The exceeded time. If the time is bigger enough to
-     *        skip one or more frames, they will be skipped.
-     * @return The remaining excess time, after the skips.
+     * @return The number of updates of the current frame, according to the
+     *         policy.
      */
-    private void skipFramesInExcessTime()
+    private int scaleFor(CatchUpPolicy policy)
     {
-        int skips = 0;
-        while ((excessTime > desiredUpdateTime) && (skips < maxFrameSkips))
+        int scale = timeScale;
+        if (policy != CatchUpPolicy.SLOW_DOWN)
+            return scale;
+
+        if (effectiveScale > scale)
+            effectiveScale = scale;
+        return effectiveScale;
+    }
+
+    /**
+     * Adds the updates of this frame to the backlog, and the frames skipped
+     * according to the excess time. This allow the game to run with the same
+     * speed even if the computer has a frame rate minor than the necessary.
+     * The backlog is then limited according to the policy, dropping the
+     * updates above the limit.
+     */
+    private void addTicks(CatchUpPolicy policy, int scale)
+    {
+        backlog += scale;
+        if (policy == CatchUpPolicy.SLOW_DOWN)
+            excessTime = 0;
+
+        while (excessTime > desiredUpdateTime)
         {
             excessTime -= desiredUpdateTime;
+            backlog += scale;
+        }
+
+        long maxBacklog;
+        if (policy == CatchUpPolicy.REDUCE_RENDER)
+            maxBacklog = (long) scale * ups;
+        else
+            maxBacklog = (long) scale * (maxFrameSkips + 1);
+
+        if (backlog > maxBacklog)
+        {
+            metrics.droppedTicks(backlog - maxBacklog);
+            backlog = maxBacklog;
+        }
+        metrics.setBacklog(backlog);
+    }
+
+    /**
+     * Runs the updates of the backlog. The updates above the time scale are
+     * counted as skipped frames.
+     */
+    private void runTicks(int scale)
+    {
+        long ticks = 0;
+        while (backlog > 0 && running)
+        {
+            backlog--;
+            long time = System.nanoTime();
             game.processLogics();
-            skips++;
+            metrics.record(Phase.LOGICS, System.nanoTime() - time);
+            if (++ticks > scale)
+                metrics.skippedFrame();
+        }
+        speedTicks += ticks;
+    }
+
+    /**
+     * Lowers the scale used by the SLOW_DOWN policy as soon as a frame is
+     * late, and raises it back after a second of frames that took less than
+     * half of their time.
+     */
+    private void adjustScale(CatchUpPolicy policy, long sleepTime)
+    {
+        if (policy != CatchUpPolicy.SLOW_DOWN)
+        {
+            effectiveScale = timeScale;
+            return;
+        }
+
+        if (sleepTime < 0)
+        {
+            effectiveScale = Math.max(1, effectiveScale / 2);
+            framesWithSpareTime = 0;
+        }
+        else if (sleepTime > desiredUpdateTime / 2 && effectiveScale < timeScale)
+        {
+            if (++framesWithSpareTime >= ups)
+            {
+                effectiveScale = Math.min(timeScale, effectiveScale * 2);
+                framesWithSpareTime = 0;
+            }
         }
+        else
+            framesWithSpareTime = 0;
+    }
+
+    /**
+     * Updates the achieved speed metric once per second.
+     */
+    private void measureSpeed()
+    {
+        long elapsed = afterTime - speedTime;
+        if (elapsed < 1000000000L)
+            return;
+
+        metrics.setAchievedSpeed(speedTicks * desiredUpdateTime / (double) elapsed);
+        speedTicks = 0;
+        speedTime = afterTime;
+    }
+
+    /**
+     * @return The time taken by each step of this loop.
+     */
+    public LoopMetrics getMetrics()
+    {
+        return metrics;
     }
 
     /**
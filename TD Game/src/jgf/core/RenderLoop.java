@@ -0,0 +1,123 @@
+package jgf.core;
+
+import jgf.core.profile.LoopMetrics;
+import jgf.core.profile.LoopMetrics.Phase;
+
+/**
+ * Renders and paints the frames of a game in a thread of its own, so the time
+ * spent drawing doesn't delay the logic updates made by the MainLoop.
+ * <p>
+ * The loop tries to draw a fixed number of frames per second, usually the
+ * refresh rate of the display. If drawing a frame takes longer, the next one
+ * is drawn right away, yielding to the other threads.
+ * <p>
+ * The renderGraphics() and paintScreen() steps are called by this loop only,
+ * and must not read what the logic thread changes without synchronization.
+ */
+public class RenderLoop implements Runnable
+{
+    public static final int DEFAULT_FPS = 60;
+
+    private LoopSteps game;
+    private LoopMetrics metrics;
+    private long desiredFrameTime;
+    private volatile int frameRateDivider = 1;
+    private volatile boolean running;
+
+    /**
+     * Create a new RenderLoop object.
+     *
+     * @param loopSteps The LoopSteps that will be drawn by this loop.
+     * @param fps Number of desired frames per second.
+     * @param metrics Where the time taken by each step is recorded.
+     */
+    public RenderLoop(LoopSteps loopSteps, int fps, LoopMetrics metrics)
+    {
+        if (fps < 1)
+            throw new IllegalArgumentException("You must display at least one frame per second!");
+
+        this.game = loopSteps;
+        this.metrics = metrics;
+        this.desiredFrameTime = 1000000000L / fps;
+        this.running = true;
+    }
+
+    /**
+     * Create a new RenderLoop object.
+     *
+     * @param loopSteps The LoopSteps that will be drawn by this loop.
+     * @param fps Number of desired frames per second.
+     */
+    public RenderLoop(LoopSteps loopSteps, int fps)
+    {
+        this(loopSteps, fps, new LoopMetrics());
+    }
+
+    /**
+     * Runs the loop until it's stopped.
+     */
+    public void run()
+    {
+        try
+        {
+            while (running)
+            {
+                long beforeTime = System.nanoTime();
+                game.renderGraphics();
+                long renderTime = System.nanoTime();
+                metrics.record(Phase.RENDER, renderTime - beforeTime);
+                game.paintScreen();
+                long afterTime = System.nanoTime();
+                metrics.record(Phase.PAINT, afterTime - renderTime);
+
+                long sleepTime = desiredFrameTime * frameRateDivider
+                        - (afterTime - beforeTime);
+                if (sleepTime > 0)
+                    Thread.sleep(sleepTime / 1000000L, (int) (sleepTime % 1000000L));
+                else
+                {
+                    Thread.yield();
+                    metrics.forcedYield();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {}
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            running = false;
+        }
+    }
+
+    /**
+     * Draws less frames, dividing the frames per second by the given number,
+     * so the other threads have more time. Can be called by any thread.
+     */
+    public void setFrameRateDivider(int frameRateDivider)
+    {
+        if (frameRateDivider < 1)
+            throw new IllegalArgumentException("The divider must be at least 1!");
+
+        this.frameRateDivider = frameRateDivider;
+    }
+
+    /**
+     * Stops the loop after the current frame.
+     */
+    public void stop()
+    {
+        running = false;
+    }
+
+    /**
+     * @return The time taken by each step of this loop.
+     */
+    public LoopMetrics getMetrics()
+    {
+        return metrics;
+    }
+}
@@ -20,9 +20,13 @@ public class ScreenManager {
 	private GraphicsDevice device;
 
 	/**
-	 * Creates a new ScreenManager object.
+	 * Creates a new ScreenManager object. In a headless environment there is
+	 * no screen device, and only images can be created.
 	 */
 	private ScreenManager() {
+		if (GraphicsEnvironment.isHeadless())
+			return;
+
 		GraphicsEnvironment environment = GraphicsEnvironment
 				.getLocalGraphicsEnvironment();
 		device = environment.getDefaultScreenDevice();
@@ -156,6 +160,8 @@ public class ScreenManager {
 	 * the device is not in full screen mode.
 	 */
 	public JFrame getFullScreenWindow() {
+		if (device == null)
+			return null;
 		return (JFrame) device.getFullScreenWindow();
 	}
 
@@ -195,6 +201,10 @@ public class ScreenManager {
 	 * Creates an image compatible with the current display.
 	 */
 	public BufferedImage createCompatibleImage(int w, int h, int transparency) {
+		if (device == null)
+			return new BufferedImage(w, h,
+					transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB
+							: BufferedImage.TYPE_INT_ARGB);
 		if (getFullScreenWindow() == null)
 			return GraphicsEnvironment.getLocalGraphicsEnvironment()
 					.getDefaultScreenDevice().getDefaultConfiguration()
@@ -209,6 +219,8 @@ public class ScreenManager {
 	 * Creates an image compatible with the current display.
 	 */
 	public BufferedImage createCompatibleImage(int w, int h) {
+		if (device == null)
+			return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
 		if (getFullScreenWindow() == null)
 			return GraphicsEnvironment.getLocalGraphicsEnvironment()
 					.getDefaultScreenDevice().getDefaultConfiguration()
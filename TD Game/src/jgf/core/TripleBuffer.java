@@ -0,0 +1,68 @@
+package jgf.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects from one writer thread to one reader thread without locks.
+ * <p>
+ * The writer fills the back buffer and publishes it, taking the middle buffer
+ * as its new back buffer. The reader takes the last published buffer as its
+ * front buffer, leaving its old front buffer in the middle. The writer never
+ * waits for the reader and never touches the front buffer, so the reader can
+ * use it as an immutable object until it asks for the front buffer again.
+ * Buffers published while the reader didn't ask for one are skipped.
+ *
+ * @param <T> The type of the buffers.
+ */
+public class TripleBuffer<T>
+{
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private Object[] buffers;
+
+    // index of the middle buffer, plus FRESH if it was published and not read
+    private AtomicInteger middle = new AtomicInteger(1);
+    private int back = 2;
+    private int front = 0;
+
+    /**
+     * Create a new TripleBuffer object. The first buffer is the front buffer
+     * until something is published.
+     */
+    public TripleBuffer(T first, T second, T third)
+    {
+        buffers = new Object[] { first, second, third };
+    }
+
+    /**
+     * Returns the buffer the writer fills. Must only be called by the writer.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBackBuffer()
+    {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Publishes the back buffer and takes another one as the back buffer. Must
+     * only be called by the writer.
+     */
+    public void publish()
+    {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Returns the last published buffer. It won't change until this method is
+     * called again. Must only be called by the reader.
+     */
+    @SuppressWarnings("unchecked")
+    public T getFrontBuffer()
+    {
+        if ((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & INDEX;
+
+        return (T) buffers[front];
+    }
+}
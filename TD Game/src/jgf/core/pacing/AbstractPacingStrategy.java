@@ -0,0 +1,37 @@
+package jgf.core.pacing;
+
+import jgf.core.profile.LatencyHistogram;
+
+/**
+ * Measures the jitter of a PacingStrategy. Subclasses only wait until a
+ * deadline.
+ */
+public abstract class AbstractPacingStrategy implements PacingStrategy
+{
+    private LatencyHistogram jitter = new LatencyHistogram();
+
+    public final long pause(long nanos) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + nanos;
+        waitUntil(deadline);
+        long late = System.nanoTime() - deadline;
+        jitter.record(late);
+        return late;
+    }
+
+    /**
+     * Waits until System.nanoTime() reaches the given deadline.
+     */
+    protected abstract void waitUntil(long deadline) throws InterruptedException;
+
+    public LatencyHistogram getJitter()
+    {
+        return jitter;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
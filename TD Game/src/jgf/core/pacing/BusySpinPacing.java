@@ -0,0 +1,22 @@
+package jgf.core.pacing;
+
+/**
+ * Spins until the deadline, checking the time all the time. It is the most
+ * precise strategy, but keeps a CPU busy, so it should only be used by
+ * benchmarks.
+ */
+public class BusySpinPacing extends AbstractPacingStrategy
+{
+    @Override
+    protected void waitUntil(long deadline) throws InterruptedException
+    {
+        while (System.nanoTime() < deadline)
+            if (Thread.interrupted())
+                throw new InterruptedException();
+    }
+
+    public String getName()
+    {
+        return "spin";
+    }
+}
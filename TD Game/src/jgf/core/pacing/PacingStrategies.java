@@ -0,0 +1,26 @@
+package jgf.core.pacing;
+
+/**
+ * Creates the pacing strategies by name.
+ */
+public class PacingStrategies
+{
+    private PacingStrategies()
+    {}
+
+    /**
+     * @param name "sleep", "park" or "spin".
+     * @return A new strategy with the given name.
+     */
+    public static PacingStrategy forName(String name)
+    {
+        if (name.equals("sleep"))
+            return new SleepPacing();
+        if (name.equals("park"))
+            return new ParkSpinPacing();
+        if (name.equals("spin"))
+            return new BusySpinPacing();
+
+        throw new IllegalArgumentException("Unknown pacing strategy: " + name);
+    }
+}
@@ -0,0 +1,33 @@
+package jgf.core.pacing;
+
+import jgf.core.profile.LatencyHistogram;
+
+/**
+ * How a game loop waits for the time of its next update. Waiting is a trade
+ * between precision and CPU usage: the thread can sleep, park and then spin,
+ * or spin all the time.
+ * <p>
+ * Every strategy measures how late it returns, so the jitter of each one can
+ * be compared. A strategy is used by a single loop thread.
+ */
+public interface PacingStrategy
+{
+    /**
+     * Waits for the given time.
+     * 
+     * @param nanos Number of nanoseconds to wait.
+     * @return How many nanoseconds later than asked the wait returned.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    long pause(long nanos) throws InterruptedException;
+
+    /**
+     * @return How late each pause returned, in nanoseconds.
+     */
+    LatencyHistogram getJitter();
+
+    /**
+     * @return A short name of the strategy, like "sleep".
+     */
+    String getName();
+}
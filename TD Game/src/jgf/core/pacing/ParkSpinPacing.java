@@ -0,0 +1,53 @@
+package jgf.core.pacing;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks the thread until shortly before the deadline, and then spins for the
+ * rest of the time. The spinning tail hides the late wake ups of the park,
+ * using the CPU only for a short time per wait.
+ */
+public class ParkSpinPacing extends AbstractPacingStrategy
+{
+    public static final long DEFAULT_SPIN_NANOS = 1000000L;
+
+    private long spinNanos;
+
+    /**
+     * @param spinNanos How long before the deadline the thread stops parking
+     *        and starts spinning.
+     */
+    public ParkSpinPacing(long spinNanos)
+    {
+        if (spinNanos < 0)
+            throw new IllegalArgumentException("The spin time can't be negative!");
+
+        this.spinNanos = spinNanos;
+    }
+
+    public ParkSpinPacing()
+    {
+        this(DEFAULT_SPIN_NANOS);
+    }
+
+    @Override
+    protected void waitUntil(long deadline) throws InterruptedException
+    {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > spinNanos)
+        {
+            LockSupport.parkNanos(remaining - spinNanos);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            remaining = deadline - System.nanoTime();
+        }
+
+        while (System.nanoTime() < deadline)
+            ;
+    }
+
+    public String getName()
+    {
+        return "park";
+    }
+}
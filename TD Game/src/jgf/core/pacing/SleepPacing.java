@@ -0,0 +1,22 @@
+package jgf.core.pacing;
+
+/**
+ * Waits with Thread.sleep(). It uses no CPU while waiting, but wakes up as
+ * late as the timer of the operating system allows, often a millisecond or
+ * more.
+ */
+public class SleepPacing extends AbstractPacingStrategy
+{
+    @Override
+    protected void waitUntil(long deadline) throws InterruptedException
+    {
+        long nanos = deadline - System.nanoTime();
+        if (nanos > 0)
+            Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+    }
+
+    public String getName()
+    {
+        return "sleep";
+    }
+}
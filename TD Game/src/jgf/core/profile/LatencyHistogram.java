@@ -0,0 +1,149 @@
+package jgf.core.profile;
+
+import java.util.Arrays;
+
+/**
+ * Counts durations in logarithmic buckets, so percentiles can be read without
+ * keeping every sample. Each power of two is split in 32 buckets, so a
+ * percentile is at most about 3% above the real value. Recording is constant
+ * time and never allocates.
+ * <p>
+ * The histogram has a single writer. Other threads can read it at any time,
+ * but may see a sample being recorded only partially.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // durations up to 2^42 ns (more than an hour)
+    private static final int MAX_BITS = 42;
+
+    private long[] counts = new long[(MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Records a duration. Negative durations are recorded as zero.
+     *
+     * @param nanos The duration, in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+            nanos = 0;
+
+        counts[bucketOf(nanos)]++;
+        count++;
+        sum += nanos;
+        if (nanos < min)
+            min = nanos;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    private static int bucketOf(long nanos)
+    {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        if (magnitude >= MAX_BITS)
+            return (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS - 1;
+
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (nanos >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest duration counted in the given bucket.
+     */
+    private static long highestOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the duration below which the given percentage of the samples
+     * are, or zero if nothing was recorded.
+     *
+     * @param percentile From 0 to 100.
+     */
+    public long getPercentile(double percentile)
+    {
+        if (count == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        if (rank < 1)
+            rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestOf(i), max);
+        }
+        return max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return The smallest duration, or zero if nothing was recorded.
+     */
+    public long getMin()
+    {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * @return The mean duration, or zero if nothing was recorded.
+     */
+    public double getMean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Adds the samples of another histogram to this one. Must be called by
+     * the writer of this one.
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every sample. Must be called by the writer.
+     */
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+}
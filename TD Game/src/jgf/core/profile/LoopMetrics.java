@@ -0,0 +1,393 @@
+package jgf.core.profile;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.ObjectName;
+
+/**
+ * Measures how long each phase of a game loop takes, with a
+ * {@link LatencyHistogram} per phase, and counts the skipped frames and the
+ * forced yields. The time scale, the speed achieved and the backlog of updates
+ * are kept too. The loops record into it without allocating anything; the
+ * results can be read through JMX (see register()) or appended to a CSV file
+ * periodically (see startCsvDump()), both out of the loop threads.
+ * <p>
+ * JMX reads the durations recorded since the loop started. The CSV file gets
+ * the durations of each interval between two dumps instead, so a burst of
+ * slow updates isn't lost in the whole run. As a histogram can only be reset
+ * by its writer, a dump asks for a new interval and each loop closes its
+ * current one the next time it records a phase.
+ */
+public class LoopMetrics implements LoopMetricsMBean
+{
+    private static final LatencyHistogram EMPTY = new LatencyHistogram();
+
+    /**
+     * The measured phases of a loop.
+     */
+    public enum Phase
+    {
+        /** The processLogics() step, including skipped frames. */
+        LOGICS,
+        /** The renderGraphics() step. */
+        RENDER,
+        /** The paintScreen() step. */
+        PAINT,
+        /** How much longer than asked the loop slept. */
+        OVERSLEEP;
+
+        public String getName()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    private LatencyHistogram[] histograms;
+    // the interval being recorded and the last one closed, by phase
+    private LatencyHistogram[] intervals;
+    private LatencyHistogram[] closedIntervals;
+    // the last interval asked for, and the last one started by each phase
+    private volatile long interval;
+    private AtomicLongArray startedIntervals;
+    private long intervalEnd;
+    private volatile long updates;
+    private volatile long frames;
+    private volatile long skippedFrames;
+    // both the logic and the render loops yield
+    private AtomicLong forcedYields = new AtomicLong();
+    private volatile int timeScale = 1;
+    private volatile double achievedSpeed;
+    private volatile long backlog;
+    private volatile long droppedTicks;
+
+    private ScheduledExecutorService dumper;
+
+    public LoopMetrics()
+    {
+        int phases = Phase.values().length;
+        histograms = new LatencyHistogram[phases];
+        intervals = new LatencyHistogram[phases];
+        closedIntervals = new LatencyHistogram[phases];
+        for (int i = 0; i < phases; i++)
+        {
+            histograms[i] = new LatencyHistogram();
+            intervals[i] = new LatencyHistogram();
+            closedIntervals[i] = new LatencyHistogram();
+        }
+        startedIntervals = new AtomicLongArray(phases);
+    }
+
+    /**
+     * Records how long a phase took. Each phase must be recorded by a single
+     * thread.
+     */
+    public void record(Phase phase, long nanos)
+    {
+        int i = phase.ordinal();
+        long interval = this.interval;
+        if (startedIntervals.get(i) != interval)
+        {
+            closedIntervals[i].reset();
+            closedIntervals[i].add(intervals[i]);
+            intervals[i].reset();
+            startedIntervals.set(i, interval);
+        }
+
+        histograms[i].record(nanos);
+        intervals[i].record(nanos);
+        if (phase == Phase.LOGICS)
+            updates++;
+        else if (phase == Phase.PAINT)
+            frames++;
+    }
+
+    public void skippedFrame()
+    {
+        skippedFrames++;
+    }
+
+    public void forcedYield()
+    {
+        forcedYields.incrementAndGet();
+    }
+
+    public void setTimeScale(int timeScale)
+    {
+        this.timeScale = timeScale;
+    }
+
+    public void setAchievedSpeed(double achievedSpeed)
+    {
+        this.achievedSpeed = achievedSpeed;
+    }
+
+    public void setBacklog(long backlog)
+    {
+        this.backlog = backlog;
+    }
+
+    public void droppedTicks(long ticks)
+    {
+        droppedTicks += ticks;
+    }
+
+    public LatencyHistogram getHistogram(Phase phase)
+    {
+        return histograms[phase.ordinal()];
+    }
+
+    public long getUpdates()
+    {
+        return updates;
+    }
+
+    public long getFrames()
+    {
+        return frames;
+    }
+
+    public long getSkippedFrames()
+    {
+        return skippedFrames;
+    }
+
+    public long getForcedYields()
+    {
+        return forcedYields.get();
+    }
+
+    public int getTimeScale()
+    {
+        return timeScale;
+    }
+
+    public double getAchievedSpeed()
+    {
+        return achievedSpeed;
+    }
+
+    public long getBacklog()
+    {
+        return backlog;
+    }
+
+    public long getDroppedTicks()
+    {
+        return droppedTicks;
+    }
+
+    private double micros(Phase phase, double percentile)
+    {
+        return getHistogram(phase).getPercentile(percentile) / 1000.0;
+    }
+
+    private double maxMicros(Phase phase)
+    {
+        return getHistogram(phase).getMax() / 1000.0;
+    }
+
+    public double getLogicsP50()
+    {
+        return micros(Phase.LOGICS, 50);
+    }
+
+    public double getLogicsP99()
+    {
+        return micros(Phase.LOGICS, 99);
+    }
+
+    public double getLogicsP999()
+    {
+        return micros(Phase.LOGICS, 99.9);
+    }
+
+    public double getLogicsMax()
+    {
+        return maxMicros(Phase.LOGICS);
+    }
+
+    public double getRenderP50()
+    {
+        return micros(Phase.RENDER, 50);
+    }
+
+    public double getRenderP99()
+    {
+        return micros(Phase.RENDER, 99);
+    }
+
+    public double getRenderP999()
+    {
+        return micros(Phase.RENDER, 99.9);
+    }
+
+    public double getRenderMax()
+    {
+        return maxMicros(Phase.RENDER);
+    }
+
+    public double getPaintP50()
+    {
+        return micros(Phase.PAINT, 50);
+    }
+
+    public double getPaintP99()
+    {
+        return micros(Phase.PAINT, 99);
+    }
+
+    public double getPaintP999()
+    {
+        return micros(Phase.PAINT, 99.9);
+    }
+
+    public double getPaintMax()
+    {
+        return maxMicros(Phase.PAINT);
+    }
+
+    public double getOversleepP50()
+    {
+        return micros(Phase.OVERSLEEP, 50);
+    }
+
+    public double getOversleepP99()
+    {
+        return micros(Phase.OVERSLEEP, 99);
+    }
+
+    public double getOversleepP999()
+    {
+        return micros(Phase.OVERSLEEP, 99.9);
+    }
+
+    public double getOversleepMax()
+    {
+        return maxMicros(Phase.OVERSLEEP);
+    }
+
+    public double getPercentile(String phase, double percentile)
+    {
+        return micros(Phase.valueOf(phase.toUpperCase()), percentile);
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server, as
+     * jgf.core:type=LoopMetrics,name=<i>name</i>.
+     */
+    public void register(String name)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("jgf.core:type=LoopMetrics,name=" + name));
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes one line per phase, with the count and the mean, p50, p99, p999
+     * and maximum durations in microseconds of the interval that ended at the
+     * previous call, followed by the skipped frames and forced yields so far,
+     * the time scale, the achieved speed, the backlog and the dropped
+     * updates. Then starts a new interval. The first call only starts one.
+     * Must not be called by many threads at once.
+     */
+    public void dumpCsv(PrintWriter out)
+    {
+        if (interval > 0)
+        {
+            for (Phase phase : Phase.values())
+            {
+                int i = phase.ordinal();
+                LatencyHistogram histogram = closedIntervals[i];
+                // if the phase wasn't recorded since the interval ended, it
+                // is still open, or was already written if it ended before
+                if (startedIntervals.get(i) == interval - 1)
+                    histogram = intervals[i];
+                else if (startedIntervals.get(i) != interval)
+                    histogram = EMPTY;
+                out.printf("%d,%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d,%.2f,%d,%d%n",
+                        intervalEnd, phase.getName(), histogram.getCount(),
+                        histogram.getMean() / 1000,
+                        histogram.getPercentile(50) / 1000.0,
+                        histogram.getPercentile(99) / 1000.0,
+                        histogram.getPercentile(99.9) / 1000.0,
+                        histogram.getMax() / 1000.0, skippedFrames,
+                        forcedYields.get(), timeScale, achievedSpeed, backlog,
+                        droppedTicks);
+            }
+            out.flush();
+        }
+
+        intervalEnd = System.currentTimeMillis();
+        interval++;
+    }
+
+    /**
+     * Appends the metrics to a CSV file, in a background thread, every given
+     * period, with the durations of the period before (see dumpCsv()). A
+     * header is written if the file doesn't exist yet.
+     */
+    public synchronized void startCsvDump(final File file, long periodMillis)
+    {
+        stopCsvDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Loop metrics dump");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        dumper.scheduleAtFixedRate(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    boolean exists = file.exists();
+                    PrintWriter out = new PrintWriter(new FileWriter(file, true));
+                    try
+                    {
+                        if (!exists)
+                            out.println("time,phase,count,mean_us,p50_us,"
+                                    + "p99_us,p999_us,max_us,skipped_frames,"
+                                    + "forced_yields,time_scale,speed,"
+                                    + "backlog,dropped_ticks");
+                        dumpCsv(out);
+                    }
+                    finally
+                    {
+                        out.close();
+                    }
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopCsvDump()
+    {
+        if (dumper != null)
+            dumper.shutdown();
+        dumper = null;
+    }
+}
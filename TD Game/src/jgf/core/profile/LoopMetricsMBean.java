@@ -0,0 +1,77 @@
+package jgf.core.profile;
+
+/**
+ * The management interface of {@link LoopMetrics}. Durations are in
+ * microseconds and cover every update since the loop started.
+ */
+public interface LoopMetricsMBean
+{
+    long getUpdates();
+
+    long getFrames();
+
+    long getSkippedFrames();
+
+    long getForcedYields();
+
+    /**
+     * @return The number of logic updates asked per frame.
+     */
+    int getTimeScale();
+
+    /**
+     * @return How many times faster than the wall clock the game time ran in
+     *         the last second.
+     */
+    double getAchievedSpeed();
+
+    /**
+     * @return The number of logic updates waiting to run in the last frame.
+     */
+    long getBacklog();
+
+    /**
+     * @return The number of logic updates dropped to catch up.
+     */
+    long getDroppedTicks();
+
+    double getLogicsP50();
+
+    double getLogicsP99();
+
+    double getLogicsP999();
+
+    double getLogicsMax();
+
+    double getRenderP50();
+
+    double getRenderP99();
+
+    double getRenderP999();
+
+    double getRenderMax();
+
+    double getPaintP50();
+
+    double getPaintP99();
+
+    double getPaintP999();
+
+    double getPaintMax();
+
+    double getOversleepP50();
+
+    double getOversleepP99();
+
+    double getOversleepP999();
+
+    double getOversleepMax();
+
+    /**
+     * Returns a percentile of a phase, in microseconds.
+     *
+     * @param phase logics, render, paint or oversleep.
+     * @param percentile From 0 to 100.
+     */
+    double getPercentile(String phase, double percentile);
+}
@@ -0,0 +1,212 @@
+package jgf.core.profile;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long profiled pieces of code take. Each piece of code is given
+ * a slot once, usually in a static field, and is then surrounded by a
+ * start()/stop() scope:
+ *
+ * <pre>
+ * private static final int SLOT = Profiler.getInstance().register(&quot;name&quot;);
+ *
+ * long start = Profiler.getInstance().start();
+ * ...
+ * Profiler.getInstance().stop(SLOT, start);
+ * </pre>
+ *
+ * The durations are counted in a {@link LatencyHistogram} per slot and per
+ * thread, so measuring never allocates nor prints anything once a thread has
+ * measured a slot, and the same slot can be measured by many threads, such as
+ * the ones of games played in parallel. The histograms of a slot are merged
+ * when read. The statistics are printed on demand by report(), or
+ * periodically by a background thread.
+ * <p>
+ * Profiling is enabled by the jgf.profile system property. When it is not
+ * set, start() and stop() do nothing.
+ */
+public class Profiler
+{
+    /** If the scopes are measured, set by the jgf.profile system property. */
+    public static final boolean ENABLED = Boolean.getBoolean("jgf.profile");
+
+    private static final Profiler instance = new Profiler();
+
+    /** The histograms of a thread, by slot, null for the slots not measured. */
+    private static class Writer
+    {
+        private volatile LatencyHistogram[] histograms = new LatencyHistogram[0];
+    }
+
+    private volatile String[] names = new String[0];
+    // every thread that measured something, guarded by this
+    private List<Writer> writers = new ArrayList<Writer>();
+    private ThreadLocal<Writer> writer = new ThreadLocal<Writer>()
+    {
+        protected Writer initialValue()
+        {
+            Writer writer = new Writer();
+            synchronized (Profiler.this)
+            {
+                writers.add(writer);
+            }
+            return writer;
+        }
+    };
+
+    private ScheduledExecutorService reporter;
+
+    public static Profiler getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Returns the slot of the given name, creating it if needed. Slots are
+     * never removed, so they can be kept in static fields.
+     */
+    public synchronized int register(String name)
+    {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+
+        int slot = names.length;
+        String[] newNames = Arrays.copyOf(names, slot + 1);
+        newNames[slot] = name;
+        names = newNames;
+        return slot;
+    }
+
+    /**
+     * Starts a scope.
+     *
+     * @return The time the scope started, to be given to stop().
+     */
+    public long start()
+    {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Ends a scope, counting the time since it started in the given slot.
+     */
+    public void stop(int slot, long start)
+    {
+        if (ENABLED)
+            record(slot, System.nanoTime() - start);
+    }
+
+    /**
+     * Counts the given duration in the given slot, in the histogram of the
+     * calling thread, even if profiling is disabled.
+     */
+    public void record(int slot, long nanos)
+    {
+        Writer writer = this.writer.get();
+        LatencyHistogram[] histograms = writer.histograms;
+        if (slot >= histograms.length || histograms[slot] == null)
+            histograms = addHistogram(writer, slot);
+        histograms[slot].record(nanos);
+    }
+
+    private synchronized LatencyHistogram[] addHistogram(Writer writer, int slot)
+    {
+        LatencyHistogram[] histograms = Arrays.copyOf(writer.histograms,
+                Math.max(writer.histograms.length, slot + 1));
+        histograms[slot] = new LatencyHistogram();
+        writer.histograms = histograms;
+        return histograms;
+    }
+
+    /**
+     * @return A copy of the durations measured in the given slot, by every
+     *         thread.
+     */
+    public synchronized LatencyHistogram getHistogram(int slot)
+    {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (int i = 0; i < writers.size(); i++)
+        {
+            LatencyHistogram[] histograms = writers.get(i).histograms;
+            if (slot < histograms.length && histograms[slot] != null)
+                merged.add(histograms[slot]);
+        }
+        return merged;
+    }
+
+    public String getName(int slot)
+    {
+        return names[slot];
+    }
+
+    /**
+     * @return The number of slots.
+     */
+    public int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Prints the count and the min, mean, p50, p99, p999 and maximum
+     * durations, in microseconds, of each slot that measured something.
+     */
+    public void report(PrintStream out)
+    {
+        String[] names = this.names;
+        for (int i = 0; i < names.length; i++)
+        {
+            LatencyHistogram histogram = getHistogram(i);
+            if (histogram.getCount() == 0)
+                continue;
+
+            out.printf("%s: count=%d min=%.1f mean=%.1f p50=%.1f p99=%.1f "
+                    + "p999=%.1f max=%.1f us%n", names[i],
+                    histogram.getCount(), histogram.getMin() / 1000.0,
+                    histogram.getMean() / 1000, histogram.getPercentile(50) / 1000.0,
+                    histogram.getPercentile(99) / 1000.0,
+                    histogram.getPercentile(99.9) / 1000.0,
+                    histogram.getMax() / 1000.0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Calls report(), in a background thread, every given period.
+     */
+    public synchronized void startReport(final PrintStream out, long periodMillis)
+    {
+        stopReport();
+        reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Profiler report");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reporter.scheduleAtFixedRate(new Runnable()
+        {
+            public void run()
+            {
+                report(out);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopReport()
+    {
+        if (reporter != null)
+            reporter.shutdown();
+        reporter = null;
+    }
+}
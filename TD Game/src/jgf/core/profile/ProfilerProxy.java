@@ -1,69 +1,59 @@
 package jgf.core.profile;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Shows how many time (in miliseconds) each method of a given interface took to
- * process.
+ * Measures how long each method of the interfaces of a given object takes, in
+ * the {@link Profiler} slots named <i>Interface.method</i>. The slots are
+ * created with the proxy, so a call only looks its slot up and records the
+ * duration; the statistics are printed by Profiler.report().
+ * <p>
+ * The proxy measures even if the Profiler is disabled, but the reflective
+ * call costs more than the measure. Code that isn't called through an
+ * interface, or is called very often, should use a Profiler scope instead.
  * 
  * @author Vincius
  */
 public class ProfilerProxy implements InvocationHandler
 {
     private Object proxied;
-    private Map<Method, Long> counters;
-    private Map<Method, Double> sums;
-
-    public double getFromMap(Map<Method, Double> map, Method method)
-    {
-        if (map.get(method) == null)
-            return 0;
-
-        return map.get(method).doubleValue();
-    }
-
-    public long getFromMapLong(Map<Method, Long> map, Method method)
-    {
-        if (map.get(method) == null)
-            return 0;
-
-        return map.get(method).longValue();
-    }
+    private Map<Method, Integer> slots;
+    private Profiler profiler = Profiler.getInstance();
 
     public Object invoke(Object proxy, Method method, Object[] args)
             throws Throwable
     {
+        Integer slot = slots.get(method);
         long timeBefore = System.nanoTime();
-
-        Object ret = method.invoke(proxied, args);
-
-        double sum = getFromMap(sums, method);
-        long counter = getFromMapLong(counters, method);
-
-        sum += ((double) (System.nanoTime() - timeBefore)) / 1000000;
-
-        if (++counter == 100)
+        try
         {
-            System.out.printf("%s = %.4f\n", method.getName(), (sum / 100));
-            sum = 0;
-            counter = 0;
+            return method.invoke(proxied, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            if (slot != null)
+                profiler.record(slot.intValue(), System.nanoTime() - timeBefore);
         }
-
-        sums.put(method, new Double(sum));
-        counters.put(method, new Long(counter));
-
-        return ret;
     }
 
     private ProfilerProxy(Object proxied)
     {
         this.proxied = proxied;
-        counters = new HashMap<Method, Long>();
-        sums = new HashMap<Method, Double>();
+        slots = new HashMap<Method, Integer>();
+
+        for (Class<?> type : proxied.getClass().getInterfaces())
+            for (Method method : type.getMethods())
+                slots.put(method, Integer.valueOf(profiler.register(type
+                        .getSimpleName() + "." + method.getName())));
     }
 
     public static Object newProfiled(Object obj)
@@ -0,0 +1,302 @@
+package jgf.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Tells, for every tile of a MatrixGraph, if turning it into a wall would
+ * disconnect any of the registered lanes (pairs of start and target tiles).
+ * <p>
+ * For each distinct target, a depth first search rooted at the target finds
+ * the articulation points of the walkable tiles. A tile blocks a lane if it's
+ * the lane's target or if it separates the lane's start from the target in
+ * the DFS tree, that is, if it's an ancestor of the start whose child towards
+ * the start can't reach above it (low[child] >= disc[tile]). As in A*, the
+ * start tile itself may be a wall: the lane then starts from its walkable
+ * neighbors, and a tile blocks it only if it separates all of them.
+ * <p>
+ * The index isn't updated tile by tile: a wall placed or removed can change
+ * the DFS trees anywhere, so it's recalculated in O(targets * tiles) the first
+ * time it's queried after the graph version changes, and every query after
+ * that is O(1). The graph is read without locks, so an answer is only sure
+ * when the index is queried by the thread that changes the graph; other
+ * threads may get a stale answer, to be checked again by that thread.
+ */
+public class BlockingTileIndex {
+	private MatrixGraph graph;
+	private int[][] neighbors;
+
+	private int[] starts = new int[0];
+	private int[] targets = new int[0];
+
+	private boolean[] blocking;
+	private boolean allBlocked;
+	private long builtVersion = -1;
+
+	// depth first search state
+	private int[] disc;
+	private int[] low;
+	private int[] parent;
+	private int[] nextNeighbor;
+	private int[] stack;
+	private int[] separations;
+
+	/**
+	 * @param ignoreEdges If true, only the 4 orthogonal neighbors are
+	 *        connected, as in {@link Graph#buildSucessorsIgnoreEdges(Node)}.
+	 */
+	public BlockingTileIndex(MatrixGraph graph, boolean ignoreEdges) {
+		this.graph = graph;
+		this.neighbors = ignoreEdges ? MatrixGraph.NEIGHBORS_4
+				: MatrixGraph.NEIGHBORS_8;
+
+		int tiles = graph.getWidth() * graph.getHeight();
+		blocking = new boolean[tiles];
+		disc = new int[tiles];
+		low = new int[tiles];
+		parent = new int[tiles];
+		nextNeighbor = new int[tiles];
+		stack = new int[tiles];
+		separations = new int[tiles];
+	}
+
+	/**
+	 * Registers a lane that must always have a path from the start to the
+	 * target tile. A lane that starts in its target always has a path, so
+	 * it's ignored.
+	 */
+	public synchronized void addLane(int startX, int startY, int targetX,
+			int targetY) {
+		if (startX == targetX && startY == targetY)
+			return;
+
+		int n = starts.length;
+		starts = Arrays.copyOf(starts, n + 1);
+		targets = Arrays.copyOf(targets, n + 1);
+		starts[n] = graph.toIndex(startX, startY);
+		targets[n] = graph.toIndex(targetX, targetY);
+		builtVersion = -1;
+	}
+
+	/**
+	 * Returns true if walling the tile (x, y) would leave any lane without a
+	 * path. If some lane is already disconnected, every tile is blocking.
+	 */
+	public synchronized boolean isBlocking(int x, int y) {
+		update();
+		return allBlocked || blocking[graph.toIndex(x, y)];
+	}
+
+	/**
+	 * Fills the given array, indexed by {@link MatrixGraph#toIndex(int, int)},
+	 * with the blocking state of every tile.
+	 *
+	 * @param tiles An array with one position per tile, or null to create one.
+	 * @return The filled array.
+	 */
+	public synchronized boolean[] getBlockingTiles(boolean[] tiles) {
+		update();
+		if (tiles == null)
+			tiles = new boolean[blocking.length];
+
+		if (allBlocked)
+			Arrays.fill(tiles, true);
+		else
+			System.arraycopy(blocking, 0, tiles, 0, blocking.length);
+		return tiles;
+	}
+
+	private void update() {
+		if (builtVersion == graph.getVersion())
+			return;
+
+		Arrays.fill(blocking, false);
+		allBlocked = false;
+
+		for (int i = 0; i < targets.length; i++) {
+			if (isFirstLaneOf(i))
+				analyze(targets[i]);
+			if (allBlocked)
+				break;
+		}
+
+		builtVersion = graph.getVersion();
+	}
+
+	private boolean isFirstLaneOf(int lane) {
+		for (int i = 0; i < lane; i++)
+			if (targets[i] == targets[lane])
+				return false;
+		return true;
+	}
+
+	private boolean isWall(int tile) {
+		int x = graph.indexToX(tile);
+		int y = graph.indexToY(tile);
+		return graph.get(x, y) == MatrixGraph.WALL;
+	}
+
+	private int neighbor(int tile, int i) {
+		int x = graph.indexToX(tile) + neighbors[i][0];
+		int y = graph.indexToY(tile) + neighbors[i][1];
+		if (x < 0 || y < 0 || x >= graph.getWidth() || y >= graph.getHeight())
+			return -1;
+
+		int neighbor = graph.toIndex(x, y);
+		return isWall(neighbor) ? -1 : neighbor;
+	}
+
+	/**
+	 * Runs the DFS from the target and marks the tiles that block the lanes
+	 * leading to it.
+	 */
+	private void analyze(int target) {
+		if (isWall(target)) {
+			allBlocked = true;
+			return;
+		}
+
+		search(target);
+		blocking[target] = true;
+
+		for (int i = 0; i < targets.length; i++) {
+			if (targets[i] != target)
+				continue;
+
+			int start = starts[i];
+			if (!isWall(start) && disc[start] != 0) {
+				markSeparators(start, target);
+				markStart(start, target);
+			} else if (!markCommonSeparators(start, target))
+				allBlocked = true;
+
+			if (allBlocked)
+				return;
+		}
+	}
+
+	/**
+	 * Iterative Tarjan DFS, filling disc, low and parent. Tiles not reached
+	 * keep disc == 0.
+	 */
+	private void search(int root) {
+		Arrays.fill(disc, 0);
+		int time = 0;
+		int top = 0;
+
+		disc[root] = low[root] = ++time;
+		parent[root] = -1;
+		nextNeighbor[root] = 0;
+		stack[top++] = root;
+
+		while (top > 0) {
+			int tile = stack[top - 1];
+
+			if (nextNeighbor[tile] < neighbors.length) {
+				int neighbor = neighbor(tile, nextNeighbor[tile]++);
+				if (neighbor == -1)
+					continue;
+
+				if (disc[neighbor] == 0) {
+					disc[neighbor] = low[neighbor] = ++time;
+					parent[neighbor] = tile;
+					nextNeighbor[neighbor] = 0;
+					stack[top++] = neighbor;
+				} else if (neighbor != parent[tile])
+					low[tile] = Math.min(low[tile], disc[neighbor]);
+				continue;
+			}
+
+			top--;
+			if (parent[tile] != -1)
+				low[parent[tile]] = Math.min(low[parent[tile]], low[tile]);
+		}
+	}
+
+	/**
+	 * Walks from the tile to the root, marking every ancestor that separates
+	 * the tile from the root.
+	 */
+	private void markSeparators(int tile, int root) {
+		int child = tile;
+		for (int v = parent[tile]; v != -1; v = parent[v]) {
+			if (v != root && low[child] >= disc[v])
+				blocking[v] = true;
+			child = v;
+		}
+	}
+
+	/**
+	 * Walling a walkable start doesn't stop A*, which starts inside walls. It
+	 * blocks only if no neighbor can reach the target without passing by it.
+	 */
+	private void markStart(int start, int target) {
+		for (int i = 0; i < neighbors.length; i++) {
+			int source = neighbor(start, i);
+			if (source != -1 && disc[source] != 0
+					&& !separates(start, source, target))
+				return;
+		}
+		blocking[start] = true;
+	}
+
+	/**
+	 * Marks the tiles that separate all the walkable neighbors of a walled
+	 * start from the target.
+	 *
+	 * @return False if no neighbor can reach the target.
+	 */
+	private boolean markCommonSeparators(int start, int target) {
+		int sources = 0;
+		for (int i = 0; i < neighbors.length; i++) {
+			int source = neighbor(start, i);
+			if (source == -1 || disc[source] == 0)
+				continue;
+
+			sources++;
+			countSeparators(source, target);
+		}
+
+		if (sources == 0)
+			return false;
+
+		for (int i = 0; i < neighbors.length; i++) {
+			int source = neighbor(start, i);
+			if (source != -1 && disc[source] != 0)
+				for (int v = source; v != -1; v = parent[v])
+					if (separations[v] == sources)
+						blocking[v] = true;
+		}
+
+		for (int i = 0; i < neighbors.length; i++) {
+			int source = neighbor(start, i);
+			if (source != -1 && disc[source] != 0)
+				for (int v = source; v != -1; v = parent[v])
+					separations[v] = 0;
+		}
+		return true;
+	}
+
+	private void countSeparators(int source, int root) {
+		separations[source]++;
+		int child = source;
+		for (int v = parent[source]; v != -1; v = parent[v]) {
+			if (v != root && low[child] >= disc[v])
+				separations[v]++;
+			child = v;
+		}
+	}
+
+	private boolean separates(int tile, int source, int root) {
+		int child = source;
+		for (int v = parent[source]; v != -1; v = parent[v]) {
+			if (v == tile)
+				return v != root && low[child] >= disc[v];
+			child = v;
+		}
+		return false;
+	}
+
+	public MatrixGraph getGraph() {
+		return graph;
+	}
+}
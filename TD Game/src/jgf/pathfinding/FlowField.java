@@ -0,0 +1,233 @@
+package jgf.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A flow field over a MatrixGraph. A single reverse Dijkstra from a set of
+ * target tiles stores, for every tile, the cost to reach the nearest target
+ * and the next tile to step into. Any number of pieces heading to the same
+ * targets can then follow the field from whatever tile they are, without
+ * running a search of their own.
+ * <p>
+ * The field remembers the graph version it was built against and is rebuilt
+ * by {@link #update()} only when the graph has changed. Tiles that can't reach
+ * any target (including walls) point to their walkable neighbor closest to a
+ * target, if any, which mimics an A* started inside a wall.
+ */
+public class FlowField {
+	public static final float UNREACHABLE = Float.MAX_VALUE;
+	public static final int NONE = -1;
+
+	MatrixGraph graph;
+	int[][] neighbors;
+
+	private int[] targets = new int[0];
+	float[] distance;
+	int[] next;
+	IntMinHeap queue;
+	long builtVersion = -1;
+	private int[] pathBuffer;
+
+	/**
+	 * Creates a new field for the given graph.
+	 *
+	 * @param ignoreEdges If true, only the 4 orthogonal neighbors are used, as
+	 *        in {@link Graph#buildSucessorsIgnoreEdges(Node)}.
+	 */
+	public FlowField(MatrixGraph graph, boolean ignoreEdges) {
+		this.graph = graph;
+		this.neighbors = ignoreEdges ? MatrixGraph.NEIGHBORS_4
+				: MatrixGraph.NEIGHBORS_8;
+
+		int tiles = graph.getWidth() * graph.getHeight();
+		distance = new float[tiles];
+		next = new int[tiles];
+		queue = new IntMinHeap(tiles);
+	}
+
+	/**
+	 * Adds a target tile. The field will be rebuilt in the next update.
+	 */
+	public void addTarget(int x, int y) {
+		int tile = graph.toIndex(x, y);
+		if (isTarget(tile))
+			return;
+
+		targets = Arrays.copyOf(targets, targets.length + 1);
+		targets[targets.length - 1] = tile;
+		builtVersion = -1;
+	}
+
+	public boolean isTarget(int x, int y) {
+		if (x < 0 || y < 0 || x >= graph.getWidth() || y >= graph.getHeight())
+			return false;
+		return isTarget(graph.toIndex(x, y));
+	}
+
+	boolean isTarget(int tile) {
+		for (int target : targets)
+			if (target == tile)
+				return true;
+		return false;
+	}
+
+	public boolean hasTargets() {
+		return targets.length > 0;
+	}
+
+	/**
+	 * @return True if the field was built against the current graph version.
+	 */
+	public boolean isUpToDate() {
+		return builtVersion == graph.getVersion();
+	}
+
+	/**
+	 * Rebuilds the field if the graph changed since the last build.
+	 */
+	public void update() {
+		if (!isUpToDate())
+			rebuild();
+	}
+
+	/**
+	 * Recalculates the whole field, in O(tiles log tiles).
+	 */
+	public void rebuild() {
+		Arrays.fill(distance, UNREACHABLE);
+		Arrays.fill(next, NONE);
+		queue.clear();
+
+		for (int target : targets) {
+			int x = graph.indexToX(target);
+			int y = graph.indexToY(target);
+			if (graph.get(x, y) == MatrixGraph.WALL)
+				continue;
+			distance[target] = 0;
+			queue.add(target, 0);
+		}
+
+		int width = graph.getWidth();
+		int height = graph.getHeight();
+		while (!queue.isEmpty()) {
+			int tile = queue.removeMin();
+			int x = graph.indexToX(tile);
+			int y = graph.indexToY(tile);
+
+			for (int[] offset : neighbors) {
+				int px = x + offset[0];
+				int py = y + offset[1];
+				if (px < 0 || py < 0 || px >= width || py >= height)
+					continue;
+				if (graph.get(px, py) == MatrixGraph.WALL)
+					continue;
+
+				int neighbor = graph.toIndex(px, py);
+				float cost = distance[tile] + graph.getCost(px, py, x, y);
+				if (cost < distance[neighbor]) {
+					distance[neighbor] = cost;
+					next[neighbor] = tile;
+					queue.add(neighbor, cost);
+				}
+			}
+		}
+
+		for (int tile = 0; tile < next.length; tile++)
+			if (distance[tile] == UNREACHABLE)
+				next[tile] = bestNeighbor(tile);
+
+		builtVersion = graph.getVersion();
+	}
+
+	/**
+	 * Finds the walkable neighbor with the lowest cost to the targets.
+	 */
+	int bestNeighbor(int tile) {
+		int x = graph.indexToX(tile);
+		int y = graph.indexToY(tile);
+		int best = NONE;
+		float bestCost = UNREACHABLE;
+
+		for (int[] offset : neighbors) {
+			int px = x + offset[0];
+			int py = y + offset[1];
+			if (px < 0 || py < 0 || px >= graph.getWidth()
+					|| py >= graph.getHeight())
+				continue;
+
+			int neighbor = graph.toIndex(px, py);
+			if (distance[neighbor] == UNREACHABLE)
+				continue;
+
+			float cost = distance[neighbor] + graph.getCost(x, y, px, py);
+			if (cost < bestCost) {
+				bestCost = cost;
+				best = neighbor;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * @return The cost from the tile to the nearest target, or UNREACHABLE.
+	 */
+	public float getDistance(int x, int y) {
+		return distance[graph.toIndex(x, y)];
+	}
+
+	/**
+	 * @return The tile index of the next step from (x, y), or NONE if the
+	 *         tile is a target or can't reach any target.
+	 */
+	public int getNext(int x, int y) {
+		return next[graph.toIndex(x, y)];
+	}
+
+	/**
+	 * Follows the field from the given tile to a target.
+	 *
+	 * @param path Buffer that will receive the tile indexes of the path,
+	 *        including the start and the reached target.
+	 * @return The number of tiles in the path, 0 if no target can be reached,
+	 *         or minus the number of tiles if the buffer is too small (in this
+	 *         case only the first tiles are written).
+	 */
+	public int walk(int x, int y, int[] path) {
+		int start = graph.toIndex(x, y);
+		if (distance[start] == UNREACHABLE && next[start] == NONE)
+			return 0;
+
+		int length = 0;
+		for (int tile = start; tile != NONE; tile = next[tile]) {
+			if (length < path.length)
+				path[length] = tile;
+			length++;
+		}
+
+		return length <= path.length ? length : -length;
+	}
+
+	/**
+	 * Copies the next step and the cost of every tile, indexed by tile, so the
+	 * field can be followed by other threads while it changes.
+	 */
+	public void copy(int[] next, float[] distance) {
+		System.arraycopy(this.next, 0, next, 0, this.next.length);
+		System.arraycopy(this.distance, 0, distance, 0, this.distance.length);
+	}
+
+	/**
+	 * Returns a buffer owned by this field, big enough to hold any walk. It's
+	 * overwritten by anyone that uses it.
+	 */
+	public int[] getPathBuffer() {
+		if (pathBuffer == null)
+			pathBuffer = new int[next.length];
+		return pathBuffer;
+	}
+
+	public MatrixGraph getGraph() {
+		return graph;
+	}
+}
@@ -0,0 +1,221 @@
+package jgf.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An A* implementation that works directly over the tiles of a MatrixGraph.
+ * <p>
+ * The cost, estimate and parent of each tile are kept in primitive arrays that
+ * are allocated once and reused by every search. Instead of clearing them, each
+ * search increments a generation counter, and a tile is only considered
+ * visited if its stamp matches the current generation. The resulting path is
+ * written as tile indexes (see {@link MatrixGraph#toIndex(int, int)}) in a
+ * buffer given by the caller, so after the first search no garbage is created.
+ * <p>
+ * The found paths have the same cost as the ones found by {@link AStar}, which
+ * remains available for other Graph implementations and for code that needs
+ * Node lists. This class is not thread safe.
+ */
+public class GridAStar implements PathFinder {
+	private MatrixGraph graph;
+	private int width;
+	private int height;
+
+	private float[] g;
+	private int[] parent;
+	private int[] visited; // generation in which the tile was reached
+	private int generation;
+
+	private IntMinHeap open;
+	private int expanded;
+
+	private int[] pathBuffer;
+
+	public GridAStar(MatrixGraph graph) {
+		this.graph = graph;
+		this.width = graph.getWidth();
+		this.height = graph.getHeight();
+
+		int tiles = width * height;
+		g = new float[tiles];
+		parent = new int[tiles];
+		visited = new int[tiles];
+		open = new IntMinHeap(tiles);
+	}
+
+	private void nextGeneration() {
+		if (++generation == Integer.MAX_VALUE) {
+			// very unlikely, but stamps must never match an old search
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private float estimate(int x, int y, int targetX, int targetY) {
+		float dx = targetX - x;
+		float dy = targetY - y;
+		return (float) Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Searches a path between the start and target tiles.
+	 *
+	 * @param ignoreEdges If true only the 4 orthogonal neighbors are used, as
+	 *        in {@link Graph#buildSucessorsIgnoreEdges(Node)}.
+	 * @param path Buffer that will receive the tile indexes of the path, from
+	 *        the start to the target (both included).
+	 * @return The number of tiles in the path, 0 if there is no path, or minus
+	 *         the number of tiles if the path does not fit in the buffer (in
+	 *         this case the buffer is left untouched).
+	 */
+	public int search(int startx, int starty, int targetx, int targety,
+			boolean ignoreEdges, int[] path) {
+		if (!inBounds(startx, starty))
+			throw new IndexOutOfBoundsException(
+					"Start node out of the graph bounds!");
+
+		if (!inBounds(targetx, targety))
+			throw new IndexOutOfBoundsException(
+					"Target node out of the graph bounds!");
+
+		int target = graph.toIndex(targetx, targety);
+		int found = search(graph.toIndex(startx, starty), target, targetx,
+				targety, ignoreEdges ? MatrixGraph.NEIGHBORS_4
+						: MatrixGraph.NEIGHBORS_8);
+
+		if (found < 0)
+			return 0;
+
+		return buildPath(target, path);
+	}
+
+	private int search(int start, int target, int targetx, int targety,
+			int[][] neighbors) {
+		nextGeneration();
+		open.clear();
+		expanded = 0;
+
+		visited[start] = generation;
+		g[start] = 0;
+		parent[start] = -1;
+		float h = estimate(graph.indexToX(start), graph.indexToY(start),
+				targetx, targety);
+		open.add(start, h, h);
+
+		while (!open.isEmpty()) {
+			int node = open.removeMin();
+			expanded++;
+
+			if (node == target)
+				return node;
+
+			int x = graph.indexToX(node);
+			int y = graph.indexToY(node);
+			for (int i = 0; i < neighbors.length; i++) {
+				int px = x + neighbors[i][0];
+				int py = y + neighbors[i][1];
+
+				if (px < 0 || py < 0 || px >= width || py >= height)
+					continue;
+				if (graph.get(px, py) == MatrixGraph.WALL)
+					continue;
+
+				int sucessor = graph.toIndex(px, py);
+				float cost = g[node] + graph.getCost(x, y, px, py);
+
+				// a better path also reopens an already expanded node
+				if (visited[sucessor] == generation && g[sucessor] <= cost)
+					continue;
+				visited[sucessor] = generation;
+
+				g[sucessor] = cost;
+				parent[sucessor] = node;
+				h = estimate(px, py, targetx, targety);
+				open.add(sucessor, cost + h, h);
+			}
+		}
+
+		return -1;
+	}
+
+	private int buildPath(int target, int[] path) {
+		int length = 0;
+		for (int node = target; node != -1; node = parent[node])
+			length++;
+
+		if (length > path.length)
+			return -length;
+
+		int i = length;
+		for (int node = target; node != -1; node = parent[node])
+			path[--i] = node;
+
+		return length;
+	}
+
+	private boolean inBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Returns a buffer owned by this engine, big enough to hold any path of
+	 * the graph. It's overwritten by anyone that uses it, so its contents must
+	 * be consumed before the next search.
+	 */
+	public int[] getPathBuffer() {
+		if (pathBuffer == null)
+			pathBuffer = new int[width * height];
+		return pathBuffer;
+	}
+
+	/**
+	 * @return The number of nodes expanded by the last search.
+	 */
+	public int getExpandedNodes() {
+		return expanded;
+	}
+
+	/**
+	 * @return The cost to reach the given tile in the last search. Only
+	 *         meaningful for the tiles of the last found path.
+	 */
+	public float getPathCost(int targetx, int targety) {
+		return g[graph.toIndex(targetx, targety)];
+	}
+
+	public MatrixGraph getGraph() {
+		return graph;
+	}
+
+	public List<Node> search(int startx, int starty, int targetx, int targety,
+			boolean ignoreEdges) {
+		int[] buffer = getPathBuffer();
+		int length = search(startx, starty, targetx, targety, ignoreEdges,
+				buffer);
+		return toNodes(graph, buffer, length, g);
+	}
+
+	public List<Node> search(int startx, int starty, int targetx, int targety) {
+		return search(startx, starty, targetx, targety, false);
+	}
+
+	/**
+	 * Converts a path of tile indexes in a list of linked Nodes, as returned by
+	 * {@link AStar}.
+	 */
+	static List<Node> toNodes(MatrixGraph graph, int[] tiles, int length,
+			float[] costs) {
+		List<Node> path = new ArrayList<Node>(length);
+		Node previous = null;
+		for (int i = 0; i < length; i++) {
+			float cost = costs == null ? 0 : costs[tiles[i]];
+			Node node = new Node(graph.indexToX(tiles[i]), graph
+					.indexToY(tiles[i]), previous, cost);
+			path.add(node);
+			previous = node;
+		}
+		return path;
+	}
+}
@@ -0,0 +1,259 @@
+package jgf.pathfinding;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A Node Holder implementation based on an indexed binary heap.
+ * <p>
+ * Nodes are kept ordered by their f value, so removing the node with the
+ * minimum f takes O(log n) instead of a full scan. Each tile of the graph has a
+ * slot in a position table, making contains() and find() O(1) and allowing a
+ * node to be updated in place (decrease-key) when a cheaper path to its tile
+ * is found.
+ * <p>
+ * Since the position table has one entry per tile, a holder should be reused
+ * among searches instead of being created per expansion. Clearing it only
+ * touches the nodes that are still inside.
+ */
+public class HeapNodeHolder implements NodeHolder
+{
+    private int width;
+    private int height;
+
+    private Node[] heap;
+    private int size;
+
+    /** Heap position + 1 of each tile. Zero means the tile is not here. */
+    private int[] positions;
+
+    /**
+     * Creates a new holder for a graph with the given dimensions.
+     *
+     * @param width Number of columns of the graph.
+     * @param height Number of lines of the graph.
+     */
+    public HeapNodeHolder(int width, int height)
+    {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("Invalid graph dimensions!");
+
+        this.width = width;
+        this.height = height;
+        this.positions = new int[width * height];
+        this.heap = new Node[Math.min(width * height, 64)];
+    }
+
+    private int indexOf(Node node)
+    {
+        if (node.getX() < 0 || node.getX() >= width || node.getY() < 0
+                || node.getY() >= height)
+            throw new IndexOutOfBoundsException("Node out of the holder bounds: "
+                    + node);
+
+        return node.getX() * height + node.getY();
+    }
+
+    /**
+     * Adds a node to the holder. If a node for the same tile is already inside,
+     * it's replaced and the heap is fixed from its position, so this method
+     * also works as a decrease-key operation.
+     */
+    public void add(Node node)
+    {
+        int index = indexOf(node);
+        int pos = positions[index] - 1;
+
+        if (pos >= 0)
+        {
+            heap[pos] = node;
+            if (!siftUp(pos))
+                siftDown(pos);
+            return;
+        }
+
+        if (size == heap.length)
+        {
+            Node[] newHeap = new Node[Math.min(heap.length * 2, width * height)];
+            System.arraycopy(heap, 0, newHeap, 0, size);
+            heap = newHeap;
+        }
+
+        heap[size] = node;
+        positions[index] = size + 1;
+        siftUp(size++);
+    }
+
+    /**
+     * Replaces the node of the same tile by the given one, which must have a
+     * lower or equal f value.
+     *
+     * @param node The node with the updated cost.
+     * @see #add(Node)
+     */
+    public void decreaseKey(Node node)
+    {
+        int pos = positions[indexOf(node)] - 1;
+        if (pos < 0)
+            throw new IllegalArgumentException("Node is not in the holder: "
+                    + node);
+
+        heap[pos] = node;
+        siftUp(pos);
+    }
+
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            positions[indexOf(heap[i])] = 0;
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    public boolean contains(Node node)
+    {
+        return positions[indexOf(node)] != 0;
+    }
+
+    public Node find(Node node)
+    {
+        int pos = positions[indexOf(node)] - 1;
+        return pos < 0 ? null : heap[pos];
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void remove(Node node)
+    {
+        int pos = positions[indexOf(node)] - 1;
+        if (pos >= 0)
+            removeAt(pos);
+    }
+
+    public Node removeMinF()
+    {
+        if (size == 0)
+            return null;
+
+        Node min = heap[0];
+        removeAt(0);
+        return min;
+    }
+
+    /**
+     * @return The number of nodes inside this holder.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private void removeAt(int pos)
+    {
+        positions[indexOf(heap[pos])] = 0;
+
+        size--;
+        if (pos == size)
+        {
+            heap[size] = null;
+            return;
+        }
+
+        heap[pos] = heap[size];
+        heap[size] = null;
+        positions[indexOf(heap[pos])] = pos + 1;
+
+        if (!siftUp(pos))
+            siftDown(pos);
+    }
+
+    private boolean less(Node a, Node b)
+    {
+        if (a.getF() != b.getF())
+            return a.getF() < b.getF();
+
+        // Ties are broken in favor of the node closer to the target
+        return a.getH() < b.getH();
+    }
+
+    private boolean siftUp(int pos)
+    {
+        Node node = heap[pos];
+        int start = pos;
+
+        while (pos > 0)
+        {
+            int parent = (pos - 1) >>> 1;
+            if (!less(node, heap[parent]))
+                break;
+
+            place(heap[parent], pos);
+            pos = parent;
+        }
+
+        place(node, pos);
+        return pos != start;
+    }
+
+    private void siftDown(int pos)
+    {
+        Node node = heap[pos];
+        int half = size >>> 1;
+
+        while (pos < half)
+        {
+            int child = (pos << 1) + 1;
+            int right = child + 1;
+            if (right < size && less(heap[right], heap[child]))
+                child = right;
+
+            if (!less(heap[child], node))
+                break;
+
+            place(heap[child], pos);
+            pos = child;
+        }
+
+        place(node, pos);
+    }
+
+    private void place(Node node, int pos)
+    {
+        heap[pos] = node;
+        positions[indexOf(node)] = pos + 1;
+    }
+
+    /**
+     * Iterates over the nodes in heap order (not sorted). The iterator does not
+     * support removal.
+     */
+    public Iterator<Node> iterator()
+    {
+        return new Iterator<Node>()
+        {
+            private int next = 0;
+
+            public boolean hasNext()
+            {
+                return next < size;
+            }
+
+            public Node next()
+            {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return heap[next++];
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,781 @@
+package jgf.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical path finding (HPA*) for large MatrixGraphs.
+ * <p>
+ * The grid is split in square clusters. Along the border between two
+ * neighbor clusters, each run of walkable tile pairs becomes one entrance (two
+ * for wide runs, one at each end), and the tiles of the entrances are the
+ * nodes of an abstract graph. Inside a cluster, the cost between every pair
+ * of its entrance tiles is precomputed with a search restricted to the
+ * cluster. A query links the start and the target to the entrances of their
+ * clusters, searches the small abstract graph and then refines each abstract
+ * edge with a search restricted to one cluster, so no search ever runs over
+ * the whole map.
+ * <p>
+ * The found paths are not always optimal, usually within a few percent of
+ * the cost found by {@link AStar}. With 4 neighbors every path is found. With
+ * 8 neighbors two clusters may only touch diagonally, so when the abstract
+ * search fails the query falls back to a search over the whole graph.
+ * <p>
+ * The finder listens to the graph: a changed tile only marks its cluster, and
+ * the borders it lies on, to be rebuilt in the next query. A neighbor cluster
+ * is rebuilt only if the entrances of a shared border changed. This class is
+ * not thread safe.
+ */
+public class HierarchicalPathFinder implements PathFinder, MatrixGraphListener {
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+	private static final float UNREACHABLE = Float.MAX_VALUE;
+	private static final int NONE = -1;
+
+	// runs of this width or wider get an entrance at each end
+	private static final int MAX_ENTRANCE_WIDTH = 6;
+
+	private MatrixGraph graph;
+	private boolean ignoreEdges;
+	private int[][] neighbors;
+	private int width;
+	private int height;
+
+	private int clusterSize;
+	private int clustersX;
+	private int clustersY;
+	private Cluster[] clusters;
+
+	// transition pairs (own tile, neighbor tile) between each cluster and the
+	// one at its right (vertical) or below it (horizontal)
+	private int[][] verticalBorders;
+	private int[][] horizontalBorders;
+	private boolean[] verticalDirty;
+	private boolean[] horizontalDirty;
+	private boolean dirty = true;
+	private int rebuiltClusters;
+
+	private int[] entranceIndex; // position of the tile in its cluster
+
+	// search state, shared by the cluster and abstract searches
+	private float[] g;
+	private int[] parent;
+	private int[] visited;
+	private int generation;
+	private IntMinHeap open;
+	private int expanded;
+
+	// edges from the start to the entrances, through the via tile
+	private int startEdges;
+	private int[] startTiles = new int[16];
+	private float[] startCosts = new float[16];
+	private int[] startVias = new int[16];
+	private float[] targetCosts = new float[0];
+
+	private int[] waypoints = new int[16];
+	private int[] segment;
+	private int[] route;
+	private int[] routePosition;
+	private int[] routeStamp;
+	private int routeGeneration;
+	private float lastCost;
+
+	private int[] pathBuffer;
+
+	private static class Cluster {
+		int x0, y0, x1, y1; // x1 and y1 are exclusive
+		int[] entrances = new int[0];
+		float[] costs = new float[0]; // entrances x entrances
+		int[] partnerStart = new int[1];
+		int[] partners = new int[0];
+		boolean dirty = true;
+
+		boolean contains(int x, int y) {
+			return x >= x0 && y >= y0 && x < x1 && y < y1;
+		}
+	}
+
+	public HierarchicalPathFinder(MatrixGraph graph, boolean ignoreEdges) {
+		this(graph, ignoreEdges, DEFAULT_CLUSTER_SIZE);
+	}
+
+	/**
+	 * @param ignoreEdges If true, only the 4 orthogonal neighbors are used, as
+	 *        in {@link Graph#buildSucessorsIgnoreEdges(Node)}.
+	 * @param clusterSize Width and height of the clusters, in tiles.
+	 */
+	public HierarchicalPathFinder(MatrixGraph graph, boolean ignoreEdges,
+			int clusterSize) {
+		if (clusterSize < 2)
+			throw new IllegalArgumentException("Cluster size must be at least 2!");
+
+		this.graph = graph;
+		this.ignoreEdges = ignoreEdges;
+		this.neighbors = ignoreEdges ? MatrixGraph.NEIGHBORS_4
+				: MatrixGraph.NEIGHBORS_8;
+		this.width = graph.getWidth();
+		this.height = graph.getHeight();
+		this.clusterSize = clusterSize;
+
+		clustersX = (width + clusterSize - 1) / clusterSize;
+		clustersY = (height + clusterSize - 1) / clusterSize;
+		clusters = new Cluster[clustersX * clustersY];
+		for (int cx = 0; cx < clustersX; cx++)
+			for (int cy = 0; cy < clustersY; cy++) {
+				Cluster cluster = new Cluster();
+				cluster.x0 = cx * clusterSize;
+				cluster.y0 = cy * clusterSize;
+				cluster.x1 = Math.min(width, cluster.x0 + clusterSize);
+				cluster.y1 = Math.min(height, cluster.y0 + clusterSize);
+				clusters[clusterIndex(cx, cy)] = cluster;
+			}
+
+		verticalBorders = new int[clusters.length][0];
+		horizontalBorders = new int[clusters.length][0];
+		verticalDirty = new boolean[clusters.length];
+		horizontalDirty = new boolean[clusters.length];
+		Arrays.fill(verticalDirty, true);
+		Arrays.fill(horizontalDirty, true);
+
+		int tiles = width * height;
+		entranceIndex = new int[tiles];
+		Arrays.fill(entranceIndex, NONE);
+		g = new float[tiles];
+		parent = new int[tiles];
+		visited = new int[tiles];
+		open = new IntMinHeap(tiles);
+		segment = new int[clusterSize * clusterSize];
+
+		graph.addListener(this);
+	}
+
+	/**
+	 * Stops listening to the graph. The finder should not be used afterwards.
+	 */
+	public void dispose() {
+		graph.removeListener(this);
+	}
+
+	private int clusterIndex(int cx, int cy) {
+		return cx * clustersY + cy;
+	}
+
+	private int clusterOf(int tile) {
+		return clusterIndex(graph.indexToX(tile) / clusterSize, graph
+				.indexToY(tile)
+				/ clusterSize);
+	}
+
+	public void tileChanged(MatrixGraph graph, int x, int y, int oldValue) {
+		int cx = x / clusterSize;
+		int cy = y / clusterSize;
+		Cluster cluster = clusters[clusterIndex(cx, cy)];
+		cluster.dirty = true;
+		dirty = true;
+
+		if (x == cluster.x0 && cx > 0)
+			verticalDirty[clusterIndex(cx - 1, cy)] = true;
+		if (x == cluster.x1 - 1 && cx < clustersX - 1)
+			verticalDirty[clusterIndex(cx, cy)] = true;
+		if (y == cluster.y0 && cy > 0)
+			horizontalDirty[clusterIndex(cx, cy - 1)] = true;
+		if (y == cluster.y1 - 1 && cy < clustersY - 1)
+			horizontalDirty[clusterIndex(cx, cy)] = true;
+	}
+
+	/**
+	 * Rebuilds the borders and clusters changed since the last update. Called
+	 * by every search, but can be called before to move the work elsewhere.
+	 */
+	public void update() {
+		rebuiltClusters = 0;
+		if (!dirty)
+			return;
+
+		for (int cx = 0; cx < clustersX; cx++)
+			for (int cy = 0; cy < clustersY; cy++) {
+				int index = clusterIndex(cx, cy);
+				if (verticalDirty[index] && cx < clustersX - 1)
+					scanBorder(index, clusterIndex(cx + 1, cy), true);
+				if (horizontalDirty[index] && cy < clustersY - 1)
+					scanBorder(index, clusterIndex(cx, cy + 1), false);
+				verticalDirty[index] = false;
+				horizontalDirty[index] = false;
+			}
+
+		for (int i = 0; i < clusters.length; i++)
+			if (clusters[i].dirty) {
+				rebuildCluster(i);
+				rebuiltClusters++;
+			}
+
+		dirty = false;
+	}
+
+	/**
+	 * Finds the transitions between a cluster and its right or bottom
+	 * neighbor. If they changed, both clusters are rebuilt.
+	 */
+	private void scanBorder(int index, int neighborIndex, boolean vertical) {
+		Cluster cluster = clusters[index];
+		int length = vertical ? cluster.y1 - cluster.y0 : cluster.x1
+				- cluster.x0;
+		int[] pairs = new int[4 * ((length + 1) / 2)];
+		int count = 0;
+
+		int run = 0;
+		for (int i = 0; i <= length; i++) {
+			int ax = vertical ? cluster.x1 - 1 : cluster.x0 + i;
+			int ay = vertical ? cluster.y0 + i : cluster.y1 - 1;
+			int bx = vertical ? ax + 1 : ax;
+			int by = vertical ? ay : ay + 1;
+
+			if (i < length && !graph.isWall(ax, ay) && !graph.isWall(bx, by)) {
+				run++;
+				continue;
+			}
+			if (run == 0)
+				continue;
+
+			int first = i - run;
+			int last = i - 1;
+			if (run < MAX_ENTRANCE_WIDTH)
+				count = addTransition(pairs, count, cluster, vertical,
+						first + run / 2);
+			else {
+				count = addTransition(pairs, count, cluster, vertical, first);
+				count = addTransition(pairs, count, cluster, vertical, last);
+			}
+			run = 0;
+		}
+
+		int[] border = Arrays.copyOf(pairs, count);
+		int[][] borders = vertical ? verticalBorders : horizontalBorders;
+		if (Arrays.equals(border, borders[index]))
+			return;
+
+		borders[index] = border;
+		cluster.dirty = true;
+		clusters[neighborIndex].dirty = true;
+	}
+
+	private int addTransition(int[] pairs, int count, Cluster cluster,
+			boolean vertical, int i) {
+		int ax = vertical ? cluster.x1 - 1 : cluster.x0 + i;
+		int ay = vertical ? cluster.y0 + i : cluster.y1 - 1;
+		pairs[count++] = graph.toIndex(ax, ay);
+		pairs[count++] = vertical ? graph.toIndex(ax + 1, ay) : graph.toIndex(
+				ax, ay + 1);
+		return count;
+	}
+
+	/**
+	 * Collects the entrances of the cluster from its four borders and
+	 * recalculates the costs between them.
+	 */
+	private void rebuildCluster(int index) {
+		Cluster cluster = clusters[index];
+		for (int tile : cluster.entrances)
+			entranceIndex[tile] = NONE;
+
+		int cx = index / clustersY;
+		int cy = index % clustersY;
+		int[][] borders = {
+				verticalBorders[index],
+				horizontalBorders[index],
+				cx > 0 ? verticalBorders[clusterIndex(cx - 1, cy)] : null,
+				cy > 0 ? horizontalBorders[clusterIndex(cx, cy - 1)] : null };
+
+		// own tiles are the first of the pair in the right and bottom
+		// borders, and the second in the left and top ones
+		int transitions = 0;
+		for (int[] border : borders)
+			if (border != null)
+				transitions += border.length / 2;
+
+		int[] entrances = new int[transitions];
+		int count = 0;
+		int[] partnerCount = new int[transitions];
+		for (int b = 0; b < borders.length; b++) {
+			int[] border = borders[b];
+			if (border == null)
+				continue;
+			int own = b < 2 ? 0 : 1;
+			for (int i = 0; i < border.length; i += 2) {
+				int tile = border[i + own];
+				if (entranceIndex[tile] == NONE) {
+					entranceIndex[tile] = count;
+					entrances[count++] = tile;
+				}
+				partnerCount[entranceIndex[tile]]++;
+			}
+		}
+
+		cluster.entrances = Arrays.copyOf(entrances, count);
+		cluster.partnerStart = new int[count + 1];
+		for (int i = 0; i < count; i++)
+			cluster.partnerStart[i + 1] = cluster.partnerStart[i]
+					+ partnerCount[i];
+		cluster.partners = new int[cluster.partnerStart[count]];
+
+		Arrays.fill(partnerCount, 0);
+		for (int b = 0; b < borders.length; b++) {
+			int[] border = borders[b];
+			if (border == null)
+				continue;
+			int own = b < 2 ? 0 : 1;
+			for (int i = 0; i < border.length; i += 2) {
+				int entrance = entranceIndex[border[i + own]];
+				cluster.partners[cluster.partnerStart[entrance]
+						+ partnerCount[entrance]++] = border[i + 1 - own];
+			}
+		}
+
+		cluster.costs = new float[count * count];
+		for (int i = 0; i < count; i++) {
+			searchCluster(cluster, cluster.entrances[i], NONE);
+			for (int j = 0; j < count; j++)
+				cluster.costs[i * count + j] = costTo(cluster.entrances[j]);
+		}
+
+		cluster.dirty = false;
+	}
+
+	private void nextGeneration() {
+		if (++generation == Integer.MAX_VALUE) {
+			// very unlikely, but stamps must never match an old search
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private float costTo(int tile) {
+		return visited[tile] == generation ? g[tile] : UNREACHABLE;
+	}
+
+	private float estimate(int from, int to) {
+		float dx = graph.indexToX(to) - graph.indexToX(from);
+		float dy = graph.indexToY(to) - graph.indexToY(from);
+		return (float) Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Searches inside the cluster from the source tile, which may be a wall.
+	 * With a target it's an A* that stops there, otherwise a Dijkstra that
+	 * reaches the whole cluster.
+	 *
+	 * @return True if the target was reached.
+	 */
+	private boolean searchCluster(Cluster cluster, int source, int target) {
+		nextGeneration();
+		open.clear();
+
+		visited[source] = generation;
+		g[source] = 0;
+		parent[source] = NONE;
+		open.add(source, 0);
+
+		while (!open.isEmpty()) {
+			int node = open.removeMin();
+			if (node == target)
+				return true;
+
+			int x = graph.indexToX(node);
+			int y = graph.indexToY(node);
+			for (int[] offset : neighbors) {
+				int px = x + offset[0];
+				int py = y + offset[1];
+				if (!cluster.contains(px, py) || graph.isWall(px, py))
+					continue;
+
+				int sucessor = graph.toIndex(px, py);
+				float cost = g[node] + graph.getCost(x, y, px, py);
+				if (visited[sucessor] == generation && g[sucessor] <= cost)
+					continue;
+				visited[sucessor] = generation;
+
+				g[sucessor] = cost;
+				parent[sucessor] = node;
+				float h = target == NONE ? 0 : estimate(sucessor, target);
+				open.add(sucessor, cost + h, h);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Searches a path between the start and target tiles.
+	 *
+	 * @param ignoreEdges If true only the 4 orthogonal neighbors are used. It
+	 *        must be the one the finder was built with, as the abstract graph
+	 *        is built for it.
+	 * @param path Buffer that will receive the tile indexes of the path, from
+	 *        the start to the target (both included).
+	 * @return The number of tiles in the path, 0 if there is no path, or minus
+	 *         the number of tiles if the path does not fit in the buffer (in
+	 *         this case the buffer is left untouched).
+	 * @see GridAStar#search(int, int, int, int, boolean, int[])
+	 */
+	public int search(int startx, int starty, int targetx, int targety,
+			boolean ignoreEdges, int[] path) {
+		if (ignoreEdges != this.ignoreEdges)
+			throw new IllegalArgumentException(
+					"The finder was built for the other neighborhood!");
+
+		if (!inBounds(startx, starty))
+			throw new IndexOutOfBoundsException(
+					"Start node out of the graph bounds!");
+
+		if (!inBounds(targetx, targety))
+			throw new IndexOutOfBoundsException(
+					"Target node out of the graph bounds!");
+
+		update();
+		lastCost = 0;
+		expanded = 0;
+
+		int start = graph.toIndex(startx, starty);
+		int target = graph.toIndex(targetx, targety);
+		if (start == target) {
+			if (path.length < 1)
+				return -1;
+			path[0] = start;
+			return 1;
+		}
+		if (graph.isWall(targetx, targety))
+			return 0;
+
+		int length;
+		if (searchAbstract(start, target))
+			length = refine(start, target);
+		else if (!ignoreEdges)
+			length = searchFlat(startx, starty, targetx, targety);
+		else
+			return 0;
+
+		if (length == 0)
+			return 0;
+		if (length > path.length)
+			return -length;
+		System.arraycopy(route, 0, path, 0, length);
+		return length;
+	}
+
+	/**
+	 * Links the start and the target to the entrances of their clusters and
+	 * runs A* over the abstract graph.
+	 */
+	private boolean searchAbstract(int start, int target) {
+		Cluster targetCluster = clusters[clusterOf(target)];
+		searchCluster(targetCluster, target, NONE);
+		targetCosts = costsTo(targetCluster, targetCosts);
+
+		linkStart(start, target);
+
+		nextGeneration();
+		open.clear();
+		visited[start] = generation;
+		g[start] = 0;
+		parent[start] = NONE;
+		float h = estimate(start, target);
+		open.add(start, h, h);
+
+		while (!open.isEmpty()) {
+			int node = open.removeMin();
+			expanded++;
+			if (node == target)
+				return true;
+
+			if (node == start)
+				for (int i = 0; i < startEdges; i++)
+					relax(node, startTiles[i], startCosts[i], target);
+
+			int entrance = entranceIndex[node];
+			if (entrance == NONE)
+				continue;
+
+			Cluster cluster = clusters[clusterOf(node)];
+			int count = cluster.entrances.length;
+			for (int i = 0; i < count; i++)
+				if (i != entrance)
+					relax(node, cluster.entrances[i], cluster.costs[entrance
+							* count + i], target);
+
+			for (int i = cluster.partnerStart[entrance]; i < cluster.partnerStart[entrance + 1]; i++) {
+				int partner = cluster.partners[i];
+				relax(node, partner, graph.getCost(graph.indexToX(node), graph
+						.indexToY(node), graph.indexToX(partner), graph
+						.indexToY(partner)), target);
+			}
+
+			if (cluster == targetCluster)
+				relax(node, target, targetCosts[entrance], target);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds the edges from the start to the entrances of its cluster, and to
+	 * the target if it's in the same cluster. As in A*, a walled start leaves
+	 * through its walkable neighbors, which may be in other clusters, so each
+	 * of them is linked to the entrances of its own cluster.
+	 */
+	private void linkStart(int start, int target) {
+		startEdges = 0;
+		int x = graph.indexToX(start);
+		int y = graph.indexToY(start);
+		if (!graph.isWall(x, y)) {
+			linkVia(start, 0, target);
+			return;
+		}
+
+		for (int[] offset : neighbors) {
+			int px = x + offset[0];
+			int py = y + offset[1];
+			if (inBounds(px, py) && !graph.isWall(px, py))
+				linkVia(graph.toIndex(px, py), graph.getCost(x, y, px, py),
+						target);
+		}
+	}
+
+	private void linkVia(int via, float viaCost, int target) {
+		Cluster cluster = clusters[clusterOf(via)];
+		searchCluster(cluster, via, NONE);
+
+		for (int entrance : cluster.entrances)
+			addStartEdge(entrance, viaCost + costTo(entrance), via);
+		if (cluster == clusters[clusterOf(target)])
+			addStartEdge(target, viaCost + costTo(target), via);
+	}
+
+	private void addStartEdge(int tile, float cost, int via) {
+		if (cost >= UNREACHABLE)
+			return;
+
+		if (startEdges == startTiles.length) {
+			startTiles = Arrays.copyOf(startTiles, startEdges * 2);
+			startCosts = Arrays.copyOf(startCosts, startEdges * 2);
+			startVias = Arrays.copyOf(startVias, startEdges * 2);
+		}
+		startTiles[startEdges] = tile;
+		startCosts[startEdges] = cost;
+		startVias[startEdges++] = via;
+	}
+
+	/**
+	 * @return The tile through which the cheapest start edge reaches the
+	 *         given tile.
+	 */
+	private int startVia(int tile) {
+		int via = NONE;
+		float best = UNREACHABLE;
+		for (int i = 0; i < startEdges; i++)
+			if (startTiles[i] == tile && startCosts[i] < best) {
+				best = startCosts[i];
+				via = startVias[i];
+			}
+		return via;
+	}
+
+	private float[] costsTo(Cluster cluster, float[] costs) {
+		int count = cluster.entrances.length;
+		if (costs.length < count)
+			costs = new float[count];
+		for (int i = 0; i < count; i++)
+			costs[i] = costTo(cluster.entrances[i]);
+		return costs;
+	}
+
+	private void relax(int node, int sucessor, float edge, int target) {
+		if (edge == UNREACHABLE)
+			return;
+
+		float cost = g[node] + edge;
+		if (visited[sucessor] == generation && g[sucessor] <= cost)
+			return;
+		visited[sucessor] = generation;
+
+		g[sucessor] = cost;
+		parent[sucessor] = node;
+		float h = estimate(sucessor, target);
+		open.add(sucessor, cost + h, h);
+	}
+
+	/**
+	 * Turns the abstract path into tiles, searching each intra cluster edge
+	 * inside its cluster. Loops formed by consecutive edges are cut.
+	 *
+	 * @return The number of tiles in the route.
+	 */
+	private int refine(int start, int target) {
+		int count = 0;
+		for (int node = target; node != NONE; node = parent[node]) {
+			if (count == waypoints.length)
+				waypoints = Arrays.copyOf(waypoints, count * 2);
+			waypoints[count++] = node;
+		}
+
+		prepareRoute();
+		int length = appendTile(0, start);
+
+		for (int i = count - 1; i > 0; i--) {
+			int from = waypoints[i];
+			int to = waypoints[i - 1];
+
+			// a start that is also an entrance may have used its own edges
+			int via = from == start ? startVia(to) : NONE;
+			if (via != NONE) {
+				if (via != start)
+					length = appendTile(length, via);
+				length = appendSegment(length, via, to);
+			} else if (clusterOf(from) != clusterOf(to))
+				length = appendTile(length, to);
+			else
+				length = appendSegment(length, from, to);
+		}
+
+		for (int i = 1; i < length; i++)
+			lastCost += graph.getCost(graph.indexToX(route[i - 1]), graph
+					.indexToY(route[i - 1]), graph.indexToX(route[i]), graph
+					.indexToY(route[i]));
+		return length;
+	}
+
+	/**
+	 * Appends the path between two tiles of the same cluster, searched inside
+	 * it. The first tile is not appended.
+	 */
+	private int appendSegment(int length, int from, int to) {
+		if (from == to)
+			return length;
+
+		searchCluster(clusters[clusterOf(from)], from, to);
+		int steps = 0;
+		for (int tile = to; tile != from; tile = parent[tile])
+			segment[steps++] = tile;
+		while (steps > 0)
+			length = appendTile(length, segment[--steps]);
+		return length;
+	}
+
+	private void prepareRoute() {
+		if (route == null) {
+			route = new int[width * height];
+			routePosition = new int[width * height];
+			routeStamp = new int[width * height];
+		}
+		if (++routeGeneration == Integer.MAX_VALUE) {
+			Arrays.fill(routeStamp, 0);
+			routeGeneration = 1;
+		}
+	}
+
+	private int appendTile(int length, int tile) {
+		int position = routePosition[tile];
+		if (routeStamp[tile] == routeGeneration && position < length
+				&& route[position] == tile)
+			return position + 1; // cuts the loop
+
+		routeStamp[tile] = routeGeneration;
+		routePosition[tile] = length;
+		route[length] = tile;
+		return length + 1;
+	}
+
+	/**
+	 * Searches the whole graph, for the 8 neighbors paths that cross between
+	 * clusters only diagonally.
+	 */
+	private int searchFlat(int startx, int starty, int targetx, int targety) {
+		prepareRoute();
+		JumpPointSearch search = graph.getJumpPointSearch();
+		int length = search.search(startx, starty, targetx, targety, false,
+				route);
+		expanded += search.getExpandedNodes();
+		if (length > 0)
+			lastCost = search.getPathCost(targetx, targety);
+		return length;
+	}
+
+	private boolean inBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Returns a buffer owned by this finder, big enough to hold any path of
+	 * the graph. It's overwritten by anyone that uses it, so its contents must
+	 * be consumed before the next search.
+	 */
+	public int[] getPathBuffer() {
+		if (pathBuffer == null)
+			pathBuffer = new int[width * height];
+		return pathBuffer;
+	}
+
+	/**
+	 * @return The cost of the path found by the last search.
+	 */
+	public float getPathCost() {
+		return lastCost;
+	}
+
+	/**
+	 * @return The number of abstract nodes expanded by the last search.
+	 */
+	public int getExpandedNodes() {
+		return expanded;
+	}
+
+	/**
+	 * @return The number of clusters rebuilt by the last update.
+	 */
+	public int getRebuiltClusters() {
+		return rebuiltClusters;
+	}
+
+	/**
+	 * @return The number of nodes in the abstract graph.
+	 */
+	public int getAbstractNodes() {
+		update();
+		int count = 0;
+		for (Cluster cluster : clusters)
+			count += cluster.entrances.length;
+		return count;
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	public boolean isIgnoreEdges() {
+		return ignoreEdges;
+	}
+
+	public MatrixGraph getGraph() {
+		return graph;
+	}
+
+	public List<Node> search(int startx, int starty, int targetx, int targety) {
+		int[] buffer = getPathBuffer();
+		int length = search(startx, starty, targetx, targety, ignoreEdges,
+				buffer);
+
+		List<Node> path = new ArrayList<Node>(Math.max(length, 0));
+		Node previous = null;
+		float cost = 0;
+		for (int i = 0; i < length; i++) {
+			int x = graph.indexToX(buffer[i]);
+			int y = graph.indexToY(buffer[i]);
+			if (previous != null)
+				cost += graph.getCost(previous.getX(), previous.getY(), x, y);
+			Node node = new Node(x, y, previous, cost);
+			path.add(node);
+			previous = node;
+		}
+		return path;
+	}
+}
@@ -0,0 +1,251 @@
+package jgf.pathfinding;
+
+/**
+ * A flow field that repairs itself when tiles of its graph change, instead of
+ * being rebuilt from scratch.
+ * <p>
+ * The field keeps the state of a Lifelong Planning A* search without
+ * heuristic (every tile is a goal): besides the cost g of each tile it keeps
+ * its one step lookahead cost rhs, the cheapest g of a neighbor plus the cost
+ * to step into it. Changed tiles are collected through a
+ * {@link MatrixGraphListener}, and in the next {@link #update()} only the
+ * tiles whose g and rhs become inconsistent are processed. Walling or freeing
+ * one tile costs work proportional to the part of the shortest path tree that
+ * actually changed, not to the map size.
+ */
+public class IncrementalFlowField extends FlowField implements
+		MatrixGraphListener {
+	private float[] rhs;
+
+	private int[] changed;
+	private int changedCount;
+	private boolean[] isChanged;
+
+	private int[] dirty; // tiles whose next step must be recalculated
+	private int dirtyCount;
+	private boolean[] isDirty;
+
+	private int processed;
+
+	private int[] changedSteps; // tiles whose next step changed
+	private int changedStepCount;
+	private boolean[] isChangedStep;
+
+	public IncrementalFlowField(MatrixGraph graph, boolean ignoreEdges) {
+		super(graph, ignoreEdges);
+
+		int tiles = distance.length;
+		rhs = new float[tiles];
+		changed = new int[tiles];
+		isChanged = new boolean[tiles];
+		dirty = new int[tiles];
+		isDirty = new boolean[tiles];
+		changedSteps = new int[tiles];
+		isChangedStep = new boolean[tiles];
+
+		graph.addListener(this);
+	}
+
+	/**
+	 * Stops listening to the graph. The field should not be used afterwards.
+	 */
+	public void dispose() {
+		graph.removeListener(this);
+	}
+
+	public void tileChanged(MatrixGraph graph, int x, int y, int oldValue) {
+		int tile = graph.toIndex(x, y);
+		if (isChanged[tile])
+			return;
+
+		isChanged[tile] = true;
+		changed[changedCount++] = tile;
+	}
+
+	/**
+	 * Brings the field up to date. The first call (and any call after a target
+	 * is added) builds the whole field; the next ones only repair the tiles
+	 * affected by the changes since the last update.
+	 */
+	@Override
+	public void update() {
+		if (builtVersion == -1)
+			rebuild();
+		else if (!isUpToDate())
+			repair();
+	}
+
+	@Override
+	public void rebuild() {
+		super.rebuild();
+		System.arraycopy(distance, 0, rhs, 0, rhs.length);
+
+		for (int i = 0; i < changedCount; i++)
+			isChanged[changed[i]] = false;
+		changedCount = 0;
+		processed = next.length;
+		for (int i = 0; i < changedStepCount; i++)
+			isChangedStep[changedSteps[i]] = false;
+		changedStepCount = -1;
+	}
+
+	private void repair() {
+		processed = 0;
+		for (int i = 0; i < changedStepCount; i++)
+			isChangedStep[changedSteps[i]] = false;
+		changedStepCount = 0;
+
+		for (int i = 0; i < changedCount; i++) {
+			int tile = changed[i];
+			isChanged[tile] = false;
+
+			updateTile(tile);
+			markDirty(tile);
+
+			int x = graph.indexToX(tile);
+			int y = graph.indexToY(tile);
+			for (int[] offset : neighbors) {
+				int px = x + offset[0];
+				int py = y + offset[1];
+				if (inBounds(px, py))
+					updateTile(graph.toIndex(px, py));
+			}
+		}
+		changedCount = 0;
+
+		computeShortestPaths();
+		updateNextSteps();
+
+		builtVersion = graph.getVersion();
+	}
+
+	private void computeShortestPaths() {
+		while (!queue.isEmpty()) {
+			int tile = queue.removeMin();
+			processed++;
+
+			if (distance[tile] > rhs[tile])
+				distance[tile] = rhs[tile];
+			else {
+				distance[tile] = UNREACHABLE;
+				updateTile(tile);
+			}
+			markDirty(tile);
+
+			int x = graph.indexToX(tile);
+			int y = graph.indexToY(tile);
+			for (int[] offset : neighbors) {
+				int px = x + offset[0];
+				int py = y + offset[1];
+				if (inBounds(px, py))
+					updateTile(graph.toIndex(px, py));
+			}
+		}
+	}
+
+	/**
+	 * Recalculates the rhs of the tile and puts it in the queue if it became
+	 * inconsistent.
+	 */
+	private void updateTile(int tile) {
+		int x = graph.indexToX(tile);
+		int y = graph.indexToY(tile);
+
+		if (graph.get(x, y) == MatrixGraph.WALL)
+			rhs[tile] = UNREACHABLE;
+		else if (isTarget(tile))
+			rhs[tile] = 0;
+		else {
+			float best = UNREACHABLE;
+			for (int[] offset : neighbors) {
+				int px = x + offset[0];
+				int py = y + offset[1];
+				if (!inBounds(px, py) || graph.get(px, py) == MatrixGraph.WALL)
+					continue;
+
+				float g = distance[graph.toIndex(px, py)];
+				if (g == UNREACHABLE)
+					continue;
+
+				float cost = g + graph.getCost(x, y, px, py);
+				if (cost < best)
+					best = cost;
+			}
+			rhs[tile] = best;
+		}
+
+		if (distance[tile] != rhs[tile])
+			queue.add(tile, Math.min(distance[tile], rhs[tile]));
+		else
+			queue.remove(tile);
+	}
+
+	private void markDirty(int tile) {
+		if (isDirty[tile])
+			return;
+		isDirty[tile] = true;
+		dirty[dirtyCount++] = tile;
+	}
+
+	/**
+	 * The next step of a tile depends on its neighbors costs, so it's
+	 * recalculated for every tile whose cost changed and for their neighbors.
+	 */
+	private void updateNextSteps() {
+		for (int i = 0; i < dirtyCount; i++) {
+			int tile = dirty[i];
+			isDirty[tile] = false;
+
+			updateNextStep(tile);
+
+			int x = graph.indexToX(tile);
+			int y = graph.indexToY(tile);
+			for (int[] offset : neighbors) {
+				int px = x + offset[0];
+				int py = y + offset[1];
+				if (inBounds(px, py))
+					updateNextStep(graph.toIndex(px, py));
+			}
+		}
+		dirtyCount = 0;
+	}
+
+	private void updateNextStep(int tile) {
+		int step = distance[tile] == 0 ? NONE : bestNeighbor(tile);
+		if (next[tile] == step)
+			return;
+
+		next[tile] = step;
+		if (!isChangedStep[tile]) {
+			isChangedStep[tile] = true;
+			changedSteps[changedStepCount++] = tile;
+		}
+	}
+
+	private boolean inBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < graph.getWidth() && y < graph.getHeight();
+	}
+
+	/**
+	 * @return The number of tiles whose next step changed in the last update,
+	 *         or -1 if it rebuilt the whole field.
+	 */
+	public int getChangedSteps() {
+		return changedStepCount;
+	}
+
+	/**
+	 * @return The i-th tile whose next step changed in the last update.
+	 */
+	public int getChangedStep(int i) {
+		return changedSteps[i];
+	}
+
+	/**
+	 * @return The number of tiles processed by the last update. A full
+	 *         rebuild counts every tile of the graph.
+	 */
+	public int getProcessedTiles() {
+		return processed;
+	}
+}
@@ -0,0 +1,158 @@
+package jgf.pathfinding;
+
+/**
+ * An indexed binary min heap of int items (usually tile indexes) in the range
+ * [0, capacity). Each item has a float key and a secondary key used to break
+ * ties. All storage is allocated up front, so adding, updating and removing
+ * items never creates garbage.
+ */
+final class IntMinHeap {
+	private int[] heap;
+	private int size;
+
+	/** Heap position + 1 of each item. Zero means the item is not here. */
+	private int[] positions;
+	private float[] keys;
+	private float[] ties;
+
+	IntMinHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new float[capacity];
+		ties = new float[capacity];
+	}
+
+	int capacity() {
+		return heap.length;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int item) {
+		return positions[item] != 0;
+	}
+
+	float getKey(int item) {
+		return keys[item];
+	}
+
+	/**
+	 * Removes all items. Only the items still inside are touched.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++)
+			positions[heap[i]] = 0;
+		size = 0;
+	}
+
+	/**
+	 * Inserts the item or, if it's already inside, changes its keys and fixes
+	 * its position.
+	 */
+	void add(int item, float key, float tie) {
+		keys[item] = key;
+		ties[item] = tie;
+
+		int pos = positions[item] - 1;
+		if (pos >= 0) {
+			if (!siftUp(pos))
+				siftDown(pos);
+			return;
+		}
+
+		heap[size] = item;
+		positions[item] = size + 1;
+		siftUp(size++);
+	}
+
+	void add(int item, float key) {
+		add(item, key, 0);
+	}
+
+	int peekMin() {
+		return heap[0];
+	}
+
+	float minKey() {
+		return keys[heap[0]];
+	}
+
+	int removeMin() {
+		int min = heap[0];
+		removeAt(0);
+		return min;
+	}
+
+	void remove(int item) {
+		int pos = positions[item] - 1;
+		if (pos >= 0)
+			removeAt(pos);
+	}
+
+	private void removeAt(int pos) {
+		positions[heap[pos]] = 0;
+
+		size--;
+		if (pos == size)
+			return;
+
+		heap[pos] = heap[size];
+		positions[heap[pos]] = pos + 1;
+
+		if (!siftUp(pos))
+			siftDown(pos);
+	}
+
+	private boolean less(int a, int b) {
+		if (keys[a] != keys[b])
+			return keys[a] < keys[b];
+		return ties[a] < ties[b];
+	}
+
+	private boolean siftUp(int pos) {
+		int item = heap[pos];
+		int start = pos;
+
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!less(item, heap[parent]))
+				break;
+
+			heap[pos] = heap[parent];
+			positions[heap[pos]] = pos + 1;
+			pos = parent;
+		}
+
+		heap[pos] = item;
+		positions[item] = pos + 1;
+		return pos != start;
+	}
+
+	private void siftDown(int pos) {
+		int item = heap[pos];
+		int half = size >>> 1;
+
+		while (pos < half) {
+			int child = (pos << 1) + 1;
+			int right = child + 1;
+			if (right < size && less(heap[right], heap[child]))
+				child = right;
+
+			if (!less(heap[child], item))
+				break;
+
+			heap[pos] = heap[child];
+			positions[heap[pos]] = pos + 1;
+			pos = child;
+		}
+
+		heap[pos] = item;
+		positions[item] = pos + 1;
+	}
+}
@@ -0,0 +1,469 @@
+package jgf.pathfinding;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Jump Point Search over the tiles of a MatrixGraph.
+ * <p>
+ * When every walkable tile has the same value, all the steps in the same
+ * direction cost the same and most of the paths are symmetric: they only
+ * differ in the order of their moves. Instead of adding every neighbor to the
+ * open list, this search jumps straight (and diagonally, if edges are used)
+ * from each node until it finds a tile with a forced neighbor, which can only
+ * be reached optimally through it, or the target. Only these jump points are
+ * expanded, usually a small fraction of the nodes expanded by A*.
+ * <p>
+ * Both movement modes of the graph are supported: the 8 neighbors of
+ * {@link MatrixGraph#buildSucessors(Node)}, where a diagonal move is allowed
+ * even between two walls, and the 4 neighbors of
+ * {@link MatrixGraph#buildSucessorsIgnoreEdges(Node)}. The returned paths
+ * contain every tile between the jump points and have the same cost as the
+ * ones found by {@link AStar}. If the walkable tiles don't share the same
+ * value, the pruning is not valid and the search falls back to a
+ * {@link GridAStar}.
+ * <p>
+ * Like GridAStar, the state is kept in reusable primitive arrays. This class
+ * is not thread safe.
+ */
+public class JumpPointSearch implements PathFinder {
+	private static final int NONE = -1;
+
+	private MatrixGraph graph;
+	private int width;
+	private int height;
+
+	private float[] g;
+	private int[] parent;
+	private int[] visited; // generation in which the tile was reached
+	private int generation;
+
+	private IntMinHeap open;
+	private int expanded;
+
+	private int target;
+	private int[] jumps = new int[8];
+
+	private GridAStar fallback;
+	private boolean uniform;
+	private long checkedVersion = -1;
+
+	private int[] pathBuffer;
+
+	public JumpPointSearch(MatrixGraph graph) {
+		this.graph = graph;
+		this.width = graph.getWidth();
+		this.height = graph.getHeight();
+
+		int tiles = width * height;
+		g = new float[tiles];
+		parent = new int[tiles];
+		visited = new int[tiles];
+		open = new IntMinHeap(tiles);
+	}
+
+	/**
+	 * @return True if all the walkable tiles have the same value, so jump
+	 *         points can be used. Checked once per graph version.
+	 */
+	public boolean isUniform() {
+		if (checkedVersion == graph.getVersion())
+			return uniform;
+
+		uniform = true;
+		int value = MatrixGraph.WALL;
+		for (int x = 0; x < width && uniform; x++)
+			for (int y = 0; y < height; y++) {
+				int tile = graph.get(x, y);
+				if (tile == MatrixGraph.WALL)
+					continue;
+				if (value == MatrixGraph.WALL)
+					value = tile;
+				else if (tile != value) {
+					uniform = false;
+					break;
+				}
+			}
+
+		checkedVersion = graph.getVersion();
+		return uniform;
+	}
+
+	private GridAStar getFallback() {
+		if (fallback == null)
+			fallback = new GridAStar(graph);
+		return fallback;
+	}
+
+	private void nextGeneration() {
+		if (++generation == Integer.MAX_VALUE) {
+			// very unlikely, but stamps must never match an old search
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private float estimate(int x, int y, int targetX, int targetY) {
+		float dx = targetX - x;
+		float dy = targetY - y;
+		return (float) Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Searches a path between the start and target tiles.
+	 *
+	 * @param ignoreEdges If true only the 4 orthogonal neighbors are used, as
+	 *        in {@link Graph#buildSucessorsIgnoreEdges(Node)}.
+	 * @param path Buffer that will receive the tile indexes of the path, from
+	 *        the start to the target (both included).
+	 * @return The number of tiles in the path, 0 if there is no path, or minus
+	 *         the number of tiles if the path does not fit in the buffer (in
+	 *         this case the buffer is left untouched).
+	 * @see GridAStar#search(int, int, int, int, boolean, int[])
+	 */
+	public int search(int startx, int starty, int targetx, int targety,
+			boolean ignoreEdges, int[] path) {
+		if (!inBounds(startx, starty))
+			throw new IndexOutOfBoundsException(
+					"Start node out of the graph bounds!");
+
+		if (!inBounds(targetx, targety))
+			throw new IndexOutOfBoundsException(
+					"Target node out of the graph bounds!");
+
+		if (!isUniform()) {
+			GridAStar aStar = getFallback();
+			int length = aStar.search(startx, starty, targetx, targety,
+					ignoreEdges, path);
+			expanded = aStar.getExpandedNodes();
+			return length;
+		}
+
+		target = graph.toIndex(targetx, targety);
+		if (!search(graph.toIndex(startx, starty), targetx, targety,
+				ignoreEdges))
+			return 0;
+
+		return buildPath(path);
+	}
+
+	private boolean search(int start, int targetx, int targety,
+			boolean ignoreEdges) {
+		nextGeneration();
+		open.clear();
+		expanded = 0;
+
+		visited[start] = generation;
+		g[start] = 0;
+		parent[start] = NONE;
+		float h = estimate(graph.indexToX(start), graph.indexToY(start),
+				targetx, targety);
+		open.add(start, h, h);
+
+		while (!open.isEmpty()) {
+			int node = open.removeMin();
+			expanded++;
+
+			if (node == target)
+				return true;
+
+			int count = ignoreEdges ? findJumps4(node) : findJumps8(node);
+			for (int i = 0; i < count; i++) {
+				int jump = jumps[i];
+				float cost = g[node] + segmentCost(node, jump);
+
+				// a better path also reopens an already expanded node
+				if (visited[jump] == generation && g[jump] <= cost)
+					continue;
+				visited[jump] = generation;
+
+				g[jump] = cost;
+				parent[jump] = node;
+				h = estimate(graph.indexToX(jump), graph.indexToY(jump),
+						targetx, targety);
+				open.add(jump, cost + h, h);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * The cost of the straight or diagonal line between two tiles. Only the
+	 * first step can have a different cost, when it leaves a wall.
+	 */
+	private float segmentCost(int from, int to) {
+		int x = graph.indexToX(from);
+		int y = graph.indexToY(from);
+		int dx = Integer.signum(graph.indexToX(to) - x);
+		int dy = Integer.signum(graph.indexToY(to) - y);
+		int steps = Math.max(Math.abs(graph.indexToX(to) - x), Math.abs(graph
+				.indexToY(to)
+				- y));
+
+		float first = graph.getCost(x, y, x + dx, y + dy);
+		if (steps == 1)
+			return first;
+		return first + (steps - 1)
+				* graph.getCost(x + dx, y + dy, x + 2 * dx, y + 2 * dy);
+	}
+
+	private boolean isWalkable(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height
+				&& graph.get(x, y) != MatrixGraph.WALL;
+	}
+
+	private int addJump(int count, int jump) {
+		if (jump != NONE)
+			jumps[count++] = jump;
+		return count;
+	}
+
+	/**
+	 * Fills the jumps array with the jump points reachable from the node in
+	 * the 8 neighbors mode, pruning the directions that have a path of the
+	 * same cost that doesn't pass through the node.
+	 */
+	private int findJumps8(int node) {
+		int x = graph.indexToX(node);
+		int y = graph.indexToY(node);
+		int count = 0;
+
+		if (parent[node] == NONE) {
+			for (int[] offset : MatrixGraph.NEIGHBORS_8)
+				count = addJump(count, jump8(x, y, offset[0], offset[1]));
+			return count;
+		}
+
+		int dx = Integer.signum(x - graph.indexToX(parent[node]));
+		int dy = Integer.signum(y - graph.indexToY(parent[node]));
+
+		if (dx != 0 && dy != 0) {
+			count = addJump(count, jump8(x, y, 0, dy));
+			count = addJump(count, jump8(x, y, dx, 0));
+			count = addJump(count, jump8(x, y, dx, dy));
+			if (!isWalkable(x - dx, y))
+				count = addJump(count, jump8(x, y, -dx, dy));
+			if (!isWalkable(x, y - dy))
+				count = addJump(count, jump8(x, y, dx, -dy));
+		} else if (dx == 0) {
+			count = addJump(count, jump8(x, y, 0, dy));
+			if (!isWalkable(x + 1, y))
+				count = addJump(count, jump8(x, y, 1, dy));
+			if (!isWalkable(x - 1, y))
+				count = addJump(count, jump8(x, y, -1, dy));
+		} else {
+			count = addJump(count, jump8(x, y, dx, 0));
+			if (!isWalkable(x, y + 1))
+				count = addJump(count, jump8(x, y, dx, 1));
+			if (!isWalkable(x, y - 1))
+				count = addJump(count, jump8(x, y, dx, -1));
+		}
+		return count;
+	}
+
+	private int jump8(int x, int y, int dx, int dy) {
+		if (dx == 0 || dy == 0)
+			return jumpStraight8(x, y, dx, dy);
+
+		while (true) {
+			x += dx;
+			y += dy;
+			if (!isWalkable(x, y))
+				return NONE;
+
+			int tile = graph.toIndex(x, y);
+			if (tile == target)
+				return tile;
+
+			if ((isWalkable(x - dx, y + dy) && !isWalkable(x - dx, y))
+					|| (isWalkable(x + dx, y - dy) && !isWalkable(x, y - dy)))
+				return tile;
+
+			// a diagonal move stops where a straight jump finds something
+			if (jumpStraight8(x, y, dx, 0) != NONE
+					|| jumpStraight8(x, y, 0, dy) != NONE)
+				return tile;
+		}
+	}
+
+	private int jumpStraight8(int x, int y, int dx, int dy) {
+		while (true) {
+			x += dx;
+			y += dy;
+			if (!isWalkable(x, y))
+				return NONE;
+
+			int tile = graph.toIndex(x, y);
+			if (tile == target)
+				return tile;
+
+			if (dx != 0) {
+				if ((isWalkable(x + dx, y + 1) && !isWalkable(x, y + 1))
+						|| (isWalkable(x + dx, y - 1) && !isWalkable(x, y - 1)))
+					return tile;
+			} else if ((isWalkable(x + 1, y + dy) && !isWalkable(x + 1, y))
+					|| (isWalkable(x - 1, y + dy) && !isWalkable(x - 1, y)))
+				return tile;
+		}
+	}
+
+	/**
+	 * Fills the jumps array with the jump points reachable from the node in
+	 * the 4 neighbors mode. Horizontal jumps go on until a forced neighbor;
+	 * vertical ones also stop where a horizontal jump finds something, so
+	 * every turn of an optimal path is a jump point.
+	 */
+	private int findJumps4(int node) {
+		int x = graph.indexToX(node);
+		int y = graph.indexToY(node);
+		int count = 0;
+
+		if (parent[node] == NONE) {
+			for (int[] offset : MatrixGraph.NEIGHBORS_4)
+				count = addJump(count, jump4(x, y, offset[0], offset[1]));
+			return count;
+		}
+
+		int dx = Integer.signum(x - graph.indexToX(parent[node]));
+		int dy = Integer.signum(y - graph.indexToY(parent[node]));
+
+		if (dx != 0) {
+			count = addJump(count, jump4(x, y, 0, -1));
+			count = addJump(count, jump4(x, y, 0, 1));
+			count = addJump(count, jump4(x, y, dx, 0));
+		} else {
+			count = addJump(count, jump4(x, y, -1, 0));
+			count = addJump(count, jump4(x, y, 1, 0));
+			count = addJump(count, jump4(x, y, 0, dy));
+		}
+		return count;
+	}
+
+	private int jump4(int x, int y, int dx, int dy) {
+		while (true) {
+			x += dx;
+			y += dy;
+			if (!isWalkable(x, y))
+				return NONE;
+
+			int tile = graph.toIndex(x, y);
+			if (tile == target)
+				return tile;
+
+			if (dx != 0) {
+				if ((isWalkable(x, y - 1) && !isWalkable(x - dx, y - 1))
+						|| (isWalkable(x, y + 1) && !isWalkable(x - dx, y + 1)))
+					return tile;
+			} else {
+				if ((isWalkable(x - 1, y) && !isWalkable(x - 1, y - dy))
+						|| (isWalkable(x + 1, y) && !isWalkable(x + 1, y - dy)))
+					return tile;
+
+				if (jump4(x, y, 1, 0) != NONE || jump4(x, y, -1, 0) != NONE)
+					return tile;
+			}
+		}
+	}
+
+	/**
+	 * Writes the path, filling the tiles between the jump points. The cost of
+	 * the filled tiles is stored in g, so {@link #getPathCost(int, int)} works
+	 * for every tile of the path.
+	 */
+	private int buildPath(int[] path) {
+		int length = 1;
+		for (int node = target; parent[node] != NONE; node = parent[node])
+			length += distance(parent[node], node);
+
+		if (length > path.length)
+			return -length;
+
+		int i = length;
+		for (int node = target; node != NONE; node = parent[node]) {
+			path[--i] = node;
+
+			int from = parent[node];
+			if (from == NONE)
+				break;
+
+			int x = graph.indexToX(node);
+			int y = graph.indexToY(node);
+			int dx = Integer.signum(graph.indexToX(from) - x);
+			int dy = Integer.signum(graph.indexToY(from) - y);
+			float cost = g[node];
+			for (int steps = distance(from, node) - 1; steps > 0; steps--) {
+				cost -= graph.getCost(x, y, x + dx, y + dy);
+				x += dx;
+				y += dy;
+				int tile = graph.toIndex(x, y);
+				g[tile] = cost;
+				path[--i] = tile;
+			}
+		}
+
+		return length;
+	}
+
+	private int distance(int from, int to) {
+		return Math.max(Math.abs(graph.indexToX(to) - graph.indexToX(from)),
+				Math.abs(graph.indexToY(to) - graph.indexToY(from)));
+	}
+
+	private boolean inBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Returns a buffer owned by this engine, big enough to hold any path of
+	 * the graph. It's overwritten by anyone that uses it, so its contents must
+	 * be consumed before the next search.
+	 */
+	public int[] getPathBuffer() {
+		if (pathBuffer == null)
+			pathBuffer = new int[width * height];
+		return pathBuffer;
+	}
+
+	/**
+	 * @return The number of nodes expanded by the last search: jump points,
+	 *         or every node expanded by A* if the search fell back to it.
+	 */
+	public int getExpandedNodes() {
+		return expanded;
+	}
+
+	/**
+	 * @return The cost to reach the given tile in the last search. Only
+	 *         meaningful for the tiles of the last found path.
+	 */
+	public float getPathCost(int targetx, int targety) {
+		if (!isUniform())
+			return getFallback().getPathCost(targetx, targety);
+		return g[graph.toIndex(targetx, targety)];
+	}
+
+	public MatrixGraph getGraph() {
+		return graph;
+	}
+
+	public List<Node> search(int startx, int starty, int targetx, int targety,
+			boolean ignoreEdges) {
+		if (!isUniform()) {
+			GridAStar aStar = getFallback();
+			List<Node> path = aStar.search(startx, starty, targetx, targety,
+					ignoreEdges);
+			expanded = aStar.getExpandedNodes();
+			return path;
+		}
+
+		int[] buffer = getPathBuffer();
+		int length = search(startx, starty, targetx, targety, ignoreEdges,
+				buffer);
+		return GridAStar.toNodes(graph, buffer, length, g);
+	}
+
+	public List<Node> search(int startx, int starty, int targetx, int targety) {
+		return search(startx, starty, targetx, targety, false);
+	}
+}
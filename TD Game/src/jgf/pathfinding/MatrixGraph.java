@@ -1,10 +1,39 @@
 package jgf.pathfinding;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class MatrixGraph implements Graph {
 	public static final int WALL = Short.MAX_VALUE;
 	private int matrix[][]; // matriz que representa os custos do grafo.
+	private HolderType holderType = HolderType.HEAP;
+	private GridAStar gridAStar;
+	private JumpPointSearch jumpPointSearch;
+	private long version;
+	// columns shared with a snapshot, copied before they are written
+	private boolean[] shared;
+	private List<MatrixGraphListener> listeners =
+			new ArrayList<MatrixGraphListener>();
+
+	// deslocamentos dos vizinhos, na mesma ordem usada em buildSucessors
+	static final int[][] NEIGHBORS_8 = { { 0, 1 }, { 1, 1 }, { 1, 0 },
+			{ 1, -1 }, { 0, -1 }, { -1, -1 }, { -1, 0 }, { -1, 1 } };
+	static final int[][] NEIGHBORS_4 = { { 0, 1 }, { 1, 0 }, { 0, -1 },
+			{ -1, 0 } };
+
+	/**
+	 * The kinds of NodeHolder this graph can create for the open and closed
+	 * lists of a search.
+	 */
+	public enum HolderType {
+		/** Hash set, removeMinF() scans every node. */
+		DEFAULT,
+		/** Hash map indexed by tile, removeMinF() scans every node. */
+		INDEXED,
+		/** Indexed binary heap, O(log n) removeMinF() and decrease-key. */
+		HEAP
+	}
 
 	public MatrixGraph(int larg, int alt) {
 		matrix = new int[larg][alt];
@@ -18,6 +47,12 @@ public class MatrixGraph implements Graph {
 				this.matrix[i][j] = matrix[i][j];
 	}
 
+	private MatrixGraph(MatrixGraph graph) {
+		matrix = graph.matrix.clone();
+		holderType = graph.holderType;
+		version = graph.version;
+	}
+
 	/**
 	 * calcula o custo para se locomover do vertice (x1,x2) ao vertice (x2,y2) o
 	 * custo inclui: <br>
@@ -39,7 +74,7 @@ public class MatrixGraph implements Graph {
 
 	// verifica se existe um muro no cenario.
 	public boolean isWall(int x, int y) {
-		if (x < 0 || y < 0 || x > getWidth() || y > getWidth())
+		if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight())
 			return true;
 
 		return (matrix[x][y] == WALL);
@@ -97,7 +132,77 @@ public class MatrixGraph implements Graph {
 	}
 
 	public void set(int x, int y, int value) {
+		if (matrix[x][y] == value)
+			return;
+
+		if (shared != null && shared[x]) {
+			matrix[x] = matrix[x].clone();
+			shared[x] = false;
+		}
+
+		int oldValue = matrix[x][y];
 		matrix[x][y] = value;
+		version++;
+
+		for (int i = 0; i < listeners.size(); i++)
+			listeners.get(i).tileChanged(this, x, y, oldValue);
+	}
+
+	/**
+	 * Adds a listener to the tile changes of this graph. Listeners are not
+	 * copied to clones.
+	 */
+	public void addListener(MatrixGraphListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(MatrixGraphListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns a counter incremented every time a tile changes its value.
+	 * Structures computed over this graph can store it to know if they are
+	 * outdated.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the index of the tile (x, y) in a flat array with one position
+	 * per tile of this graph.
+	 */
+	public int toIndex(int x, int y) {
+		return x * matrix[0].length + y;
+	}
+
+	public int indexToX(int index) {
+		return index / matrix[0].length;
+	}
+
+	public int indexToY(int index) {
+		return index % matrix[0].length;
+	}
+
+	/**
+	 * Returns a flat array A* engine bound to this graph. The engine is created
+	 * once and reused, so it must only be used by one thread at a time.
+	 */
+	public GridAStar getGridAStar() {
+		if (gridAStar == null)
+			gridAStar = new GridAStar(this);
+		return gridAStar;
+	}
+
+	/**
+	 * Returns a Jump Point Search engine bound to this graph, with the same
+	 * restrictions as {@link #getGridAStar()}.
+	 */
+	public JumpPointSearch getJumpPointSearch() {
+		if (jumpPointSearch == null)
+			jumpPointSearch = new JumpPointSearch(this);
+		return jumpPointSearch;
 	}
 
 	public NodeHolder buildSucessors(Node node) {
@@ -109,7 +214,7 @@ public class MatrixGraph implements Graph {
 	}
 
 	private NodeHolder buildSucessorsIgnoreEdges(Node node, int neighbors) {
-		NodeHolder sucessors = createHolder();
+		NodeHolder sucessors = createSucessorHolder();
 
 		Node parent = node.getParent();
 
@@ -163,7 +268,7 @@ public class MatrixGraph implements Graph {
 	 * a frente do caminho de busca
 	 */
 	private NodeHolder buildSucessors(Node node, int neighbors) {
-		NodeHolder sucessors = createHolder();
+		NodeHolder sucessors = createSucessorHolder();
 
 		Node parent = node.getParent();
 
@@ -221,10 +326,53 @@ public class MatrixGraph implements Graph {
 	}
 
 	public NodeHolder createHolder() {
+		switch (holderType) {
+		case DEFAULT:
+			return new DefaultNodeHolder();
+		case INDEXED:
+			return new IndexedNodeHolder();
+		default:
+			return new HeapNodeHolder(getWidth(), getHeight());
+		}
+	}
+
+	// a lista de sucessores eh pequena, nao precisa de um heap
+	private NodeHolder createSucessorHolder() {
 		return new IndexedNodeHolder();
 	}
 
+	public HolderType getHolderType() {
+		return holderType;
+	}
+
+	public void setHolderType(HolderType holderType) {
+		if (holderType == null)
+			throw new IllegalArgumentException("Null holder type is invalid!");
+		this.holderType = holderType;
+	}
+
+	/**
+	 * Returns a copy of this graph that shares its columns with it until one of
+	 * them is written, so taking it costs one reference per column and each
+	 * later change copies at most one column. Changes to this graph are never
+	 * seen by the snapshot, so it can be read by other threads while this
+	 * graph keeps being changed by its own. Like clones, snapshots have the
+	 * version of this graph and none of its listeners.
+	 */
+	public MatrixGraph snapshot() {
+		MatrixGraph snapshot = new MatrixGraph(this);
+		if (shared == null)
+			shared = new boolean[matrix.length];
+		Arrays.fill(shared, true);
+		snapshot.shared = new boolean[matrix.length];
+		Arrays.fill(snapshot.shared, true);
+		return snapshot;
+	}
+
 	public Object clone() {
-		return new MatrixGraph(matrix);
+		MatrixGraph clone = new MatrixGraph(matrix);
+		clone.holderType = holderType;
+		clone.version = version;
+		return clone;
 	}
 }
@@ -0,0 +1,14 @@
+package jgf.pathfinding;
+
+/**
+ * Receives the changes made in the tiles of a MatrixGraph.
+ */
+public interface MatrixGraphListener {
+	/**
+	 * Called after the value of the tile (x, y) changed.
+	 *
+	 * @param graph The changed graph.
+	 * @param oldValue The value of the tile before the change.
+	 */
+	void tileChanged(MatrixGraph graph, int x, int y, int oldValue);
+}
@@ -53,8 +53,8 @@ public class NodePath {
 	}
 
 	public void remakePath(MatrixGraph graph) {
-		AStar aStar = new AStar(graph);
-		List<Node> nodePath = aStar.search(x, y, targetX, targetY);
+		List<Node> nodePath = graph.getGridAStar().search(x, y, targetX,
+				targetY);
 		nodePath.remove(0);
 		nodePath.add(new Node(targetX, targetY));
 		path.clear();
@@ -10,13 +10,21 @@ public class GameConfig {
 	public final static int MAP_WIDTH = TILE_WIDTH * TILE_SIZE;
 	public final static int MAP_HEIGHT = TILE_HEIGHT * TILE_SIZE;
 
-	public static final Player player = new Player();
+	/** The images, shared by every game. */
 	public static ImagePallete images;
 
 	static {
 		images = new ImagePallete("/resource/images.xml");
+	}
+
+	/**
+	 * @return A player with the gold and lives of the start of a game.
+	 */
+	public static Player createPlayer() {
+		Player player = new Player();
 		player.setGold(200);//XXX:200
 		player.setLives(20);
+		return player;
 	}
 
 	public static int pixelToTile(double pixel) {
@@ -0,0 +1,94 @@
+package td.cfg;
+
+import java.util.Random;
+
+import jgf.core.GameClock;
+import jgf.pathfinding.MatrixGraph;
+import td.level.WaveManager;
+import td.path.PathManager;
+import td.player.Player;
+
+/**
+ * The state of one game: its pieces, waves, map graph, path cache, player,
+ * clock and random numbers. The game code reaches the state through the
+ * context of its game, never through static fields, so many games can run at
+ * the same time in one JVM, each in its own thread.
+ * <p>
+ * Read-only assets, like the images of GameConfig and the templates, are
+ * shared by every context.
+ */
+public class GameContext {
+	private GameClock clock;
+	private PiecesManager piecesManager;
+	private WaveManager waveManager;
+	private MatrixGraph graph;
+	private PathManager pathManager;
+	private Player player;
+	private long seed;
+	private Random random;
+
+	/**
+	 * @param ups Number of updates per second of game time.
+	 * @param seed The seed of the random numbers of the game.
+	 */
+	public GameContext(int ups, long seed) {
+		clock = new GameClock(ups);
+		piecesManager = new PiecesManager(this);
+		waveManager = new WaveManager(clock);
+		graph = new MatrixGraph(GameConfig.TILE_WIDTH, GameConfig.TILE_HEIGHT);
+		pathManager = new PathManager();
+		player = GameConfig.createPlayer();
+		setSeed(seed);
+	}
+
+	public GameClock getClock() {
+		return clock;
+	}
+
+	public PiecesManager getPiecesManager() {
+		return piecesManager;
+	}
+
+	public WaveManager getWaveManager() {
+		return waveManager;
+	}
+
+	/**
+	 * @return The graph of the map, where the towers are walls.
+	 */
+	public MatrixGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return The flow field and path cache of the exits of the graph.
+	 */
+	public PathManager getPathManager() {
+		return pathManager;
+	}
+
+	public Player getPlayer() {
+		return player;
+	}
+
+	/**
+	 * Sets the seed of the random numbers of the game. Must be called before
+	 * the game starts.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		random = new Random(seed);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return The random numbers of the game, the same every time for the
+	 *         same seed. Must only be used by the game loop.
+	 */
+	public Random getRandom() {
+		return random;
+	}
+}
@@ -0,0 +1,165 @@
+package td.cfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import td.pieces.Piece;
+
+/**
+ * A uniform grid over the map that finds the pieces near a point by visiting
+ * only the cells around it, instead of every piece of the game.
+ * <p>
+ * The grid is rebuilt, in linear time, from the pieces of the game on the
+ * first query after invalidate(). Pieces added after that are kept aside and
+ * tested by every query, until too many of them make the grid rebuild again.
+ * The pieces keep moving between rebuilds, so the cells visited by a query
+ * are widened by a margin, the farthest a piece may move until the next
+ * rebuild, and the distance is always tested with the current positions:
+ * queries find the same pieces a test of every piece would.
+ * <p>
+ * Pieces outside the map are kept in the cells of its border. A grid of pieces
+ * that never move can have no margin, and be invalidated only when pieces are
+ * added or removed.
+ */
+public class PieceGrid<T extends Piece> {
+	// pieces added since the rebuild that make the grid rebuild again
+	private static final int MAX_ADDED = 64;
+
+	private List<T> pieces;
+	private int cellSize;
+	private int columns;
+	private int rows;
+	private double margin;
+
+	// the pieces sorted by cell, the ones of cell c in [cellStart[c],
+	// cellStart[c + 1])
+	private int[] cellStart;
+	private Piece[] cellPieces = new Piece[64];
+	private int[] pieceCells = new int[64];
+	private List<T> added = new ArrayList<T>();
+	private boolean dirty = true;
+
+	/**
+	 * @param pieces The pieces of the game, read when the grid is rebuilt.
+	 * @param width The width of the map, in pixels.
+	 * @param height The height of the map, in pixels.
+	 * @param cellSize The size of the cells, in pixels.
+	 * @param margin The farthest a piece moves between two rebuilds.
+	 */
+	public PieceGrid(List<T> pieces, int width, int height, int cellSize,
+			double margin) {
+		this.pieces = pieces;
+		this.cellSize = cellSize;
+		this.margin = margin;
+		columns = (width + cellSize - 1) / cellSize;
+		rows = (height + cellSize - 1) / cellSize;
+		cellStart = new int[columns * rows + 1];
+	}
+
+	/**
+	 * Makes the next query rebuild the grid. Must be called when pieces are
+	 * removed, and once per tick if the pieces move.
+	 */
+	public void invalidate() {
+		dirty = true;
+		added.clear();
+	}
+
+	/**
+	 * Tells the grid that a piece was added to the game.
+	 */
+	public void add(T piece) {
+		if (dirty)
+			return;
+
+		added.add(piece);
+		if (added.size() > MAX_ADDED)
+			invalidate();
+	}
+
+	private int columnOf(double x) {
+		return Math.max(0, Math.min(columns - 1,
+				(int) Math.floor(x / cellSize)));
+	}
+
+	private int rowOf(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+	}
+
+	private void rebuild() {
+		int size = pieces.size();
+		if (cellPieces.length < size) {
+			cellPieces = new Piece[Math.max(size, cellPieces.length * 2)];
+			pieceCells = new int[cellPieces.length];
+		}
+
+		// counts the pieces of each cell, then places them, in the order of
+		// the game, after the ones of the cells before
+		Arrays.fill(cellStart, 0);
+		for (int i = 0; i < size; i++) {
+			T piece = pieces.get(i);
+			int cell = rowOf(piece.getY()) * columns + columnOf(piece.getX());
+			pieceCells[i] = cell;
+			cellStart[cell + 1]++;
+		}
+		int cells = columns * rows;
+		for (int cell = 0; cell < cells; cell++)
+			cellStart[cell + 1] += cellStart[cell];
+		for (int i = 0; i < size; i++)
+			cellPieces[cellStart[pieceCells[i]]++] = pieces.get(i);
+
+		// each cell start was moved to the start of the next cell
+		for (int cell = cells; cell > 0; cell--)
+			cellStart[cell] = cellStart[cell - 1];
+		cellStart[0] = 0;
+		Arrays.fill(cellPieces, size, cellPieces.length, null);
+		dirty = false;
+	}
+
+	/**
+	 * Adds to the result the pieces inside the circle, in the order of their
+	 * cells, top to bottom and left to right.
+	 *
+	 * @param exclude A piece left out of the result, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public void findInRadius(double x, double y, double radius,
+			Piece exclude, List<? super T> result) {
+		if (radius <= 0)
+			return;
+		if (dirty)
+			rebuild();
+
+		int minColumn = columnOf(x - radius - margin);
+		int maxColumn = columnOf(x + radius + margin);
+		int minRow = rowOf(y - radius - margin);
+		int maxRow = rowOf(y + radius + margin);
+		for (int row = minRow; row <= maxRow; row++) {
+			int first = cellStart[row * columns + minColumn];
+			int last = cellStart[row * columns + maxColumn + 1];
+			for (int i = first; i < last; i++)
+				addIfInside((T) cellPieces[i], x, y, radius, exclude, result);
+		}
+
+		for (int i = 0; i < added.size(); i++)
+			addIfInside(added.get(i), x, y, radius, exclude, result);
+	}
+
+	private static <T extends Piece> void addIfInside(T piece, double x,
+			double y, double radius, Piece exclude, List<? super T> result) {
+		if (piece != exclude && contains(x, y, radius, piece))
+			result.add(piece);
+	}
+
+	/**
+	 * Tests if the piece is inside the circle as Ellipse2D.contains() would,
+	 * so the result is exactly the same.
+	 */
+	static boolean contains(double x, double y, double radius, Piece piece) {
+		double diameter = radius * 2;
+		double normX = (piece.getX() - (x - radius)) / diameter - 0.5;
+		double normY = (piece.getY() - (y - radius)) / diameter - 0.5;
+		return normX * normX + normY * normY < 0.25;
+	}
+}
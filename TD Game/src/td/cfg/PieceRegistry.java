@@ -0,0 +1,101 @@
+package td.cfg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import td.pieces.Piece;
+
+/**
+ * The pieces of one kind of a game, in a dense list, with a grid to find the
+ * ones near a point. Pieces that don't think are never visited by the tick,
+ * and the grid of pieces that don't move is rebuilt only when pieces are added
+ * or removed.
+ */
+class PieceRegistry<T extends Piece> {
+	private List<T> pieces = new ArrayList<T>();
+	private PieceGrid<T> grid;
+	private boolean moving;
+	private boolean thinking;
+
+	/**
+	 * @param cellSize The size of the cells of the grid, in pixels.
+	 * @param maxStep The farthest a piece moves in a tick, or zero if the
+	 *            pieces never move.
+	 * @param thinking If the pieces think every tick.
+	 */
+	public PieceRegistry(int cellSize, int maxStep, boolean thinking) {
+		this.moving = maxStep > 0;
+		this.thinking = thinking;
+		grid = new PieceGrid<T>(pieces, GameConfig.MAP_WIDTH,
+				GameConfig.MAP_HEIGHT, cellSize, maxStep);
+	}
+
+	public void add(T piece) {
+		pieces.add(piece);
+		if (moving)
+			grid.add(piece);
+		else
+			grid.invalidate();
+	}
+
+	public boolean remove(Piece piece) {
+		if (!pieces.remove(piece))
+			return false;
+
+		grid.invalidate();
+		return true;
+	}
+
+	/**
+	 * Calls processAI() of the pieces that were in the registry when the tick
+	 * started. The pieces added meanwhile think in the next tick.
+	 */
+	public void processAI() {
+		if (!thinking)
+			return;
+
+		// the pieces moved in the last tick
+		if (moving)
+			grid.invalidate();
+		for (int i = 0, size = pieces.size(); i < size; i++)
+			pieces.get(i).processAI();
+	}
+
+	/**
+	 * Removes the dead pieces, keeping the order of the others.
+	 *
+	 * @param removed Where the removed pieces are put, or null.
+	 */
+	public void removeDead(List<T> removed) {
+		int size = pieces.size();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			T piece = pieces.get(i);
+			if (!piece.isDead())
+				pieces.set(kept++, piece);
+			else if (removed != null)
+				removed.add(piece);
+		}
+		if (kept == size)
+			return;
+
+		pieces.subList(kept, size).clear();
+		grid.invalidate();
+	}
+
+	public void findInRadius(double x, double y, double radius,
+			Piece exclude, List<? super T> result) {
+		grid.findInRadius(x, y, radius, exclude, result);
+	}
+
+	/**
+	 * @return The pieces, not to be changed.
+	 */
+	public List<T> getPieces() {
+		return pieces;
+	}
+
+	public int size() {
+		return pieces.size();
+	}
+}
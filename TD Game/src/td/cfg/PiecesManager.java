@@ -1,69 +1,228 @@
 package td.cfg;
 
-import java.awt.Graphics2D;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
-import javax.swing.JOptionPane;
-
-import jgf.pathfinding.MatrixGraph;
+import jgf.core.profile.Profiler;
+import td.gui.RenderSnapshot;
 import td.pieces.Monster;
 import td.pieces.Piece;
+import td.pieces.Shoot;
+import td.pieces.Tower;
+import td.pieces.Wall;
 
+/**
+ * The pieces of a game, kept apart by kind: the walls, which never think nor
+ * move and are left out of the ticks, the towers, which think but never move,
+ * the monsters and the shots. Each kind has a grid, so the pieces of a kind
+ * near a point are found without visiting the others.
+ * <p>
+ * The towers think through a TowerCoverage, so only the ones with monsters
+ * near are visited by the ticks, and the buffs of the buff towers are given
+ * by TowerAuras when towers are added and removed.
+ */
 public class PiecesManager {
-	private List<Piece> pieces;
+	private static final int PROCESS_AI_SLOT = Profiler.getInstance()
+			.register("PiecesManager.processPiecesAI");
+
+	// the size of the cells of the grids, and how far the pieces may move in
+	// a tick: the shots, the fastest pieces, move 8 pixels per tick
+	private static final int CELL_SIZE = GameConfig.TILE_SIZE * 2;
+	private static final int MAX_STEP = GameConfig.TILE_SIZE;
+
+	private GameContext context;
+	private PieceRegistry<Wall> walls;
+	private PieceRegistry<Tower> towers;
+	private PieceRegistry<Monster> monsters;
+	private PieceRegistry<Shoot> shots;
+	// any other kind of piece, thinking and moving
+	private PieceRegistry<Piece> others;
+	private TowerCoverage coverage = new TowerCoverage();
+	private TowerAuras auras;
+	private List<Tower> deadTowers = new ArrayList<Tower>();
 
-	public PiecesManager() {
-		pieces = new ArrayList<Piece>();
+	public PiecesManager(GameContext context) {
+		this.context = context;
+		walls = new PieceRegistry<Wall>(CELL_SIZE, 0, false);
+		// the towers think through the coverage
+		towers = new PieceRegistry<Tower>(CELL_SIZE, 0, false);
+		monsters = new PieceRegistry<Monster>(CELL_SIZE, MAX_STEP, true);
+		shots = new PieceRegistry<Shoot>(CELL_SIZE, MAX_STEP, true);
+		others = new PieceRegistry<Piece>(CELL_SIZE, MAX_STEP, true);
+		auras = new TowerAuras(towers);
 	}
 
+	/**
+	 * @return A copy of every piece: the walls, the towers, the monsters, the
+	 *         shots and the others.
+	 */
 	public List<Piece> getPieces() {
-		return new ArrayList<Piece>(Collections.unmodifiableList(pieces));
+		List<Piece> pieces = new ArrayList<Piece>(walls.size() + towers.size()
+				+ monsters.size() + shots.size() + others.size());
+		pieces.addAll(walls.getPieces());
+		pieces.addAll(towers.getPieces());
+		pieces.addAll(monsters.getPieces());
+		pieces.addAll(shots.getPieces());
+		pieces.addAll(others.getPieces());
+		return pieces;
 	}
 
+	/**
+	 * Adds a piece to the game, which becomes the context of the piece.
+	 */
 	public void add(Piece piece) {
-		pieces.add(piece);
+		piece.setContext(context);
+		if (piece instanceof Monster) {
+			monsters.add((Monster) piece);
+			coverage.addMonster((Monster) piece);
+		} else if (piece instanceof Shoot)
+			shots.add((Shoot) piece);
+		else if (piece instanceof Tower) {
+			// the buffs change the range, which the coverage needs
+			towers.add((Tower) piece);
+			auras.addTower((Tower) piece);
+			coverage.addTower((Tower) piece);
+		} else if (piece instanceof Wall)
+			walls.add((Wall) piece);
+		else
+			others.add(piece);
 	}
 
 	public void remove(Piece piece) {
-		pieces.remove(piece);
+		if (monsters.remove(piece))
+			coverage.removeMonster((Monster) piece);
+		else if (towers.remove(piece)) {
+			coverage.removeTower((Tower) piece);
+			auras.removeTower((Tower) piece);
+		} else if (!shots.remove(piece) && !walls.remove(piece))
+			others.remove(piece);
+	}
+
+	/**
+	 * Tells the game that the range or the targeting of a tower changed, so
+	 * the tiles it covers and the order of the monsters on them are found
+	 * again.
+	 */
+	public void towerChanged(Tower tower) {
+		coverage.update(tower);
+	}
+
+	/**
+	 * Finds the monster the tower should fire at, as told by its targeting,
+	 * among the ones in its range. Only the monsters on the tiles covered by
+	 * the tower are visited, in the order of its targeting, until one is in
+	 * range, which is usually the first.
+	 *
+	 * @return The monster, or null if none is in range.
+	 */
+	public Monster findTarget(Tower tower) {
+		return coverage.findTarget(tower);
+	}
+
+	/**
+	 * @return The number of towers with monsters near, which think in the
+	 *         ticks.
+	 */
+	public int getAwakeTowerCount() {
+		return coverage.getAwakeCount();
 	}
 
-	public void makeTempPaths(MatrixGraph graph) {
-		for (Piece piece : new ArrayList<Piece>(pieces))
-			if (piece instanceof Monster)
-				((Monster) piece).makeTempPath(graph);
+	/**
+	 * Adds to the result the pieces of every kind inside the circle, visiting
+	 * only the pieces near it.
+	 *
+	 * @param exclude A piece left out of the result, or null.
+	 * @return The result.
+	 */
+	public List<Piece> findInRadius(double x, double y, double radius,
+			Piece exclude, List<Piece> result) {
+		walls.findInRadius(x, y, radius, exclude, result);
+		towers.findInRadius(x, y, radius, exclude, result);
+		monsters.findInRadius(x, y, radius, exclude, result);
+		shots.findInRadius(x, y, radius, exclude, result);
+		others.findInRadius(x, y, radius, exclude, result);
+		return result;
 	}
 
-	public void changePaths() {
-		for (Piece piece : new ArrayList<Piece>(pieces))
-			if (piece instanceof Monster)
-				((Monster) piece).changePath();
+	/**
+	 * Adds to the result the monsters inside the circle.
+	 *
+	 * @param exclude A piece left out of the result, or null.
+	 * @return The result.
+	 */
+	public List<Monster> findMonsters(double x, double y, double radius,
+			Piece exclude, List<Monster> result) {
+		monsters.findInRadius(x, y, radius, exclude, result);
+		return result;
 	}
 
-	public void remakePaths(MatrixGraph graph) {
-		for (Piece piece : new ArrayList<Piece>(pieces))
-			if (piece instanceof Monster)
-				((Monster) piece).remakePath();
+	/**
+	 * Adds to the result the towers inside the circle.
+	 *
+	 * @param exclude A piece left out of the result, or null.
+	 * @return The result.
+	 */
+	public List<Tower> findTowers(double x, double y, double radius,
+			Piece exclude, List<Tower> result) {
+		towers.findInRadius(x, y, radius, exclude, result);
+		return result;
 	}
 
+	/**
+	 * @return A copy of the monsters.
+	 */
+	public List<Monster> getMonsters() {
+		return new ArrayList<Monster>(monsters.getPieces());
+	}
+
+	public int getMonsterCount() {
+		return monsters.size();
+	}
+
+	/**
+	 * @return A copy of the towers.
+	 */
+	public List<Tower> getTowers() {
+		return new ArrayList<Tower>(towers.getPieces());
+	}
+
+	/**
+	 * Makes the pieces think: first the monsters walk, then the shots fly and
+	 * hit, then the towers with monsters near choose their targets and fire.
+	 * The walls are left out. The dead pieces are removed at the end.
+	 */
 	public void processPiecesAI() {
-		for (Piece piece : new ArrayList<Piece>(pieces)){
-			piece.processAI();
-		}
+		long start = Profiler.getInstance().start();
+		monsters.processAI();
+		shots.processAI();
+		coverage.update();
+		coverage.processAI();
+		others.processAI();
 
-		Iterator<Piece> it = pieces.iterator();
-		while (it.hasNext()) {
-			Piece p = it.next();
-			if (p.isDead())
-				it.remove();
+		monsters.removeDead(null);
+		shots.removeDead(null);
+		towers.removeDead(deadTowers);
+		for (int i = 0; i < deadTowers.size(); i++) {
+			coverage.removeTower(deadTowers.get(i));
+			auras.removeTower(deadTowers.get(i));
 		}
+		deadTowers.clear();
+		others.removeDead(null);
+		Profiler.getInstance().stop(PROCESS_AI_SLOT, start);
+	}
+
+	public void snapshot(RenderSnapshot snapshot) {
+		snapshot(walls, snapshot);
+		snapshot(towers, snapshot);
+		snapshot(monsters, snapshot);
+		snapshot(shots, snapshot);
+		snapshot(others, snapshot);
 	}
 
-	public void draw(Graphics2D g2d) {
-		for (Piece piece : new ArrayList<Piece>(pieces))
-			piece.draw(g2d);
+	private static void snapshot(PieceRegistry<?> registry,
+			RenderSnapshot snapshot) {
+		List<? extends Piece> list = registry.getPieces();
+		for (int i = 0; i < list.size(); i++)
+			list.get(i).snapshot(snapshot);
 	}
 }
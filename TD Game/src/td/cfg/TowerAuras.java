@@ -0,0 +1,102 @@
+package td.cfg;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import td.pieces.BuffTower;
+import td.pieces.Tower;
+
+/**
+ * The auras of the buff towers: the towers each buff tower buffs. The towers
+ * never move, so the auras change only when towers are added or removed: a
+ * buff tower added buffs the towers in its range, a tower added gets the buffs
+ * of the buff towers it is in the range of, and a buff tower removed takes its
+ * buffs back. Buff towers don't buff each other.
+ */
+class TowerAuras {
+	private PieceRegistry<Tower> towers;
+	// the towers buffed by each buff tower
+	private Map<BuffTower, List<Tower>> buffed = new IdentityHashMap<BuffTower, List<Tower>>();
+	// the widest range of the buff towers, to find the ones near a tower
+	private double maxRadius;
+
+	private List<Tower> near = new ArrayList<Tower>();
+
+	/**
+	 * @param towers The towers of the game, searched for the towers in the
+	 *            range of a buff tower.
+	 */
+	public TowerAuras(PieceRegistry<Tower> towers) {
+		this.towers = towers;
+	}
+
+	/**
+	 * Applies the auras touching a tower just added to the game.
+	 */
+	public void addTower(Tower tower) {
+		if (tower instanceof BuffTower) {
+			BuffTower buffTower = (BuffTower) tower;
+			List<Tower> list = new ArrayList<Tower>();
+			for (Tower t : findNear(buffTower, buffTower.getVisionRadius()))
+				if (!(t instanceof BuffTower)) {
+					list.add(t);
+					t.addModifier(buffTower.getModifier());
+				}
+			buffed.put(buffTower, list);
+			maxRadius = Math.max(maxRadius, buffTower.getVisionRadius());
+			return;
+		}
+
+		for (BuffTower buffTower : findBuffTowers(tower)) {
+			buffed.get(buffTower).add(tower);
+			tower.addModifier(buffTower.getModifier());
+		}
+	}
+
+	/**
+	 * Takes back the auras of a tower removed from the game, or the buffs it
+	 * was given.
+	 */
+	public void removeTower(Tower tower) {
+		if (tower instanceof BuffTower) {
+			BuffTower buffTower = (BuffTower) tower;
+			List<Tower> list = buffed.remove(buffTower);
+			if (list != null)
+				for (int i = 0; i < list.size(); i++)
+					list.get(i).removeModifier(buffTower.getModifier());
+			return;
+		}
+
+		for (BuffTower buffTower : findBuffTowers(tower)) {
+			buffed.get(buffTower).remove(tower);
+			tower.removeModifier(buffTower.getModifier());
+		}
+	}
+
+	/**
+	 * @return The buff towers with the tower in their range. The search is a
+	 *         pixel wider than the buff towers, as the circles are tested from
+	 *         the buff towers.
+	 */
+	private List<BuffTower> findBuffTowers(Tower tower) {
+		List<BuffTower> result = new ArrayList<BuffTower>();
+		if (buffed.isEmpty())
+			return result;
+
+		for (Tower t : findNear(tower, maxRadius + 1))
+			if (t instanceof BuffTower
+					&& buffed.containsKey(t)
+					&& PieceGrid.contains(t.getX(), t.getY(), t
+							.getVisionRadius(), tower))
+				result.add((BuffTower) t);
+		return result;
+	}
+
+	private List<Tower> findNear(Tower tower, double radius) {
+		near.clear();
+		towers.findInRadius(tower.getX(), tower.getY(), radius, tower, near);
+		return near;
+	}
+}
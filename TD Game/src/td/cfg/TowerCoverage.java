@@ -0,0 +1,463 @@
+package td.cfg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import td.pieces.Monster;
+import td.pieces.Targeting;
+import td.pieces.Tower;
+
+/**
+ * Knows, for each tile of the map, the towers whose range covers some point of
+ * it, and for each tower the monsters standing on the tiles it covers, in the
+ * order of its targeting. A tower with no monster on its tiles can't see any,
+ * so it sleeps: it isn't visited by the ticks until a monster walks into one
+ * of its tiles, which wakes it up. Only the towers covering the tiles a
+ * monster leaves and enters are visited when it moves.
+ * <p>
+ * The monsters are ordered by how many tiles of their paths they have left,
+ * their health and their speed, as they were in the last update(). A monster
+ * is moved in the orders of the towers covering its tile only when one of
+ * them changes, which is when it reaches a tile, is hit or is slowed, so the
+ * monster a tower should fire at is found in logarithmic time.
+ * <p>
+ * The tiles of a tower are found again when it is added, removed or its range
+ * or targeting changes. The monsters only ever stand on the tiles they can
+ * walk, so the other tiles are covered but stay empty. Monsters outside the
+ * map are on the tiles of its border.
+ * <p>
+ * The towers that don't look for monsters, such as the buff towers, never
+ * think.
+ */
+class TowerCoverage {
+	private static class TowerState {
+		private Tower tower;
+		// the order in which the towers were added, which is the order they
+		// think in
+		private long order;
+		private List<Integer> tiles = new ArrayList<Integer>();
+		private Targeting targeting;
+		private TreeSet<MonsterState> monsters;
+		private boolean awake;
+		// marks the towers covering the tile a monster leaves
+		private int mark;
+	}
+
+	private static class MonsterState {
+		private Monster monster;
+		// the order in which the monsters were added, for the ties
+		private long order;
+		private int tile;
+		// the index of the monster in the list of its tile
+		private int tileIndex;
+		private int remainingTiles;
+		private int health;
+		private double speed;
+	}
+
+	private static final Comparator<MonsterState> FIRST = new Comparator<MonsterState>() {
+		public int compare(MonsterState a, MonsterState b) {
+			if (a.remainingTiles != b.remainingTiles)
+				return a.remainingTiles < b.remainingTiles ? -1 : 1;
+			return compareOrder(a, b);
+		}
+	};
+
+	private static final Comparator<MonsterState> LAST = new Comparator<MonsterState>() {
+		public int compare(MonsterState a, MonsterState b) {
+			return FIRST.compare(b, a);
+		}
+	};
+
+	private static final Comparator<MonsterState> STRONGEST = new Comparator<MonsterState>() {
+		public int compare(MonsterState a, MonsterState b) {
+			if (a.health != b.health)
+				return a.health > b.health ? -1 : 1;
+			return FIRST.compare(a, b);
+		}
+	};
+
+	private static final Comparator<MonsterState> FASTEST = new Comparator<MonsterState>() {
+		public int compare(MonsterState a, MonsterState b) {
+			if (a.speed != b.speed)
+				return a.speed > b.speed ? -1 : 1;
+			return FIRST.compare(a, b);
+		}
+	};
+
+	private static int compareOrder(MonsterState a, MonsterState b) {
+		return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+	}
+
+	private static Comparator<MonsterState> comparator(Targeting targeting) {
+		switch (targeting) {
+		case LAST:
+			return LAST;
+		case STRONGEST:
+			return STRONGEST;
+		case FASTEST:
+			return FASTEST;
+		default:
+			return FIRST;
+		}
+	}
+
+	private int columns = GameConfig.TILE_WIDTH;
+	private int rows = GameConfig.TILE_HEIGHT;
+
+	private List<List<TowerState>> tileTowers;
+	private List<List<MonsterState>> tileMonsters;
+
+	private Map<Tower, TowerState> towers = new IdentityHashMap<Tower, TowerState>();
+	private long nextTowerOrder;
+	// the towers that think, in the order they were added
+	private List<TowerState> awake = new ArrayList<TowerState>();
+	// the tower thinking, while the towers think
+	private int current = -1;
+
+	// the monsters, in the order they were added
+	private List<MonsterState> monsters = new ArrayList<MonsterState>();
+	private long nextMonsterOrder;
+	private int nextMark;
+	private List<TowerState> reordered = new ArrayList<TowerState>();
+
+	public TowerCoverage() {
+		tileTowers = new ArrayList<List<TowerState>>(columns * rows);
+		tileMonsters = new ArrayList<List<MonsterState>>(columns * rows);
+		for (int i = 0; i < columns * rows; i++) {
+			tileTowers.add(new ArrayList<TowerState>(0));
+			tileMonsters.add(new ArrayList<MonsterState>(0));
+		}
+	}
+
+	private int tileOf(double x, double y) {
+		int column = Math.max(0, Math.min(columns - 1, (int) Math.floor(x
+				/ GameConfig.TILE_SIZE)));
+		int row = Math.max(0, Math.min(rows - 1, (int) Math.floor(y
+				/ GameConfig.TILE_SIZE)));
+		return row * columns + column;
+	}
+
+	public void addTower(Tower tower) {
+		TowerState state = new TowerState();
+		state.tower = tower;
+		state.order = nextTowerOrder++;
+		state.targeting = tower.getTargeting();
+		state.monsters = new TreeSet<MonsterState>(comparator(state.targeting));
+		towers.put(tower, state);
+		if (tower.isTargetingMonsters())
+			cover(state);
+	}
+
+	public void removeTower(Tower tower) {
+		TowerState state = towers.remove(tower);
+		if (state == null)
+			return;
+
+		uncover(state);
+		if (state.awake)
+			sleep(state);
+	}
+
+	/**
+	 * Finds again the tiles covered by the tower and the order of their
+	 * monsters, after its range or targeting changed.
+	 */
+	public void update(Tower tower) {
+		TowerState state = towers.get(tower);
+		if (state == null || !tower.isTargetingMonsters())
+			return;
+
+		uncover(state);
+		cover(state);
+	}
+
+	/**
+	 * Adds the tower to the tiles touched by its circle, from the center of
+	 * the tower to the nearest point of each tile, with a pixel to spare for
+	 * the rounding of Ellipse2D.contains(). The tiles of the border go on
+	 * outside the map.
+	 */
+	private void cover(TowerState state) {
+		Tower tower = state.tower;
+		if (state.targeting != tower.getTargeting()) {
+			state.targeting = tower.getTargeting();
+			state.monsters = new TreeSet<MonsterState>(
+					comparator(state.targeting));
+		}
+
+		double x = tower.getX();
+		double y = tower.getY();
+		double radius = tower.getVisionRadius();
+		if (radius <= 0)
+			return;
+
+		double reach = (radius + 1) * (radius + 1);
+		int first = tileOf(x - radius - 1, y - radius - 1);
+		int last = tileOf(x + radius + 1, y + radius + 1);
+		for (int row = first / columns; row <= last / columns; row++)
+			for (int column = first % columns; column <= last % columns; column++) {
+				double dx = distance(x, column, columns);
+				double dy = distance(y, row, rows);
+				if (dx * dx + dy * dy > reach)
+					continue;
+
+				int tile = row * columns + column;
+				tileTowers.get(tile).add(state);
+				state.tiles.add(tile);
+				state.monsters.addAll(tileMonsters.get(tile));
+			}
+
+		if (!state.monsters.isEmpty())
+			wake(state);
+	}
+
+	/**
+	 * @return The distance from the coordinate to the given tile of a line of
+	 *         tiles, zero if inside it.
+	 */
+	private static double distance(double pixel, int tile, int tiles) {
+		double start = tile * GameConfig.TILE_SIZE;
+		double end = start + GameConfig.TILE_SIZE;
+		if (pixel < start && tile > 0)
+			return start - pixel;
+		if (pixel > end && tile < tiles - 1)
+			return pixel - end;
+		return 0;
+	}
+
+	private void uncover(TowerState state) {
+		for (int i = 0; i < state.tiles.size(); i++)
+			tileTowers.get(state.tiles.get(i)).remove(state);
+		state.tiles.clear();
+		state.monsters.clear();
+	}
+
+	public void addMonster(Monster monster) {
+		MonsterState state = new MonsterState();
+		state.monster = monster;
+		state.order = nextMonsterOrder++;
+		monsters.add(state);
+		enter(state);
+	}
+
+	public void removeMonster(Monster monster) {
+		for (int i = 0; i < monsters.size(); i++)
+			if (monsters.get(i).monster == monster) {
+				leave(monsters.remove(i));
+				return;
+			}
+	}
+
+	/**
+	 * Moves the monsters that walked to other tiles, waking the towers that
+	 * cover their new tiles, and in the orders of the towers the monsters
+	 * that were hit or slowed or reached a tile. The dead monsters are
+	 * removed. Called before the towers think.
+	 */
+	public void update() {
+		int size = monsters.size();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			MonsterState state = monsters.get(i);
+			Monster monster = state.monster;
+			if (monster.isDead()) {
+				leave(state);
+				continue;
+			}
+			monsters.set(kept++, state);
+
+			int tile = tileOf(monster.getX(), monster.getY());
+			boolean health = state.health != monster.getHealth();
+			boolean speed = state.speed != monster.getSpeed();
+			if (state.remainingTiles != monster.getRemainingTiles()) {
+				leave(state);
+				enter(state);
+			} else if (tile != state.tile) {
+				if (health || speed) {
+					leave(state);
+					enter(state);
+				} else
+					move(state, tile);
+			} else if (health || speed)
+				reorder(state, health, speed);
+		}
+		monsters.subList(kept, size).clear();
+	}
+
+	/**
+	 * Reads the tile and the orders of the monster and adds it to the towers
+	 * covering the tile.
+	 */
+	private void enter(MonsterState state) {
+		Monster monster = state.monster;
+		state.remainingTiles = monster.getRemainingTiles();
+		state.health = monster.getHealth();
+		state.speed = monster.getSpeed();
+		addToTile(state, tileOf(monster.getX(), monster.getY()));
+
+		List<TowerState> towers = tileTowers.get(state.tile);
+		for (int i = 0; i < towers.size(); i++)
+			add(towers.get(i), state);
+	}
+
+	/**
+	 * Takes the monster from the towers covering its tile, before its tile or
+	 * orders are read again.
+	 */
+	private void leave(MonsterState state) {
+		removeFromTile(state);
+		List<TowerState> towers = tileTowers.get(state.tile);
+		for (int i = 0; i < towers.size(); i++)
+			towers.get(i).monsters.remove(state);
+	}
+
+	/**
+	 * Moves a monster whose orders didn't change to another tile, leaving it
+	 * where it is in the towers covering both tiles.
+	 */
+	private void move(MonsterState state, int tile) {
+		int mark = ++nextMark;
+		List<TowerState> from = tileTowers.get(state.tile);
+		for (int i = 0; i < from.size(); i++)
+			from.get(i).mark = mark;
+
+		List<TowerState> to = tileTowers.get(tile);
+		for (int i = 0; i < to.size(); i++) {
+			TowerState tower = to.get(i);
+			if (tower.mark == mark)
+				tower.mark = 0;
+			else
+				add(tower, state);
+		}
+		for (int i = 0; i < from.size(); i++)
+			if (from.get(i).mark == mark)
+				from.get(i).monsters.remove(state);
+
+		removeFromTile(state);
+		addToTile(state, tile);
+	}
+
+	/**
+	 * Moves a monster in the orders of the towers of its tile that target by
+	 * health or by speed, after it was hit or slowed. The other orders don't
+	 * read them.
+	 */
+	private void reorder(MonsterState state, boolean health, boolean speed) {
+		List<TowerState> towers = tileTowers.get(state.tile);
+		for (int i = 0; i < towers.size(); i++) {
+			TowerState tower = towers.get(i);
+			if ((health && tower.targeting == Targeting.STRONGEST)
+					|| (speed && tower.targeting == Targeting.FASTEST)) {
+				tower.monsters.remove(state);
+				reordered.add(tower);
+			}
+		}
+
+		state.health = state.monster.getHealth();
+		state.speed = state.monster.getSpeed();
+		for (int i = 0; i < reordered.size(); i++)
+			reordered.get(i).monsters.add(state);
+		reordered.clear();
+	}
+
+	private void add(TowerState tower, MonsterState state) {
+		tower.monsters.add(state);
+		if (tower.monsters.size() == 1)
+			wake(tower);
+	}
+
+	private void addToTile(MonsterState state, int tile) {
+		List<MonsterState> monsters = tileMonsters.get(tile);
+		state.tile = tile;
+		state.tileIndex = monsters.size();
+		monsters.add(state);
+	}
+
+	private void removeFromTile(MonsterState state) {
+		List<MonsterState> monsters = tileMonsters.get(state.tile);
+		MonsterState moved = monsters.remove(monsters.size() - 1);
+		if (moved != state) {
+			monsters.set(state.tileIndex, moved);
+			moved.tileIndex = state.tileIndex;
+		}
+	}
+
+	/**
+	 * @return The first monster in the range of the tower, in the order of
+	 *         its targeting, or null.
+	 */
+	public Monster findTarget(Tower tower) {
+		TowerState state = towers.get(tower);
+		if (state == null)
+			return null;
+
+		double radius = tower.getVisionRadius();
+		for (MonsterState monster : state.monsters)
+			if (!monster.monster.isDead()
+					&& PieceGrid.contains(tower.getX(), tower.getY(), radius,
+							monster.monster))
+				return monster.monster;
+		return null;
+	}
+
+	/**
+	 * Makes the tower think from now on. If the towers are thinking, it thinks
+	 * in this tick if its turn hasn't passed yet, as it would if it had never
+	 * slept.
+	 */
+	private void wake(TowerState state) {
+		if (state.awake)
+			return;
+
+		int low = 0;
+		int high = awake.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (awake.get(middle).order < state.order)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		awake.add(low, state);
+		state.awake = true;
+		if (low <= current)
+			current++;
+	}
+
+	private void sleep(TowerState state) {
+		int index = awake.indexOf(state);
+		awake.remove(index);
+		state.awake = false;
+		if (index <= current)
+			current--;
+	}
+
+	/**
+	 * Makes the towers that are awake think, in the order they were added.
+	 * The ones with no monster left on their tiles fall asleep instead.
+	 */
+	public void processAI() {
+		for (current = 0; current < awake.size(); current++) {
+			TowerState state = awake.get(current);
+			if (!state.monsters.isEmpty())
+				state.tower.processAI();
+			else {
+				state.tower.sleep();
+				sleep(state);
+			}
+		}
+		current = -1;
+	}
+
+	/**
+	 * @return The number of towers awake.
+	 */
+	public int getAwakeCount() {
+		return awake.size();
+	}
+}
@@ -1,5 +1,6 @@
 package td.effect;
 
+import jgf.core.GameClock;
 import td.pieces.Monster;
 
 public class Effect {
@@ -26,8 +27,8 @@ public class Effect {
 		return duration;
 	}
 
-	public boolean hasEnd() {
-		long elapsed = System.currentTimeMillis() - firstTick;
+	public boolean hasEnd(GameClock clock) {
+		long elapsed = clock.currentTimeMillis() - firstTick;
 		return (elapsed > duration * 1000);
 	}
 
@@ -35,10 +36,11 @@ public class Effect {
 		if (id == NONE)
 			return;
 
+		GameClock clock = monster.getContext().getClock();
 		if (firstTick == 0)
-			firstTick = System.currentTimeMillis();
+			firstTick = clock.currentTimeMillis();
 
-		if (hasEnd()) {
+		if (hasEnd(clock)) {
 			monster.setSpeed(monster.getMaxSpeed());
 			return;
 		}
@@ -1,26 +1,43 @@
 package td.effect;
 
-import java.util.ArrayList;
-import java.util.List;
+/**
+ * What a buff tower does to the towers in its range. A tower can be buffed by
+ * many buff towers, even of the same kind, and keeps how many of each kind of
+ * modifier it has, so the ordinal of a modifier is its index in the stacks of
+ * the towers.
+ */
+public enum TowerModifier {
+	/** Adds 10% to the damage of the shots. */
+	DAMAGE {
+		@Override
+		public int modifyShootStrenght(int shootStrenght) {
+			return shootStrenght * 110 / 100;
+		}
+	},
+	/** Takes 10% from the time between two shots. */
+	FIRE_RATE {
+		@Override
+		public int modifyFireRate(int fireRate) {
+			return fireRate * 90 / 100;
+		}
+	},
+	/** Adds 10% to the range. */
+	RANGE {
+		@Override
+		public double modifyVisionRadius(double visionRadius) {
+			return visionRadius * 110 / 100;
+		}
+	};
 
-import td.pieces.Tower;
-
-public abstract class TowerModifier {
-	private int id;
-	private List<Tower> buffeds;
-
-	public TowerModifier(int id) {
-		this.id = id;
-		buffeds = new ArrayList<Tower>();
+	public int modifyShootStrenght(int shootStrenght) {
+		return shootStrenght;
 	}
 
-	public boolean canBuff(Tower t) {
-		return buffeds.contains(t);
+	public int modifyFireRate(int fireRate) {
+		return fireRate;
 	}
 
-	public abstract void modify(Tower t);
-
-	public int getId() {
-		return id;
+	public double modifyVisionRadius(double visionRadius) {
+		return visionRadius;
 	}
 }
@@ -29,9 +29,11 @@ public class BuildGUI extends JPanel {
 
 	private InfoArea infoArea;
 	private TowerLabelGroup group;
+	private TDGame game;
 
-	public BuildGUI() {
+	public BuildGUI(TDGame game) {
 		super();
+		this.game = game;
 		setBackground(Color.gray);
 		setBorder(new TitledBorder("Build"));
 		setMinimumSize(new Dimension(200, 120));
@@ -93,7 +95,7 @@ public class BuildGUI extends JPanel {
 			if (t != null) {
 				t.highlight = true;
 				selected = t.tower;
-				TDGame.getInstance().unselectTowers();
+				game.unselectTowers();
 			}
 			for (TowerLabel l : labels) {
 				if (l != t)
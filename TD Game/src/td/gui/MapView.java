@@ -9,14 +9,15 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.swing.JOptionPane;
-
 import jgf.core.LoopSteps;
+import jgf.core.TripleBuffer;
+import jgf.pathfinding.BlockingTileIndex;
 import jgf.pathfinding.MatrixGraph;
 import td.cfg.GameConfig;
 import td.hud.HighUpDisplayRender;
 import td.hud.LevelScrollBar;
 import td.level.EmptyWave;
+import td.level.WaveManager;
 import td.level.WaveLevel;
 import td.pieces.template.MonsterTemplate;
 
@@ -26,10 +27,15 @@ public class MapView extends Canvas implements LoopSteps {
 	private TileBackground background;
 	private List<HighUpDisplay> huds;
 	private MatrixGraph graph;
+	private TripleBuffer<RenderSnapshot> snapshots;
+	private TDGame game;
 
-	public MapView() {
+	public MapView(TDGame game) {
+		this.game = game;
 		huds = new ArrayList<HighUpDisplay>();
-		graph = new MatrixGraph(GameConfig.TILE_WIDTH, GameConfig.TILE_HEIGHT);
+		graph = game.getContext().getGraph();
+		snapshots = new TripleBuffer<RenderSnapshot>(new RenderSnapshot(),
+				new RenderSnapshot(), new RenderSnapshot());
 
 		setMinimumSize(new Dimension(GameConfig.MAP_WIDTH,
 				GameConfig.MAP_HEIGHT));
@@ -41,72 +47,45 @@ public class MapView extends Canvas implements LoopSteps {
 	}
 
 	public void setupLevel() {
-		TDGame.getInstance().getWaveManager().add(new EmptyWave(0), 30);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(5, MonsterTemplate.Basic, 1, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(5, MonsterTemplate.Fast, 2, 500, 1), 1);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(10, MonsterTemplate.Basic, 3, 500, 5), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(5, MonsterTemplate.Fast, 4, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(15, MonsterTemplate.Imune, 5, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(5, MonsterTemplate.Fast, 6, 10, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(20, MonsterTemplate.Basic, 7, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(5, MonsterTemplate.Basic, 8, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(25, MonsterTemplate.Fast, 9, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
+		WaveManager waves = game.getWaveManager();
+		waves.add(new EmptyWave(0), 30);
+		waves.add(new WaveLevel(5, MonsterTemplate.Basic, 1, 500, 1), 10);
+		waves.add(new WaveLevel(5, MonsterTemplate.Fast, 2, 500, 1), 1);
+		waves.add(new WaveLevel(10, MonsterTemplate.Basic, 3, 500, 5), 10);
+		waves.add(new WaveLevel(5, MonsterTemplate.Fast, 4, 1000, 1), 10);
+		waves.add(new WaveLevel(15, MonsterTemplate.Imune, 5, 1000, 1), 10);
+		waves.add(new WaveLevel(5, MonsterTemplate.Fast, 6, 10, 1), 10);
+		waves.add(new WaveLevel(20, MonsterTemplate.Basic, 7, 500, 1), 10);
+		waves.add(new WaveLevel(5, MonsterTemplate.Basic, 8, 1000, 1), 10);
+		waves.add(new WaveLevel(25, MonsterTemplate.Fast, 9, 500, 1), 10);
+		waves.add(
 				new WaveLevel(5, MonsterTemplate.Basic, 10, 1000, 1, true), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(30, MonsterTemplate.Fast, 11, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(10, MonsterTemplate.Imune, 12, 500, 1), 1);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(35, MonsterTemplate.Basic, 13, 500, 5), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(10, MonsterTemplate.Fast, 14, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(40, MonsterTemplate.Imune, 15, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(10, MonsterTemplate.Fast, 16, 10, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(45, MonsterTemplate.Basic, 17, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(10, MonsterTemplate.Basic, 18, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(60, MonsterTemplate.Imune, 19, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(65, MonsterTemplate.Fast, 20, 1000, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(65, MonsterTemplate.Fast, 21, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(70, MonsterTemplate.Imune, 22, 500, 1), 1);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(70, MonsterTemplate.Basic, 23, 500, 5), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(75, MonsterTemplate.Fast, 24, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(75, MonsterTemplate.Imune, 25, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(80, MonsterTemplate.Fast, 26, 10, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(80, MonsterTemplate.Basic, 27, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(85, MonsterTemplate.Fast, 28, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
-				new WaveLevel(85, MonsterTemplate.Fast, 29, 500, 1), 10);
-		TDGame.getInstance().getWaveManager().add(
+		waves.add(new WaveLevel(30, MonsterTemplate.Fast, 11, 500, 1), 10);
+		waves.add(new WaveLevel(10, MonsterTemplate.Imune, 12, 500, 1), 1);
+		waves.add(new WaveLevel(35, MonsterTemplate.Basic, 13, 500, 5), 10);
+		waves.add(new WaveLevel(10, MonsterTemplate.Fast, 14, 1000, 1), 10);
+		waves.add(new WaveLevel(40, MonsterTemplate.Imune, 15, 1000, 1), 10);
+		waves.add(new WaveLevel(10, MonsterTemplate.Fast, 16, 10, 1), 10);
+		waves.add(new WaveLevel(45, MonsterTemplate.Basic, 17, 500, 1), 10);
+		waves.add(new WaveLevel(10, MonsterTemplate.Basic, 18, 1000, 1), 10);
+		waves.add(new WaveLevel(60, MonsterTemplate.Imune, 19, 500, 1), 10);
+		waves.add(new WaveLevel(65, MonsterTemplate.Fast, 20, 1000, 1), 10);
+		waves.add(new WaveLevel(65, MonsterTemplate.Fast, 21, 500, 1), 10);
+		waves.add(new WaveLevel(70, MonsterTemplate.Imune, 22, 500, 1), 1);
+		waves.add(new WaveLevel(70, MonsterTemplate.Basic, 23, 500, 5), 10);
+		waves.add(new WaveLevel(75, MonsterTemplate.Fast, 24, 500, 1), 10);
+		waves.add(new WaveLevel(75, MonsterTemplate.Imune, 25, 500, 1), 10);
+		waves.add(new WaveLevel(80, MonsterTemplate.Fast, 26, 10, 1), 10);
+		waves.add(new WaveLevel(80, MonsterTemplate.Basic, 27, 500, 1), 10);
+		waves.add(new WaveLevel(85, MonsterTemplate.Fast, 28, 500, 1), 10);
+		waves.add(new WaveLevel(85, MonsterTemplate.Fast, 29, 500, 1), 10);
+		waves.add(
 				new WaveLevel(90, MonsterTemplate.Imune, 30, 1000, 1, true), 10);
-		TDGame.getInstance().getWaveManager().sortLevels();
+		waves.sortLevels();
 
-		addHUD(300, 10, 200, 20, new td.hud.Stats());
-		addHUD(100, 550, 400, 30, new LevelScrollBar(TDGame.getInstance()
-				.getWaveManager()));
+		addHUD(300, 10, 200, 20, new td.hud.Stats(game.getContext()
+				.getPlayer()));
+		addHUD(100, 550, 400, 30, new LevelScrollBar(waves));
 	}
 
 	@SuppressWarnings("unused")
@@ -130,40 +109,86 @@ public class MapView extends Canvas implements LoopSteps {
 		return graph;
 	}
 
+	private void drawBlockingTiles(Graphics2D g2d, boolean[] blockingTiles) {
+		Graphics2D surface = (Graphics2D) g2d.create();
+		surface.setComposite(AlphaComposite.SrcOver.derive(0.3f));
+		surface.setColor(Color.RED);
+		for (int i = 0; i < graph.getWidth(); i++)
+			for (int j = 0; j < graph.getHeight(); j++)
+				if (blockingTiles[graph.toIndex(i, j)])
+					surface.fillRect(i * GameConfig.TILE_SIZE, j
+							* GameConfig.TILE_SIZE, GameConfig.TILE_SIZE,
+							GameConfig.TILE_SIZE);
+		surface.dispose();
+	}
+
+	/**
+	 * Draws the last published snapshot. Called by the render thread.
+	 */
 	public void draw(Graphics2D surface) {
+		RenderSnapshot snapshot = snapshots.getFrontBuffer();
+
 		Graphics2D g2d = (Graphics2D) surface.create();
 		background.draw(g2d);
-		TDGame.getInstance().getPiecesManager().draw(g2d);
+		boolean[] blockingTiles = snapshot.getBlockingTiles();
+		if (blockingTiles != null)
+			drawBlockingTiles(g2d, blockingTiles);
+		snapshot.draw(g2d, System.nanoTime());
 		for (HighUpDisplay hud : huds)
 			hud.renderGraphics(g2d);
 		g2d.dispose();
 	}
 
+	/**
+	 * Publishes what the renderer needs to draw this tick. Called by the logic
+	 * thread at the end of each tick.
+	 */
+	public void publishSnapshot() {
+		RenderSnapshot snapshot = snapshots.getBackBuffer();
+		snapshot.clear();
+		game.getPiecesManager().snapshot(snapshot);
+
+		BlockingTileIndex index = game.getBlockingIndex();
+		if (index != null && game.isPlacingTower())
+			snapshot.showBlockingTiles(index, graph);
+
+		snapshot.setTime(System.nanoTime(), game.getClock().getNanosPerTick());
+		snapshots.publish();
+	}
+
 	public void paintScreen() {
 		getBufferStrategy().show();
 	}
 
 	public void processLogics() {
-		TDGame.getInstance().getPiecesManager().processPiecesAI();
-		TDGame.getInstance().getWaveManager().proccess(graph);
+		game.getPiecesManager().processPiecesAI();
+		game.getWaveManager().proccess(game.getContext());
 		
 		for (HighUpDisplay hud : huds)
 			hud.render.processLogics();
-		if(GameConfig.player.isOver()){
-			JOptionPane.showMessageDialog(null, "Game Over!");
-			TDGame.getInstance().getMainLoop().stop();
+		if(game.getContext().getPlayer().isOver()){
+			game.gameOver();
 			return;
 		}
 	}
 
 	public void renderGraphics() {
 		Graphics2D g2d = (Graphics2D) getBufferStrategy().getDrawGraphics();
-		g2d.clearRect(0, 0, GameConfig.MAP_WIDTH, GameConfig.MAP_HEIGHT);
-		draw(g2d);
+		render(g2d);
 		g2d.dispose();
 
 	}
 
+	/**
+	 * Clears the map and draws the last published snapshot, as
+	 * renderGraphics() does on the screen. The surface can also be an
+	 * off-screen image.
+	 */
+	public void render(Graphics2D surface) {
+		surface.clearRect(0, 0, GameConfig.MAP_WIDTH, GameConfig.MAP_HEIGHT);
+		draw(surface);
+	}
+
 	public void setup() {
 		createBufferStrategy(2);
 		setIgnoreRepaint(false);
@@ -0,0 +1,213 @@
+package td.gui;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import jgf.imaging.ImageWorker;
+import jgf.pathfinding.BlockingTileIndex;
+import jgf.pathfinding.MatrixGraph;
+
+/**
+ * What the renderer needs to draw the pieces as they were at the end of a
+ * tick: images, positions, angles, life bars and selections.
+ * <p>
+ * Snapshots are filled by the logic thread and handed to the render thread by
+ * a TripleBuffer, so the renderer never reads the pieces while they change. The
+ * position of each piece in the previous snapshot is kept too, and the frames
+ * drawn between two ticks interpolate them.
+ */
+public class RenderSnapshot {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int size;
+	private BufferedImage[] images = new BufferedImage[INITIAL_CAPACITY];
+	private double[] x = new double[INITIAL_CAPACITY];
+	private double[] y = new double[INITIAL_CAPACITY];
+	private double[] previousX = new double[INITIAL_CAPACITY];
+	private double[] previousY = new double[INITIAL_CAPACITY];
+	// NaN if the image isn't rotated
+	private double[] angles = new double[INITIAL_CAPACITY];
+	// percent of the health, or -1 if there is no life bar
+	private int[] lifes = new int[INITIAL_CAPACITY];
+	private boolean[] slowed = new boolean[INITIAL_CAPACITY];
+	// vision radius of the selected pieces, 0 if not selected
+	private double[] selections = new double[INITIAL_CAPACITY];
+
+	private boolean[] blockingTiles;
+	private boolean blockingShown;
+
+	private long publishTime;
+	private long tickTime = 1;
+
+	/**
+	 * Removes every piece, to fill the snapshot of a new tick.
+	 */
+	public void clear() {
+		Arrays.fill(images, 0, size, null);
+		size = 0;
+		blockingShown = false;
+	}
+
+	/**
+	 * Adds a piece, drawn with the image at the given position.
+	 *
+	 * @return The index of the piece in this snapshot.
+	 */
+	public int add(BufferedImage image, double x, double y, double previousX,
+			double previousY) {
+		if (size == images.length)
+			grow();
+
+		int piece = size++;
+		images[piece] = image;
+		this.x[piece] = x;
+		this.y[piece] = y;
+		this.previousX[piece] = previousX;
+		this.previousY[piece] = previousY;
+		angles[piece] = Double.NaN;
+		lifes[piece] = -1;
+		slowed[piece] = false;
+		selections[piece] = 0;
+		return piece;
+	}
+
+	private void grow() {
+		int capacity = images.length * 2;
+		images = Arrays.copyOf(images, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		previousX = Arrays.copyOf(previousX, capacity);
+		previousY = Arrays.copyOf(previousY, capacity);
+		angles = Arrays.copyOf(angles, capacity);
+		lifes = Arrays.copyOf(lifes, capacity);
+		slowed = Arrays.copyOf(slowed, capacity);
+		selections = Arrays.copyOf(selections, capacity);
+	}
+
+	/**
+	 * Draws the image of the piece rotated by the angle, around its center.
+	 */
+	public void setAngle(int piece, double angle) {
+		angles[piece] = angle;
+	}
+
+	/**
+	 * Draws a life bar over the piece.
+	 *
+	 * @param percent The health left, from 0 to 100.
+	 * @param slowed If the piece is slower than its maximum speed.
+	 */
+	public void setLifeBar(int piece, int percent, boolean slowed) {
+		lifes[piece] = percent;
+		this.slowed[piece] = slowed;
+	}
+
+	/**
+	 * Draws the piece as selected, with its vision area.
+	 */
+	public void setSelected(int piece, double visionRadius) {
+		selections[piece] = visionRadius;
+	}
+
+	/**
+	 * Shows the free tiles where a tower would block the monsters.
+	 */
+	public void showBlockingTiles(BlockingTileIndex index, MatrixGraph graph) {
+		blockingTiles = index.getBlockingTiles(blockingTiles);
+		for (int i = 0; i < blockingTiles.length; i++)
+			if (blockingTiles[i]
+					&& graph.isWall(graph.indexToX(i), graph.indexToY(i)))
+				blockingTiles[i] = false;
+		blockingShown = true;
+	}
+
+	/**
+	 * @return The free tiles where a tower would block the monsters, or null
+	 *         if they aren't shown.
+	 */
+	public boolean[] getBlockingTiles() {
+		return blockingShown ? blockingTiles : null;
+	}
+
+	/**
+	 * Sets when the snapshot was published and the game time between two
+	 * ticks, both in nanoseconds.
+	 */
+	public void setTime(long publishTime, long tickTime) {
+		this.publishTime = publishTime;
+		this.tickTime = tickTime;
+	}
+
+	/**
+	 * @return The number of pieces.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Draws the pieces between their previous and current positions, as far
+	 * as the given time is from the publishing time, up to one tick later.
+	 */
+	public void draw(Graphics2D surface, long time) {
+		double alpha = (double) (time - publishTime) / tickTime;
+		alpha = Math.max(0, Math.min(1, alpha));
+
+		for (int i = 0; i < size; i++) {
+			double pieceX = previousX[i] + (x[i] - previousX[i]) * alpha;
+			double pieceY = previousY[i] + (y[i] - previousY[i]) * alpha;
+
+			Graphics2D g2d = (Graphics2D) surface.create();
+			drawImage(g2d, i, pieceX, pieceY);
+			if (lifes[i] >= 0)
+				drawLifeBar(g2d, i, pieceX, pieceY);
+			if (selections[i] > 0)
+				drawSelection(g2d, i, pieceX, pieceY);
+			g2d.dispose();
+		}
+	}
+
+	private void drawImage(Graphics2D g2d, int piece, double x, double y) {
+		BufferedImage image = images[piece];
+		if (Double.isNaN(angles[piece])) {
+			g2d.drawImage(image, (int) x, (int) y, null);
+			return;
+		}
+
+		BufferedImage rotated = ImageWorker.getInstance().rotateImage(image,
+				angles[piece]);
+		int newX = (int) (x + (image.getWidth() / 2) - rotated.getWidth() / 2);
+		int newY = (int) (y + (image.getHeight() / 2) - rotated.getHeight() / 2);
+		g2d.drawImage(rotated, newX, newY, null);
+	}
+
+	private void drawLifeBar(Graphics2D g2d, int piece, double x, double y) {
+		int percentGood = lifes[piece];
+		int percentBad = -(percentGood - 100);
+		g2d.setColor(Color.GREEN);
+		g2d.fillRect((int) x - 5, (int) y - 5, percentGood / 5, 3);
+		g2d.setColor(Color.RED);
+		g2d.fillRect((int) (x - 5) + (percentGood / 5), (int) y - 5,
+				percentBad / 5, 3);
+		if (slowed[piece]) {
+			g2d.setColor(Color.blue);
+			g2d.drawRect((int) x - 5, (int) y - 5, 20, 3);
+		}
+	}
+
+	private void drawSelection(Graphics2D g2d, int piece, double x, double y) {
+		BufferedImage image = images[piece];
+		double radius = selections[piece];
+		int xCenter = (int) (x + (image.getWidth() / 2));
+		int yCenter = (int) (y + (image.getHeight() / 2));
+		g2d.drawOval((int) (xCenter - radius), (int) (yCenter - radius),
+				(int) radius * 2, (int) radius * 2);
+
+		g2d.setComposite(AlphaComposite.SrcOver.derive(0.5f));
+		g2d.setColor(Color.white);
+		g2d.fillRect((int) x, (int) y, image.getWidth(), image.getHeight());
+	}
+}
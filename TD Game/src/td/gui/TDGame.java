@@ -1,42 +1,67 @@
 package td.gui;
 
 import java.awt.BorderLayout;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.BoxLayout;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
+import jgf.core.CatchUpPolicy;
+import jgf.core.GameClock;
+import jgf.core.HeadlessLoop;
 import jgf.core.LoopSteps;
 import jgf.core.MainLoop;
+import jgf.core.RenderLoop;
+import jgf.core.pacing.PacingStrategies;
+import jgf.core.profile.Profiler;
+import jgf.pathfinding.BlockingTileIndex;
 import jgf.pathfinding.MatrixGraph;
 import td.cfg.GameConfig;
+import td.cfg.GameContext;
 import td.cfg.PiecesManager;
+import td.level.Scenario;
 import td.level.WaveManager;
-import td.path.PathManager;
-import td.pieces.MovablePiece;
+import td.path.PathRecomputer;
 import td.pieces.Tower;
 import td.pieces.Wall;
 import td.pieces.template.TowerTemplate;
-import td.player.Player;
+import td.replay.GameChecksum;
+import td.replay.ReplayPlayer;
+import td.replay.ReplayRecorder;
 import td.util.MappedMap;
 
 public class TDGame implements LoopSteps {
 	private static final long serialVersionUID = -8012159790479062135L;
 
+	/** Logic updates per second of game time. */
+	public static final int UPS = 20;
+
 	private MappedMap<Integer, Integer, Tower> towers;
 	private JFrame gameFrame;
 	private MainLoop mainLoop;
-	private WaveManager waveManager;
-	private PiecesManager piecesManager;
+	private GameContext context;
 	private TowerInfo towerInfo;
 	private List<ActionDispatcher> logicActions;
 	private MapView mapView;
 	private BuildGUI buildGUI;
 	private TowerGroup towerGroup;
+	private BlockingTileIndex blockingIndex;
+	private PathRecomputer pathRecomputer;
+	private boolean headless;
+	private HeadlessLoop headlessLoop;
+	private Scenario scenario;
+	private ReplayRecorder recorder;
+	private ReplayPlayer replayPlayer;
 
 	private static TDGame instance;
 
@@ -47,15 +72,34 @@ public class TDGame implements LoopSteps {
 		return instance;
 	}
 
+	/**
+	 * Creates a game without any window, to be run by runHeadless(). Each
+	 * headless game has a context of its own, so many of them can run at the
+	 * same time, each in its own thread.
+	 */
+	public static TDGame createHeadless() {
+		return new TDGame(true);
+	}
+
 	private TDGame() {
+		this(false);
+	}
+
+	private TDGame(boolean headless) {
+		this.headless = headless;
+		context = new GameContext(UPS, System.nanoTime());
 		towers = new MappedMap<Integer, Integer, Tower>();
 		logicActions = new ArrayList<ActionDispatcher>();
-		mapView = new MapView();
-		buildGUI = new BuildGUI();
-		towerInfo = new TowerInfo();
+		mapView = new MapView(this);
 		towerGroup = new TowerGroup();
+		if (headless)
+			return;
+
+		buildGUI = new BuildGUI(this);
+		towerInfo = new TowerInfo(this);
 
 		mapView.addKeyListener(buildGUI.createUnselectListener());
+		mapView.addKeyListener(createSpeedListener());
 		createFrame();
 
 		gameFrame.getContentPane().setLayout(new BorderLayout());
@@ -70,9 +114,6 @@ public class TDGame implements LoopSteps {
 
 		gameFrame.pack();
 		gameFrame.setLocationRelativeTo(null);
-
-		piecesManager = new PiecesManager();
-		waveManager = new WaveManager();
 	}
 
 	private void createFrame() {
@@ -89,17 +130,55 @@ public class TDGame implements LoopSteps {
 
 	}
 
+	/**
+	 * Starts the game loops. The loop metrics are registered in JMX, and
+	 * appended every 10 seconds to the CSV file named by the td.metrics.csv
+	 * system property, if set. The profiled code is reported every 10 seconds
+	 * if the jgf.profile system property is set. The td.pacing system property
+	 * chooses how the logic loop waits: sleep, park (the default) or spin. The
+	 * td.catchup system property chooses what it does when it falls behind:
+	 * drop (the default), slow or render.
+	 */
 	public void start() {
-		mainLoop = new MainLoop(this, 20);
+		mainLoop = new MainLoop(this, UPS);
+		mainLoop.setRenderThread(RenderLoop.DEFAULT_FPS);
+		String pacing = System.getProperty("td.pacing");
+		if (pacing != null)
+			mainLoop.setPacingStrategy(PacingStrategies.forName(pacing));
+		String catchUp = System.getProperty("td.catchup");
+		if (catchUp != null)
+			mainLoop.setCatchUpPolicy(CatchUpPolicy.forName(catchUp));
+		mainLoop.getMetrics().register("TDGame");
+		String csv = System.getProperty("td.metrics.csv");
+		if (csv != null)
+			mainLoop.getMetrics().startCsvDump(new File(csv), 10000);
+		if (Profiler.ENABLED)
+			Profiler.getInstance().startReport(System.out, 10000);
 		new Thread(mainLoop).start();
 	}
 
+	/**
+	 * Runs the logics of the game in the current thread, as fast as possible,
+	 * until the player loses, the last wave is over or the given number of
+	 * ticks is reached. The game must have been created by createHeadless().
+	 *
+	 * @return The number of ticks run.
+	 */
+	public long runHeadless(long maxTicks) {
+		if (!headless)
+			throw new IllegalStateException("The game has a window!");
+
+		headlessLoop = new HeadlessLoop(this, maxTicks);
+		headlessLoop.run();
+		return headlessLoop.getTicks();
+	}
+
 	public MapView getMapView() {
 		return mapView;
 	}
 
 	public PiecesManager getPiecesManager() {
-		return piecesManager;
+		return context.getPiecesManager();
 	}
 
 	public void paintScreen() {
@@ -107,11 +186,61 @@ public class TDGame implements LoopSteps {
 	}
 
 	public void processLogics() {
-		for (int i = logicActions.size() - 1; i >= 0; i--) {
-			logicActions.get(i).doAction();
-			logicActions.remove(i);
+		GameClock clock = context.getClock();
+		clock.tick();
+
+		// the paths remade since the last tick are kept before anything moves
+		pathRecomputer.publish(context.getGraph());
+		if (replayPlayer != null)
+			replayPlayer.play(this, clock.getTicks());
+
+		synchronized (logicActions) {
+			for (int i = logicActions.size() - 1; i >= 0; i--) {
+				logicActions.get(i).doAction();
+				logicActions.remove(i);
+			}
 		}
 		mapView.processLogics();
+
+		long tick = clock.getTicks();
+		if (recorder != null && tick % recorder.getChecksumInterval() == 0)
+			recorder.checksum(tick, GameChecksum.compute(context));
+		if (replayPlayer != null)
+			replayPlayer.verify(this, tick);
+
+		if (headless) {
+			if (context.getWaveManager().isFinished()
+					&& context.getPiecesManager().getMonsterCount() == 0)
+				headlessLoop.stop();
+		} else if (mainLoop == null || !mainLoop.hasPendingTicks())
+			mapView.publishSnapshot();
+	}
+
+	/**
+	 * Makes the game run faster than the normal speed, running the given
+	 * number of logic updates per frame. Does nothing in a headless game,
+	 * which always runs as fast as possible.
+	 *
+	 * @param speed 1 for the normal speed, 2, 4 or 8 to fast forward.
+	 */
+	public void setSpeed(int speed) {
+		if (mainLoop != null)
+			mainLoop.setTimeScale(speed);
+	}
+
+	/**
+	 * @return A listener that changes the speed of the game with the keys 1
+	 *         (normal), 2 (2x), 3 (4x) and 4 (8x).
+	 */
+	private KeyAdapter createSpeedListener() {
+		return new KeyAdapter() {
+			@Override
+			public void keyPressed(KeyEvent e) {
+				if (e.getKeyCode() >= KeyEvent.VK_1
+						&& e.getKeyCode() <= KeyEvent.VK_4)
+					setSpeed(1 << (e.getKeyCode() - KeyEvent.VK_1));
+			}
+		};
 	}
 
 	public void renderGraphics() {
@@ -119,7 +248,8 @@ public class TDGame implements LoopSteps {
 	}
 
 	public void setup() {
-		MatrixGraph graph = mapView.getMatrixGraph();
+		MatrixGraph graph = context.getGraph();
+		PiecesManager piecesManager = context.getPiecesManager();
 		int half = GameConfig.TILE_WIDTH / 2;
 		for (int i = 0; i < GameConfig.TILE_HEIGHT; i++) {
 			graph.set(0, i, MatrixGraph.WALL);
@@ -132,6 +262,17 @@ public class TDGame implements LoopSteps {
 					((GameConfig.TILE_WIDTH - 1) * GameConfig.TILE_SIZE), i
 							* GameConfig.TILE_SIZE));
 		}
+		// monsters spawn in the left border and leave by the right one
+		blockingIndex = new BlockingTileIndex(graph, true);
+		for (int i = half - 5; i < half; i++) {
+			context.getPathManager().addExit(graph,
+					GameConfig.TILE_WIDTH - 1, i);
+			blockingIndex.addLane(0, i, GameConfig.TILE_WIDTH - 1, i);
+		}
+		pathRecomputer = new PathRecomputer(context.getPathManager());
+		pathRecomputer.setDeterministic(recorder != null
+				|| replayPlayer != null);
+
 		for (int i = 0; i < GameConfig.TILE_WIDTH; i++) {
 			graph.set(i, 0, MatrixGraph.WALL);
 			graph.set(i, GameConfig.TILE_HEIGHT - 1, MatrixGraph.WALL);
@@ -140,70 +281,174 @@ public class TDGame implements LoopSteps {
 					((GameConfig.TILE_HEIGHT - 1) * GameConfig.TILE_SIZE)));
 		}
 
-		mapView.setup();
+		if (scenario != null)
+			placeScenarioTowers();
+
+		if (!headless)
+			mapView.setup();
+	}
+
+	/**
+	 * Builds the towers of the scenario, skipping the ones over a wall or
+	 * blocking the monsters, as placeTower() would.
+	 */
+	private void placeScenarioTowers() {
+		MatrixGraph graph = context.getGraph();
+		for (int i = 0; i < scenario.getTowerCount(); i++) {
+			int tileX = scenario.getTowerX(i);
+			int tileY = scenario.getTowerY(i);
+			if (graph.get(tileX, tileY) != MatrixGraph.WALL
+					&& !blockingIndex.isBlocking(tileX, tileY))
+				doPlaceTower(scenario.getTower(i), tileX, tileY);
+		}
 	}
 
 	public void tearDown() {
+		pathRecomputer.shutdown();
+		if (mainLoop != null)
+			mainLoop.getMetrics().stopCsvDump();
 	}
 
+	/**
+	 * Plays the game. If the td.replay.record system property is set, the
+	 * game is recorded, with a checksum every td.replay.checksum ticks (100
+	 * by default), and saved to the file it names when the game exits.
+	 */
 	public static void main(String[] args) {
-		TDGame game = TDGame.getInstance();
+		final TDGame game = TDGame.getInstance();
+		final String record = System.getProperty("td.replay.record");
+		if (record != null) {
+			game.setRecorder(new ReplayRecorder(game.getSeed(), Integer
+					.getInteger("td.replay.checksum", 100)));
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					try {
+						game.getRecorder().save(new File(record),
+								game.getClock().getTicks());
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}
 		game.mapView.setupLevel();
 		game.start();
 	}
 
-	private boolean tryAddTower(final int x, final int y) {
-		if (mapView.getMatrixGraph().get(GameConfig.pixelToTile(x),
-				GameConfig.pixelToTile(y)) == MatrixGraph.WALL)
-			return false;
+	private boolean tryAddTower(int x, int y) {
 		if (buildGUI.getSelected() == null)
 			return false;
 
-		final int tileX = GameConfig.pixelToTile(x);
-		final int tileY = GameConfig.pixelToTile(y);
-		MatrixGraph clone = (MatrixGraph) mapView.getMatrixGraph().clone();
-		clone.set(tileX, tileY, MatrixGraph.WALL);
-		try {
-			int half = GameConfig.TILE_WIDTH / 2;
-			int halfSize = half * GameConfig.TILE_SIZE;
-			int halfUtil = (halfSize - (5 * GameConfig.TILE_SIZE));
-
-			for (int i = 0; i < 5; i++) {
-				int path = halfUtil + (i * GameConfig.TILE_SIZE);
-				if (!MovablePiece.canMakePath(0, path,
-						GameConfig.MAP_WIDTH - 1, path, clone))
-					return false;
-			}
-		} catch (Exception e) {
+		return placeTower(buildGUI.getSelected(), GameConfig.pixelToTile(x),
+				GameConfig.pixelToTile(y));
+	}
+
+	/**
+	 * Places a tower in the next tick, if the tile is free, the tower doesn't
+	 * block the monsters and the player has enough gold. Nothing is placed
+	 * while a replay is played.
+	 * <p>
+	 * The game changes meanwhile, and other placements may be queued in the
+	 * same tick, so the tile is checked again by the game loop before the
+	 * tower is placed.
+	 *
+	 * @return True if the tower may be placed.
+	 */
+	public boolean placeTower(final TowerTemplate tower, final int tileX,
+			final int tileY) {
+		if (replayPlayer != null)
+			return false;
+		if (!canPlaceTower(tower, tileX, tileY))
 			return false;
-		}
 
-		final TowerTemplate tower = buildGUI.getSelected();
-		final Player currentPlayer = GameConfig.player;
+		addLogicAction(new ActionDispatcher() {
+			public void doAction() {
+				if (canPlaceTower(tower, tileX, tileY))
+					doPlaceTower(tower, tileX, tileY);
+			}
+		});
+		return true;
+	}
 
-		if (currentPlayer.getGold() < tower.getValue())
+	/**
+	 * @return True if the tile is free, the tower doesn't block the monsters
+	 *         and the player has enough gold. Only sure when called by the
+	 *         game loop.
+	 */
+	private boolean canPlaceTower(TowerTemplate tower, int tileX, int tileY) {
+		if (context.getGraph().get(tileX, tileY) == MatrixGraph.WALL)
+			return false;
+		if (blockingIndex.isBlocking(tileX, tileY))
 			return false;
 
-		getPiecesManager().makeTempPaths(clone);
+		return context.getPlayer().getGold() >= tower.getValue();
+	}
 
-		logicActions.add(new ActionDispatcher() {
-			public void doAction() {
-				mapView.getMatrixGraph().set(tileX, tileY, MatrixGraph.WALL);
-				try {
-					getPiecesManager().changePaths();
-					PathManager.getPathManager().clear();
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+	/**
+	 * Places a tower right away, with no check. Must be called by the game
+	 * loop.
+	 */
+	public void doPlaceTower(TowerTemplate tower, int tileX, int tileY) {
+		if (recorder != null)
+			recorder.place(getClock().getTicks(), tower, tileX, tileY);
+
+		MatrixGraph graph = context.getGraph();
+		graph.set(tileX, tileY, MatrixGraph.WALL);
+		// the monsters keep walking while their paths are remade
+		pathRecomputer.request(graph, getPiecesManager().getMonsters());
+
+		Tower t = tower.createTower(GameConfig.tileToPixel(tileX), GameConfig
+				.tileToPixel(tileY), context);
+		towerGroup.add(t);
+		context.getPlayer().spendGold(tower.getValue());
+		towers.put(tileX, tileY, t);
+		getPiecesManager().add(t);
+	}
 
-				Tower t = tower.createTower(x, y, mapView.getMatrixGraph());
-				towerGroup.add(t);
-				currentPlayer.spendGold(tower.getValue());
-				towers.put(tileX, tileY, t);
-				getPiecesManager().add(t);
+	/**
+	 * Upgrades a tower in the next tick, if the player has enough gold.
+	 * Nothing is upgraded while a replay is played.
+	 */
+	public void upgradeTower(Tower t) {
+		if (replayPlayer != null)
+			return;
+
+		final int xTile = GameConfig.pixelToTile(t.getX());
+		final int yTile = GameConfig.pixelToTile(t.getY());
+		addLogicAction(new ActionDispatcher() {
+			public void doAction() {
+				doUpgradeTower(xTile, yTile);
 			}
 		});
-		return true;
+	}
+
+	/**
+	 * Upgrades the tower in the tile right away. Must be called by the game
+	 * loop.
+	 */
+	public void doUpgradeTower(int tileX, int tileY) {
+		final Tower t = towers.get(tileX, tileY);
+		if (t == null)
+			return;
+		if (recorder != null)
+			recorder.upgrade(getClock().getTicks(), tileX, tileY);
+
+		t.upgrade();
+		if (towerInfo != null)
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					towerInfo.refresh(t);
+				}
+			});
+	}
+
+	/**
+	 * Queues an action to be done by the game loop in its next tick.
+	 */
+	private void addLogicAction(ActionDispatcher action) {
+		synchronized (logicActions) {
+			logicActions.add(action);
+		}
 	}
 
 	private class MouseHandler extends MouseAdapter {
@@ -222,7 +467,7 @@ public class TDGame implements LoopSteps {
 	}
 
 	public WaveManager getWaveManager() {
-		return waveManager;
+		return context.getWaveManager();
 	}
 
 	private interface ActionDispatcher {
@@ -254,16 +499,143 @@ public class TDGame implements LoopSteps {
 		}
 	}
 
+	/**
+	 * Sells a tower in the next tick. Nothing is sold while a replay is
+	 * played.
+	 */
 	public void sellTower(Tower t) {
-		GameConfig.player.addGold(t.getTemplate().getValue());
-		int xTile = GameConfig.pixelToTile(t.getX());
-		int yTile = GameConfig.pixelToTile(t.getY());
-		mapView.getMatrixGraph().set(xTile, yTile, 0);
-		towers.put(xTile, yTile, null);
+		if (replayPlayer != null)
+			return;
+
+		final int xTile = GameConfig.pixelToTile(t.getX());
+		final int yTile = GameConfig.pixelToTile(t.getY());
+		addLogicAction(new ActionDispatcher() {
+			public void doAction() {
+				doSellTower(xTile, yTile);
+			}
+		});
+	}
+
+	/**
+	 * Sells the tower in the tile right away. Must be called by the game
+	 * loop.
+	 */
+	public void doSellTower(int tileX, int tileY) {
+		Tower t = towers.get(tileX, tileY);
+		if (t == null)
+			return;
+		if (recorder != null)
+			recorder.sell(getClock().getTicks(), tileX, tileY);
+
+		context.getPlayer().addGold(t.getTemplate().getValue());
+		towers.put(tileX, tileY, null);
 		t.setDead(true);
+
+		context.getGraph().set(tileX, tileY, 0);
+		pathRecomputer.request(context.getGraph(), getPiecesManager()
+				.getMonsters());
 	}
 	
 	public MainLoop getMainLoop() {
 		return mainLoop;
 	}
+
+	/**
+	 * @return The index of the tiles where a tower would block the monsters.
+	 */
+	public BlockingTileIndex getBlockingIndex() {
+		return blockingIndex;
+	}
+
+	/**
+	 * Stops the game, telling the player, when there are no lives left.
+	 */
+	public void gameOver() {
+		if (headless) {
+			headlessLoop.stop();
+			return;
+		}
+
+		JOptionPane.showMessageDialog(null, "Game Over!");
+		mainLoop.stop();
+	}
+
+	/**
+	 * @return The clock of the game time, advanced once per logic update.
+	 */
+	public GameClock getClock() {
+		return context.getClock();
+	}
+
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	public PathRecomputer getPathRecomputer() {
+		return pathRecomputer;
+	}
+
+	public boolean isPlacingTower() {
+		return buildGUI != null && buildGUI.hasSelected();
+	}
+
+	/**
+	 * Sets the seed of the random numbers of the game. Must be called before
+	 * the game starts.
+	 */
+	public void setSeed(long seed) {
+		context.setSeed(seed);
+	}
+
+	public long getSeed() {
+		return context.getSeed();
+	}
+
+	/**
+	 * @return The state of this game.
+	 */
+	public GameContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Records the commands of the player in the given recorder. Must be
+	 * called before the game starts.
+	 */
+	public void setRecorder(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	public ReplayRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Plays a replay instead of the commands of the player. Must be called
+	 * before the game starts, after setting the seed of the replay.
+	 */
+	public void setReplayPlayer(ReplayPlayer replayPlayer) {
+		this.replayPlayer = replayPlayer;
+	}
+
+	public ReplayPlayer getReplayPlayer() {
+		return replayPlayer;
+	}
+
+	/**
+	 * Plays a scenario instead of the levels of the game: sets its seed, its
+	 * waves and the lives of the player, and builds its towers when the game
+	 * starts. Must be called before the game starts, instead of
+	 * MapView.setupLevel().
+	 */
+	public void setScenario(Scenario scenario) {
+		this.scenario = scenario;
+		setSeed(scenario.getSeed());
+		scenario.addWaves(getWaveManager());
+		context.getPlayer().setLives(scenario.getLives());
+	}
+
+	public Scenario getScenario() {
+		return scenario;
+	}
 }
@@ -26,11 +26,13 @@ public class TowerInfo extends JPanel {
 	private TowerInfos infos;
 	private InfoArea info;
 	private Tower tower;
+	private TDGame game;
 
 	private JButton upgrade, sell;
 	
 	private static final String arrow = "->";
-	public TowerInfo() {
+	public TowerInfo(TDGame game) {
+		this.game = game;
 		setBackground(Color.gray);
 		setBorder(new TitledBorder("Upgrade & Sell"));
 		
@@ -76,19 +78,25 @@ public class TowerInfo extends JPanel {
 			info.setText(next.getInfo());
 	}
 
+	/**
+	 * Shows the info of the tower again, if it is still shown.
+	 */
+	public void refresh(Tower t) {
+		if (tower == t)
+			showInfo(t);
+	}
+
 	private ActionListener upgradeListener = new ActionListener() {
 		public void actionPerformed(ActionEvent arg0) {
-			if (tower != null) {
-				tower.upgrade();
-				showInfo(tower);
-			}
+			if (tower != null)
+				game.upgradeTower(tower);
 		}
 	};
 
 	private ActionListener sellListener = new ActionListener() {
 		public void actionPerformed(ActionEvent arg0) {
 			if (tower != null) {
-				TDGame.getInstance().sellTower(tower);
+				game.sellTower(tower);
 				tower = null;
 				infos.repaint();
 			}
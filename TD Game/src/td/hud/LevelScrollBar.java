@@ -10,7 +10,7 @@ import td.level.WaveManager;
 public class LevelScrollBar implements HighUpDisplayRender {
 	private WaveManager manager;
 
-	private List<LevelInfo> levels;
+	private volatile List<LevelInfo> levels;
 
 	public LevelScrollBar(WaveManager manager) {
 		this.manager = manager;
@@ -22,6 +22,9 @@ public class LevelScrollBar implements HighUpDisplayRender {
 	}
 
 	public void renderGraphics(Graphics2D g2d) {
+		List<LevelInfo> levels = this.levels;
+		if (levels == null)
+			return;
 		for (LevelInfo info : levels) {
 			g2d.setColor(info.getColor());
 			g2d.fillRect(info.getStart(), 0, 60, 20);
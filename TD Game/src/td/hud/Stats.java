@@ -7,20 +7,25 @@ import java.awt.Graphics2D;
 import javax.swing.JOptionPane;
 
 import sun.awt.RepaintArea;
-import td.cfg.GameConfig;
-import td.gui.TDGame;
 import td.player.Player;
 
 public class Stats implements HighUpDisplayRender {
-	private String text;
+	private volatile String text;
+	private Player player;
+
+	public Stats(Player player) {
+		this.player = player;
+	}
 
 	public void processLogics() {
-		Player p = GameConfig.player;
+		Player p = player;
 		text = "Gold: " + p.getGold() + " Lives: " + p.getLives();
 		
 	}
 
 	public void renderGraphics(Graphics2D surface) {
+		if (text == null)
+			return;
 		surface.setComposite(AlphaComposite.SrcOver.derive(0.7f));
 		surface.setColor(Color.black);
 		surface.fillRect(0, 0, 140, 20);
@@ -1,6 +1,6 @@
 package td.level;
 
-import jgf.pathfinding.MatrixGraph;
+import td.cfg.GameContext;
 
 public class EmptyWave extends WaveLevel {
 
@@ -9,7 +9,7 @@ public class EmptyWave extends WaveLevel {
 	}
 
 	@Override
-	public void proccess(MatrixGraph graph) {
+	public void proccess(GameContext context) {
 	}
 
 }
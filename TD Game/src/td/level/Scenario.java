@@ -0,0 +1,268 @@
+package td.level;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import td.cfg.GameConfig;
+import td.pieces.template.MonsterTemplate;
+import td.pieces.template.TowerTemplate;
+
+/**
+ * A synthetic level for load tests: the waves of monsters, the towers built
+ * before the first wave, the seed of the random numbers and the lives of the
+ * player. Scenarios are made by generate() from a few parameters, or by hand,
+ * and given to a game by TDGame.setScenario().
+ * <p>
+ * The file is a text file with one entry per line, empty lines and lines
+ * starting with # being ignored:
+ *
+ * <pre>
+ * seed 42
+ * lives 1000000
+ * wave Basic 500 250 5 false   (template, monsters, spawn rate, per spawn, boss)
+ * tower Fire 3 12              (template, tile x, tile y)
+ * </pre>
+ *
+ * The waves are played in the order of the file, after an empty wave that
+ * leaves time to the towers to be built.
+ */
+public class Scenario {
+	/** The towers the player can build. */
+	public static final TowerTemplate[] BUILDABLE = { TowerTemplate.Basic,
+			TowerTemplate.Ice, TowerTemplate.Fire, TowerTemplate.DamageBoost,
+			TowerTemplate.FireRateBoost, TowerTemplate.RangeBoost };
+
+	private long seed;
+	private int lives = Integer.MAX_VALUE;
+
+	private List<MonsterTemplate> waveMonsters = new ArrayList<MonsterTemplate>();
+	// monsters, spawn rate and monsters per spawn of each wave
+	private List<int[]> waves = new ArrayList<int[]>();
+	private List<Boolean> bosses = new ArrayList<Boolean>();
+
+	private List<TowerTemplate> towers = new ArrayList<TowerTemplate>();
+	private List<int[]> towerTiles = new ArrayList<int[]>();
+
+	public Scenario(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Makes a scenario with the given number of monsters split in waves of
+	 * random monster templates, every tenth wave being a boss wave, and towers
+	 * of random templates spread over the map. The lane of the monsters is
+	 * kept free, so the towers never block them.
+	 *
+	 * @param monsters The number of monsters of all waves.
+	 * @param waves The number of waves.
+	 * @param spawnRate The time between two spawns of a wave, in milliseconds.
+	 * @param perSpawn The number of monsters spawned at a time.
+	 * @param towerDensity The probability of a free tile having a tower, from
+	 *            0 to 1.
+	 * @param seed The seed of the generator and of the game.
+	 */
+	public static Scenario generate(int monsters, int waves, int spawnRate,
+			int perSpawn, double towerDensity, long seed) {
+		if (waves < 1 || monsters < waves)
+			throw new IllegalArgumentException(
+					"Every wave needs at least one monster!");
+
+		Scenario scenario = new Scenario(seed);
+		Random random = new Random(seed);
+		MonsterTemplate[] templates = MonsterTemplate.values();
+		for (int i = 0; i < waves; i++) {
+			int count = monsters / waves + (i < monsters % waves ? 1 : 0);
+			scenario.addWave(templates[random.nextInt(templates.length)],
+					count, spawnRate, perSpawn, (i + 1) % 10 == 0);
+		}
+
+		for (int x = 1; x < GameConfig.TILE_WIDTH - 1; x++)
+			for (int y = 1; y < GameConfig.TILE_HEIGHT - 1; y++)
+				if (!isLane(y) && random.nextDouble() < towerDensity)
+					scenario.addTower(BUILDABLE[random
+							.nextInt(BUILDABLE.length)], x, y);
+		return scenario;
+	}
+
+	/**
+	 * @return If the row is one the monsters walk, from the left border to the
+	 *         exits.
+	 */
+	private static boolean isLane(int tileY) {
+		int half = GameConfig.TILE_WIDTH / 2;
+		return tileY >= half - 5 && tileY < half;
+	}
+
+	public void addWave(MonsterTemplate monster, int monsters, int spawnRate,
+			int perSpawn, boolean boss) {
+		if (monsters < 1 || spawnRate < 0 || perSpawn < 1)
+			throw new IllegalArgumentException("Invalid wave: " + monsters
+					+ " monsters, spawn rate " + spawnRate + ", " + perSpawn
+					+ " per spawn");
+
+		waveMonsters.add(monster);
+		waves.add(new int[] { monsters, spawnRate, perSpawn });
+		bosses.add(boss);
+	}
+
+	public void addTower(TowerTemplate tower, int tileX, int tileY) {
+		if (tileX < 0 || tileY < 0 || tileX >= GameConfig.TILE_WIDTH
+				|| tileY >= GameConfig.TILE_HEIGHT)
+			throw new IllegalArgumentException("Tile out of the map: " + tileX
+					+ ", " + tileY);
+
+		towers.add(tower);
+		towerTiles.add(new int[] { tileX, tileY });
+	}
+
+	/**
+	 * Adds the waves of the scenario to the given manager, after an empty
+	 * wave.
+	 */
+	public void addWaves(WaveManager manager) {
+		manager.add(new EmptyWave(0), 30);
+		for (int i = 0; i < waves.size(); i++) {
+			int[] wave = waves.get(i);
+			manager.add(new WaveLevel(wave[0], waveMonsters.get(i), i + 1,
+					wave[1], wave[2], bosses.get(i)), 10);
+		}
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return The lives of the player, by default so many the game never ends
+	 *         before the last wave.
+	 */
+	public int getLives() {
+		return lives;
+	}
+
+	public void setLives(int lives) {
+		this.lives = lives;
+	}
+
+	public int getWaveCount() {
+		return waves.size();
+	}
+
+	/**
+	 * @return The number of monsters of all waves.
+	 */
+	public int getMonsterCount() {
+		int count = 0;
+		for (int[] wave : waves)
+			count += wave[0];
+		return count;
+	}
+
+	public int getTowerCount() {
+		return towers.size();
+	}
+
+	public TowerTemplate getTower(int index) {
+		return towers.get(index);
+	}
+
+	public int getTowerX(int index) {
+		return towerTiles.get(index)[0];
+	}
+
+	public int getTowerY(int index) {
+		return towerTiles.get(index)[1];
+	}
+
+	public void save(File file) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			save(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public void save(OutputStream stream) throws IOException {
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(stream,
+				"ISO-8859-1"));
+		out.println("# TD Game scenario: " + getMonsterCount()
+				+ " monsters in " + waves.size() + " waves, "
+				+ towers.size() + " towers");
+		out.println("seed " + seed);
+		out.println("lives " + lives);
+		for (int i = 0; i < waves.size(); i++) {
+			int[] wave = waves.get(i);
+			out.println("wave " + waveMonsters.get(i).name() + " " + wave[0]
+					+ " " + wave[1] + " " + wave[2] + " " + bosses.get(i));
+		}
+		for (int i = 0; i < towers.size(); i++)
+			out.println("tower " + towers.get(i).name() + " "
+					+ getTowerX(i) + " " + getTowerY(i));
+		out.flush();
+		if (out.checkError())
+			throw new IOException("Could not write the scenario");
+	}
+
+	public static Scenario load(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return load(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static Scenario load(InputStream stream) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(stream,
+				"ISO-8859-1"));
+		Scenario scenario = new Scenario(0);
+		int lineNumber = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#"))
+				continue;
+
+			String[] fields = line.split("\\s+");
+			try {
+				if (fields[0].equals("seed") && fields.length == 2)
+					scenario.seed = Long.parseLong(fields[1]);
+				else if (fields[0].equals("lives") && fields.length == 2)
+					scenario.lives = Integer.parseInt(fields[1]);
+				else if (fields[0].equals("wave") && fields.length == 6)
+					scenario.addWave(MonsterTemplate.valueOf(fields[1]),
+							Integer.parseInt(fields[2]), Integer
+									.parseInt(fields[3]), Integer
+									.parseInt(fields[4]), Boolean
+									.parseBoolean(fields[5]));
+				else if (fields[0].equals("tower") && fields.length == 4)
+					scenario.addTower(TowerTemplate.valueOf(fields[1]),
+							Integer.parseInt(fields[2]), Integer
+									.parseInt(fields[3]));
+				else
+					throw new IOException("Invalid entry in line "
+							+ lineNumber + ": " + line);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid entry in line " + lineNumber
+						+ ": " + e.getMessage());
+			}
+		}
+
+		if (scenario.waves.isEmpty())
+			throw new IOException("The scenario has no waves");
+		return scenario;
+	}
+}
@@ -3,9 +3,8 @@ package td.level;
 import java.util.Random;
 
 import jgf.math.Vector2D;
-import jgf.pathfinding.MatrixGraph;
 import td.cfg.GameConfig;
-import td.gui.TDGame;
+import td.cfg.GameContext;
 import td.pieces.Monster;
 import td.pieces.template.MonsterTemplate;
 
@@ -17,7 +16,6 @@ public class WaveLevel {
 	private int monstersPerSpaw;
 	private boolean bossLvl;
 
-	private Random rdm = new Random();
 	private long lastSpaw = 0;
 
 	protected WaveLevel(int lvl) {
@@ -39,11 +37,13 @@ public class WaveLevel {
 		this(monsters, monster, level, spawRate, monstersPerSpaw, false);
 	}
 
-	public void proccess(MatrixGraph graph) {
+	public void proccess(GameContext context) {
 		if (monsters <= 0)
 			return;
-		long currentTime = System.currentTimeMillis();
+		long currentTime = context.getClock().currentTimeMillis();
 		if (currentTime - lastSpaw > spawRate) {
+			// the seeded random numbers of the game, so replays spawn the same
+			Random rdm = context.getRandom();
 			int half = GameConfig.TILE_WIDTH / 2;
 			int halfSize = half * GameConfig.TILE_SIZE;
 			int halfUtil = (halfSize - (5 * GameConfig.TILE_SIZE));
@@ -53,12 +53,12 @@ public class WaveLevel {
 						+ rdm.nextInt(tilesUtil));
 				Vector2D target = new Vector2D(GameConfig.MAP_WIDTH - 20,
 						halfUtil + rdm.nextInt(tilesUtil));
-				Monster toAdd = monster.createMonster(pos, target, graph,
+				Monster toAdd = monster.createMonster(pos, target, context,
 						level, bossLvl);
 				toAdd.setDirection(toAdd.getPosition());
 				toAdd.remakePath();
 
-				TDGame.getInstance().getPiecesManager().add(toAdd);
+				context.getPiecesManager().add(toAdd);
 				monsters--;
 			}
 			lastSpaw = currentTime;
@@ -6,16 +6,19 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import jgf.pathfinding.MatrixGraph;
+import jgf.core.GameClock;
+import td.cfg.GameContext;
 
 public class WaveManager {
 	private List<WaveLevel> waves;
 	private int currentLevel;
 	private long lastWave;
+	private GameClock clock;
 
-	public WaveManager() {
+	public WaveManager(GameClock clock) {
 		waves = new ArrayList<WaveLevel>();
 		currentLevel = 0;
+		this.clock = clock;
 	}
 
 	public void add(WaveLevel level, int delay) {
@@ -30,15 +33,14 @@ public class WaveManager {
 		});
 	}
 
-	public void proccess(MatrixGraph graph) {
+	public void proccess(GameContext context) {
 		if (lastWave == 0)
-			lastWave = System.currentTimeMillis();
+			lastWave = clock.currentTimeMillis();
 
-		waves.get(currentLevel).proccess(graph);
-		System.out.println(currentLevel);
+		waves.get(currentLevel).proccess(context);
 		if (waves.get(currentLevel).hasEnd()) {
-			if ((System.currentTimeMillis() - lastWave) / 1000 >= 20) {
-				lastWave = System.currentTimeMillis();
+			if ((clock.currentTimeMillis() - lastWave) / 1000 >= 20) {
+				lastWave = clock.currentTimeMillis();
 				if (currentLevel != waves.size() - 1) {
 					currentLevel++;
 				}
@@ -46,6 +48,14 @@ public class WaveManager {
 		}
 	}
 
+	/**
+	 * @return True if every monster of the last wave was spawned.
+	 */
+	public boolean isFinished() {
+		return currentLevel == waves.size() - 1
+				&& waves.get(currentLevel).hasEnd();
+	}
+
 	public int getTotalLevels() {
 		return waves.size();
 	}
@@ -59,7 +69,7 @@ public class WaveManager {
 		if (currentLevel == getTotalLevels() - 1
 				&& waves.get(currentLevel).hasEnd())
 			return list;
-		int gap = (int) ((System.currentTimeMillis() - lastWave) / 1000);
+		int gap = (int) ((clock.currentTimeMillis() - lastWave) / 1000);
 		gap = 20 - gap;
 		gap *= 3;
 		int x = 0;
@@ -0,0 +1,300 @@
+package td.path;
+
+import java.util.Arrays;
+
+import jgf.pathfinding.FlowField;
+import jgf.pathfinding.MatrixGraph;
+
+/**
+ * A cache of shared paths, indexed by start tile.
+ * <p>
+ * Every cached path is a chain of immutable {@link PathNode}s whose rest is
+ * also cached, so adding the path of a tile only creates the nodes that are
+ * not in the cache yet and the whole cache holds at most one node per tile.
+ * The cache keeps, for each tile, the cached tiles whose path continues
+ * through it, so invalidating a tile also drops every path that passes
+ * through it, and nothing else.
+ * <p>
+ * The number of cached tiles is bounded. When it's exceeded, the oldest
+ * leaves (paths that no other path continues) are evicted first. Pieces that
+ * hold a path keep it after it's dropped from the cache, since it can't
+ * change.
+ */
+public class PathCache {
+	private static final int NONE = -1;
+
+	private PathNode[] nodes;
+	private int size;
+	private int capacity;
+
+	// children of each tile: the tiles whose next step is it
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] previousSibling;
+
+	// cached tiles without children, oldest first
+	private int[] nextLeaf;
+	private int[] previousLeaf;
+	private int firstLeaf = NONE;
+	private int lastLeaf = NONE;
+
+	private int[] stack;
+	private int[] walked;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * @param tiles The number of tiles of the graph.
+	 * @param capacity The maximum number of cached tiles.
+	 */
+	public PathCache(int tiles, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive!");
+
+		this.capacity = capacity;
+		nodes = new PathNode[tiles];
+		firstChild = new int[tiles];
+		nextSibling = new int[tiles];
+		previousSibling = new int[tiles];
+		nextLeaf = new int[tiles];
+		previousLeaf = new int[tiles];
+		stack = new int[tiles];
+		walked = new int[tiles];
+		Arrays.fill(firstChild, NONE);
+	}
+
+	/**
+	 * Returns the cached path of the tile, counting a hit or a miss.
+	 */
+	public PathNode get(int tile) {
+		PathNode node = nodes[tile];
+		if (node == null)
+			misses++;
+		else
+			hits++;
+		return node;
+	}
+
+	/**
+	 * Returns the cached path of the tile, without counting it as a lookup.
+	 */
+	public PathNode peek(int tile) {
+		return nodes[tile];
+	}
+
+	/**
+	 * Copies the cached path of every tile, indexed by tile, null for the
+	 * tiles not cached.
+	 */
+	public void copy(PathNode[] nodes) {
+		System.arraycopy(this.nodes, 0, nodes, 0, this.nodes.length);
+	}
+
+	/**
+	 * Returns the path from the tile to the nearest target of the field,
+	 * including the tile itself, counting a hit or a miss. Only the tiles not
+	 * cached yet are walked, so every cached path must have been walked on a
+	 * field equal to this one.
+	 *
+	 * @return The path, or null if no target can be reached from the tile.
+	 */
+	public PathNode walk(FlowField field, int tile) {
+		PathNode path = get(tile);
+		if (path != null)
+			return path;
+
+		MatrixGraph graph = field.getGraph();
+		int x = graph.indexToX(tile);
+		int y = graph.indexToY(tile);
+		if (field.getDistance(x, y) == FlowField.UNREACHABLE
+				&& field.getNext(x, y) == FlowField.NONE)
+			return null;
+
+		int length = 0;
+		PathNode rest = null;
+		for (int current = tile; current != FlowField.NONE; current = field
+				.getNext(graph.indexToX(current), graph.indexToY(current))) {
+			rest = nodes[current];
+			if (rest != null)
+				break;
+			walked[length++] = current;
+		}
+
+		return add(walked, length, rest);
+	}
+
+	/**
+	 * Caches the path of each of the given tiles, which must not be cached
+	 * yet. Each tile is followed by the next one, and the last one by the
+	 * given cached path.
+	 *
+	 * @param rest The cached path that follows the last tile, or null.
+	 * @return The path of the first tile.
+	 */
+	public PathNode add(int[] tiles, int length, PathNode rest) {
+		if (rest != null && nodes[rest.getTile()] != rest)
+			throw new IllegalArgumentException("The rest of the path must be "
+					+ "cached!");
+
+		PathNode node = rest;
+		for (int i = length - 1; i >= 0; i--) {
+			if (nodes[tiles[i]] != null)
+				throw new IllegalArgumentException("Tile " + tiles[i]
+						+ " is already cached!");
+
+			node = new PathNode(tiles[i], node);
+			insert(node);
+		}
+
+		while (size > capacity) {
+			remove(firstLeaf);
+			evictions++;
+		}
+		return node;
+	}
+
+	private void insert(PathNode node) {
+		int tile = node.getTile();
+		nodes[tile] = node;
+		size++;
+
+		PathNode next = node.getNext();
+		if (next != null) {
+			int parent = next.getTile();
+			if (firstChild[parent] == NONE)
+				unlinkLeaf(parent);
+
+			previousSibling[tile] = NONE;
+			nextSibling[tile] = firstChild[parent];
+			if (firstChild[parent] != NONE)
+				previousSibling[firstChild[parent]] = tile;
+			firstChild[parent] = tile;
+		}
+
+		linkLeaf(tile);
+	}
+
+	/**
+	 * Drops the cached path of the tile and of every tile whose path passes
+	 * through it.
+	 */
+	public void invalidate(int tile) {
+		if (nodes[tile] == null)
+			return;
+
+		int top = 0;
+		stack[top++] = tile;
+		while (top > 0) {
+			int current = stack[--top];
+			for (int child = firstChild[current]; child != NONE; child = nextSibling[child])
+				stack[top++] = child;
+
+			remove(current);
+			invalidations++;
+		}
+	}
+
+	/**
+	 * Removes a tile that has no cached children, or whose children are
+	 * being removed too.
+	 */
+	private void remove(int tile) {
+		PathNode node = nodes[tile];
+		PathNode next = node.getNext();
+
+		if (next != null && nodes[next.getTile()] == next) {
+			int parent = next.getTile();
+			if (previousSibling[tile] != NONE)
+				nextSibling[previousSibling[tile]] = nextSibling[tile];
+			else
+				firstChild[parent] = nextSibling[tile];
+			if (nextSibling[tile] != NONE)
+				previousSibling[nextSibling[tile]] = previousSibling[tile];
+
+			if (firstChild[parent] == NONE)
+				linkLeaf(parent);
+		}
+
+		if (firstChild[tile] == NONE)
+			unlinkLeaf(tile);
+		firstChild[tile] = NONE;
+		nodes[tile] = null;
+		size--;
+	}
+
+	private void linkLeaf(int tile) {
+		previousLeaf[tile] = lastLeaf;
+		nextLeaf[tile] = NONE;
+		if (lastLeaf != NONE)
+			nextLeaf[lastLeaf] = tile;
+		else
+			firstLeaf = tile;
+		lastLeaf = tile;
+	}
+
+	private void unlinkLeaf(int tile) {
+		if (previousLeaf[tile] != NONE)
+			nextLeaf[previousLeaf[tile]] = nextLeaf[tile];
+		else
+			firstLeaf = nextLeaf[tile];
+		if (nextLeaf[tile] != NONE)
+			previousLeaf[nextLeaf[tile]] = previousLeaf[tile];
+		else
+			lastLeaf = previousLeaf[tile];
+	}
+
+	/**
+	 * Drops every cached path.
+	 */
+	public void clear() {
+		invalidations += size;
+		Arrays.fill(nodes, null);
+		Arrays.fill(firstChild, NONE);
+		firstLeaf = NONE;
+		lastLeaf = NONE;
+		size = 0;
+	}
+
+	/**
+	 * @return The number of cached tiles.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return The number of tiles dropped to respect the capacity.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return The number of tiles dropped because their paths changed.
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d/%d tiles, %d hits, %d misses, "
+				+ "%d evictions, %d invalidations", size, capacity, hits,
+				misses, evictions, invalidations);
+	}
+}
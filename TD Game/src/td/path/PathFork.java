@@ -0,0 +1,71 @@
+package td.path;
+
+import jgf.pathfinding.FlowField;
+import jgf.pathfinding.MatrixGraph;
+
+/**
+ * A copy of the flow field to the exits and of the cached paths, made by the
+ * game loop after the field was repaired, that the path workers follow while
+ * the game changes the graph. The fork is never written: each worker keeps
+ * the paths it makes in an array of its own, so the workers share no lock.
+ */
+class PathFork {
+	private int[] next;
+	private float[] distance;
+	private PathNode[] cached;
+
+	/**
+	 * @param field The flow field to the exits, up to date.
+	 * @param cache The paths cached for the field.
+	 */
+	public PathFork(FlowField field, PathCache cache) {
+		MatrixGraph graph = field.getGraph();
+		int tiles = graph.getWidth() * graph.getHeight();
+		next = new int[tiles];
+		distance = new float[tiles];
+		cached = new PathNode[tiles];
+		field.copy(next, distance);
+		cache.copy(cached);
+	}
+
+	/**
+	 * Returns the path from the tile to the nearest exit, including the tile
+	 * itself. Only the tiles with no path in the fork nor in the given array
+	 * are walked, and their paths are kept in the array.
+	 *
+	 * @param made The paths made by the caller, indexed by tile.
+	 * @param walked A buffer with one position per tile.
+	 * @return The path, or null if no exit can be reached from the tile.
+	 */
+	public PathNode walk(int tile, PathNode[] made, int[] walked) {
+		PathNode path = find(tile, made);
+		if (path != null)
+			return path;
+		if (distance[tile] == FlowField.UNREACHABLE
+				&& next[tile] == FlowField.NONE)
+			return null;
+
+		int length = 0;
+		PathNode rest = null;
+		for (int current = tile; current != FlowField.NONE; current = next[current]) {
+			rest = find(current, made);
+			if (rest != null)
+				break;
+			walked[length++] = current;
+		}
+
+		for (int i = length - 1; i >= 0; i--) {
+			rest = new PathNode(walked[i], rest);
+			made[walked[i]] = rest;
+		}
+		return rest;
+	}
+
+	private PathNode find(int tile, PathNode[] made) {
+		return cached[tile] != null ? cached[tile] : made[tile];
+	}
+
+	public int getTiles() {
+		return next.length;
+	}
+}
@@ -4,37 +4,170 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
 
-import td.util.MappedMap;
+import jgf.pathfinding.FlowField;
+import jgf.pathfinding.IncrementalFlowField;
+import jgf.pathfinding.MatrixGraph;
+import td.cfg.GameConfig;
 
 public class PathManager {
-	private static PathManager singleton;
+	public static final int DEFAULT_CAPACITY = 1 << 16;
 
-	public static PathManager getPathManager() {
-		if (singleton == null)
-			singleton = new PathManager();
-		return singleton;
+	private IncrementalFlowField flowField;
+	private PathCache cache;
+	private long cacheVersion = -1;
+	private int capacity;
+
+	public PathManager() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity The maximum number of tiles with a cached path.
+	 */
+	public PathManager(int capacity) {
+		this.capacity = capacity;
 	}
 
-	private MappedMap<Integer, Integer, List<Point2D>> cache;
+	/**
+	 * Registers an exit tile of the given graph. All exits of a graph share a
+	 * single flow field, used to make the paths of the pieces heading to them.
+	 */
+	public void addExit(MatrixGraph graph, int tileX, int tileY) {
+		if (flowField == null || flowField.getGraph() != graph) {
+			if (flowField != null)
+				flowField.dispose();
+			flowField = new IncrementalFlowField(graph, true);
 
-	public PathManager() {
-		cache = new MappedMap<Integer, Integer, List<Point2D>>();
+			int tiles = graph.getWidth() * graph.getHeight();
+			cache = new PathCache(tiles, Math.min(tiles, capacity));
+		}
+		flowField.addTarget(tileX, tileY);
+		cacheVersion = -1;
+	}
+
+	public boolean isExit(MatrixGraph graph, int tileX, int tileY) {
+		return flowField != null && flowField.getGraph() == graph
+				&& flowField.isTarget(tileX, tileY);
+	}
+
+	/**
+	 * Returns the flow field to the exits of the given graph, repaired if the
+	 * graph changed, or null if no exit was registered for this graph.
+	 */
+	public FlowField getFlowField(MatrixGraph graph) {
+		if (flowField == null || flowField.getGraph() != graph)
+			return null;
+
+		synchronize();
+		return flowField;
+	}
+
+	/**
+	 * Repairs the flow field to the exits of the graph and forks it, with the
+	 * cached paths, for the threads that walk the paths while the graph
+	 * changes. Must be called by the thread that changes the graph.
+	 *
+	 * @return The fork, or null if no exit was registered for the graph.
+	 */
+	PathFork fork(MatrixGraph graph) {
+		FlowField field = getFlowField(graph);
+		if (field == null)
+			return null;
+
+		return new PathFork(field, cache);
+	}
+
+	/**
+	 * Repairs the flow field and drops the cached paths that pass through the
+	 * tiles whose next step changed. The other paths remain the ones the field
+	 * would give.
+	 */
+	private void synchronize() {
+		if (cacheVersion == flowField.getGraph().getVersion())
+			return;
+
+		if (!flowField.isUpToDate())
+			flowField.update();
+
+		int changed = flowField.getChangedSteps();
+		if (changed < 0 || cacheVersion == -1)
+			cache.clear();
+		else
+			for (int i = 0; i < changed; i++)
+				cache.invalidate(flowField.getChangedStep(i));
+
+		cacheVersion = flowField.getGraph().getVersion();
 	}
 
-	public List<Point2D> getPath(int x, int y) {
-		List<Point2D> returnList = new ArrayList<Point2D>(cache.get(x, y));
-		return returnList;
+	/**
+	 * Returns the path from the given tile to the nearest exit of the graph,
+	 * including the tile itself. The path is shared with the other tiles that
+	 * walk through the same tiles, and only the tiles not yet cached are
+	 * walked.
+	 *
+	 * @return The path, or null if no exit was registered for this graph or
+	 *         none can be reached.
+	 */
+	public PathNode getExitPath(MatrixGraph graph, int tileX, int tileY) {
+		FlowField field = getFlowField(graph);
+		if (field == null)
+			return null;
+
+		return cache.walk(field, graph.toIndex(tileX, tileY));
 	}
 
-	public boolean hasPath(int x, int y) {
-		return cache.contains(x, y);
+	/**
+	 * Returns the path from the given tile to the nearest exit as points: the
+	 * centers of the tiles after the given one, up to the exit. Kept for the
+	 * callers of the copied path lists; getExitPath() shares the path.
+	 *
+	 * @return A copy of the path, or null if no exit was registered or none
+	 *         can be reached.
+	 */
+	public List<Point2D> getPath(int tileX, int tileY) {
+		if (flowField == null)
+			return null;
+
+		MatrixGraph graph = flowField.getGraph();
+		PathNode path = getExitPath(graph, tileX, tileY);
+		if (path == null)
+			return null;
+
+		List<Point2D> points = new ArrayList<Point2D>(path.getLength() - 1);
+		for (PathNode node = path.getNext(); node != null; node = node
+				.getNext())
+			points.add(new Point2D.Double(GameConfig.tileToPixel(graph
+					.indexToX(node.getTile())), GameConfig.tileToPixel(graph
+					.indexToY(node.getTile()))));
+		return points;
 	}
 
-	public void addPath(int x, int y, List<Point2D> path) {
-		cache.put(x, y, new ArrayList<Point2D>(path));
+	/**
+	 * @return True if the path from the given tile to the nearest exit is
+	 *         cached.
+	 */
+	public boolean hasPath(int tileX, int tileY) {
+		if (flowField == null)
+			return false;
+
+		MatrixGraph graph = flowField.getGraph();
+		synchronize();
+		return cache.peek(graph.toIndex(tileX, tileY)) != null;
 	}
 
+	/**
+	 * Drops every cached path.
+	 */
 	public void clear() {
-		cache.clear();
+		if (cache != null)
+			cache.clear();
+	}
+
+	/**
+	 * @return The cache of paths to the exits, or null if no exit was
+	 *         registered yet.
+	 */
+	public PathCache getCache() {
+		return cache;
 	}
 }
@@ -0,0 +1,50 @@
+package td.path;
+
+/**
+ * One tile of a path. Nodes are immutable, so a path can be shared by any
+ * number of pieces and by the paths of other tiles: the path of a tile is its
+ * node followed by the path of the next tile, and the cached paths to the
+ * exits form a tree, like the shortest path tree of the flow field.
+ */
+public final class PathNode {
+	private final int tile;
+	private final PathNode next;
+	private final int length;
+
+	public PathNode(int tile, PathNode next) {
+		this.tile = tile;
+		this.next = next;
+		this.length = next == null ? 1 : next.length + 1;
+	}
+
+	/**
+	 * Creates an unshared path from tile indexes.
+	 */
+	public static PathNode create(int[] tiles, int length) {
+		PathNode node = null;
+		for (int i = length - 1; i >= 0; i--)
+			node = new PathNode(tiles[i], node);
+		return node;
+	}
+
+	/**
+	 * @return The tile index, as given by MatrixGraph.toIndex().
+	 */
+	public int getTile() {
+		return tile;
+	}
+
+	/**
+	 * @return The rest of the path, or null if this is the last tile.
+	 */
+	public PathNode getNext() {
+		return next;
+	}
+
+	/**
+	 * @return The number of tiles from this one to the end of the path.
+	 */
+	public int getLength() {
+		return length;
+	}
+}
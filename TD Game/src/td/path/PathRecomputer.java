@@ -0,0 +1,278 @@
+package td.path;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jgf.pathfinding.JumpPointSearch;
+import jgf.pathfinding.MatrixGraph;
+import td.cfg.GameConfig;
+import td.pieces.Monster;
+
+/**
+ * Remakes the paths of the monsters in a pool of worker threads.
+ * <p>
+ * A request takes a snapshot of the graph and the tiles of the monsters, so
+ * the workers never read anything the game loop changes. The game loop also
+ * repairs the flow field to the exits in the request, as a spawn would, and
+ * forks it with the cached paths: the workers follow the fork without locks,
+ * and the paths of most monsters, which head to an exit, are already cached.
+ * The new routes are
+ * kept by the monsters only in {@link #publish(MatrixGraph)}, called by the
+ * game loop between two ticks, with the same swap as
+ * {@link Monster#changePath()}. Routes made for a graph that changed again are
+ * discarded: the request made for the change replaces them.
+ * <p>
+ * The monsters walk their old routes until the new ones are published. How
+ * many ticks that takes depends on the workers, unless the recomputer is
+ * deterministic: then the routes requested in a tick are always published in
+ * the next one, waiting for the workers if needed.
+ */
+public class PathRecomputer {
+	// the fewest monsters worth a task of their own
+	private static final int MIN_CHUNK = 32;
+
+	private PathManager manager;
+	private ExecutorService workers;
+	private int threads;
+
+	private volatile long requestedVersion = -1;
+	private AtomicReference<Job> done = new AtomicReference<Job>();
+	private boolean deterministic;
+	// the last job requested, while not published
+	private Job pending;
+
+	private long requests;
+	private long published;
+	private AtomicLong discarded = new AtomicLong();
+
+	public PathRecomputer(PathManager manager) {
+		this(manager, Runtime.getRuntime().availableProcessors());
+	}
+
+	public PathRecomputer(PathManager manager, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed!");
+
+		this.manager = manager;
+		this.threads = threads;
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Path worker " + (++count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Remakes the paths of the monsters in the background, over the graph as
+	 * it is now. Must be called by the thread that changes the graph, after
+	 * the change.
+	 */
+	public void request(MatrixGraph graph, List<Monster> monsters) {
+		Job job = new Job(graph, monsters);
+		requestedVersion = job.version;
+		requests++;
+		pending = job;
+
+		int size = monsters.size();
+		int chunks = Math.max(1, Math.min(threads, (size + MIN_CHUNK - 1)
+				/ MIN_CHUNK));
+		job.pending.set(chunks);
+		for (int i = 0; i < chunks; i++)
+			workers.execute(new Chunk(job, i * size / chunks, (i + 1) * size
+					/ chunks));
+	}
+
+	/**
+	 * Swaps the routes of the monsters by the ones made for the current graph,
+	 * if they are ready. Must be called by the thread that changes the graph.
+	 *
+	 * @return True if routes were published.
+	 */
+	public boolean publish(MatrixGraph graph) {
+		if (deterministic && pending != null)
+			pending.await();
+		pending = null;
+
+		Job job = done.getAndSet(null);
+		if (job == null)
+			return false;
+		if (job.version != graph.getVersion()) {
+			discarded.incrementAndGet();
+			return false;
+		}
+
+		for (int i = 0; i < job.monsters.length; i++) {
+			Monster monster = job.monsters[i];
+			if (monster.isDead() || job.routes[i] == null)
+				continue;
+			monster.setTempRoute(job.routes[i]);
+			monster.changePath();
+		}
+		published++;
+		return true;
+	}
+
+	/**
+	 * Makes publish() wait for the routes requested before it, so the routes
+	 * are published in the same tick every time the game is played. Used by
+	 * the replays.
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+	}
+
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * Stops the workers. Requests being computed are dropped.
+	 */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * @return The number of requests whose routes were dropped because the
+	 *         graph changed before they were published.
+	 */
+	public long getDiscarded() {
+		return discarded.get();
+	}
+
+	private void finish(Job job) {
+		try {
+			if (job.version != requestedVersion) {
+				discarded.incrementAndGet();
+				return;
+			}
+
+			if (done.getAndSet(job) != null)
+				discarded.incrementAndGet();
+		} finally {
+			job.finished.countDown();
+		}
+	}
+
+	private class Job {
+		final MatrixGraph graph;
+		final long version;
+		final Monster[] monsters;
+		final int[] starts;
+		final int[] targets;
+		final boolean[] toExit;
+		final PathNode[] routes;
+		final AtomicInteger pending = new AtomicInteger();
+		final CountDownLatch finished = new CountDownLatch(1);
+		// the paths to the exits, or null if there are no exits
+		final PathFork fork;
+
+		Job(MatrixGraph graph, List<Monster> monsters) {
+			this.graph = graph.snapshot();
+			this.version = graph.getVersion();
+			this.monsters = monsters.toArray(new Monster[monsters.size()]);
+			starts = new int[this.monsters.length];
+			targets = new int[this.monsters.length];
+			toExit = new boolean[this.monsters.length];
+			routes = new PathNode[this.monsters.length];
+
+			for (int i = 0; i < starts.length; i++) {
+				Monster monster = this.monsters[i];
+				int xT = GameConfig.pixelToTile(monster.getXTarget());
+				int yT = GameConfig.pixelToTile(monster.getYTarget());
+				starts[i] = graph.toIndex(GameConfig.pixelToTile(monster
+						.getPosition().getX()), GameConfig.pixelToTile(monster
+						.getPosition().getY()));
+				targets[i] = graph.toIndex(xT, yT);
+				toExit[i] = manager.isExit(graph, xT, yT);
+			}
+			fork = manager.fork(graph);
+		}
+
+		/**
+		 * Waits until every chunk of the job is done.
+		 */
+		void await() {
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private class Chunk implements Runnable {
+		private Job job;
+		private int from, to;
+		private JumpPointSearch search;
+		// the paths to the exits made by this chunk
+		private PathNode[] made;
+		private int[] walked;
+
+		Chunk(Job job, int from, int to) {
+			this.job = job;
+			this.from = from;
+			this.to = to;
+		}
+
+		public void run() {
+			try {
+				for (int i = from; i < to; i++) {
+					// a newer request will remake them all again
+					if (job.version != requestedVersion)
+						break;
+					job.routes[i] = route(i);
+				}
+			} finally {
+				if (job.pending.decrementAndGet() == 0)
+					finish(job);
+			}
+		}
+
+		private PathNode route(int i) {
+			MatrixGraph graph = job.graph;
+			int xI = graph.indexToX(job.starts[i]);
+			int yI = graph.indexToY(job.starts[i]);
+			int xT = graph.indexToX(job.targets[i]);
+			int yT = graph.indexToY(job.targets[i]);
+
+			if (job.toExit[i] && job.fork != null) {
+				if (made == null) {
+					made = new PathNode[job.fork.getTiles()];
+					walked = new int[made.length];
+				}
+				PathNode route = job.fork.walk(job.starts[i], made, walked);
+				if (route != null)
+					return route;
+			}
+
+			if (search == null)
+				search = new JumpPointSearch(graph);
+			int[] tiles = search.getPathBuffer();
+			int length = search.search(xI, yI, xT, yT, true, tiles);
+			return length == 0 ? null : PathNode.create(tiles, length);
+		}
+	}
+}
@@ -1,23 +1,17 @@
 package td.pieces;
 
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.geom.Point2D;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 import javax.swing.JOptionPane;
 
-import jgf.imaging.ImageWorker;
 import jgf.math.Vector2D;
-import jgf.pathfinding.MatrixGraph;
-import td.cfg.GameConfig;
+import td.cfg.GameContext;
 import td.effect.Effect;
 import td.effect.EffectModifier;
-import td.gui.TDGame;
+import td.gui.RenderSnapshot;
+import td.path.PathNode;
 import td.util.image.ComposedImage;
 
 public class Monster extends MovablePiece implements Cloneable {
@@ -25,14 +19,14 @@ public class Monster extends MovablePiece implements Cloneable {
 	private double maxSpeed;
 	private int maxHealth, health;
 	private int gold;
-	private List<Point2D> tempPath;
+	private PathNode tempRoute;
 	private EffectModifier modifier;
 
 	private List<Effect> effects;
 
 	public Monster(Vector2D pos, Vector2D target, double speed, int maxHp,
-			MatrixGraph graph, ComposedImage image, int gold) {
-		super(pos, target, speed, graph, null);
+			GameContext context, ComposedImage image, int gold) {
+		super(pos, target, speed, context, null);
 		setImage(image);
 		maxSpeed = speed;
 		effects = new ArrayList<Effect>();
@@ -44,7 +38,6 @@ public class Monster extends MovablePiece implements Cloneable {
 		health = maxHp;
 		makePath(target);
 		this.gold = gold;
-		tempPath = new ArrayList<Point2D>();
 	}
 
 	public double getMaxSpeed() {
@@ -58,35 +51,13 @@ public class Monster extends MovablePiece implements Cloneable {
 		effects.add(effect);
 	}
 
-	private void drawLifeBar(Graphics2D g) {
-		Graphics2D g2d = (Graphics2D) g.create();
-		int percentGood = (health * 100) / maxHealth;
-		int percentBad = -(percentGood - 100);
-		g2d.setColor(Color.GREEN);
-		g2d.fillRect((int) getX() - 5, (int) getY() - 5, percentGood / 5, 3);
-		g2d.setColor(Color.RED);
-		g2d.fillRect((int) (getX() - 5) + (percentGood / 5), (int) getY() - 5,
-				percentBad / 5, 3);
-		if (maxSpeed > getSpeed()) {
-			g2d.setColor(Color.blue);
-			g2d.drawRect((int) getX() - 5, (int) getY() - 5, 20, 3);
-		}
-		g2d.dispose();
-	}
-
 	@Override
-	public void draw(Graphics g) {
-		Graphics2D g2d = (Graphics2D) g.create();
-		BufferedImage img = getImage();
-		img = ImageWorker.getInstance().rotateImage(img,
-				getDirection().getAngle());
-		float halfImgW = img.getWidth() / 2;
-		float halfImgH = img.getHeight() / 2;
-		int newX = (int) (getX() + ((getImage().getWidth() / 2) - halfImgW));
-		int newY = (int) (getY() + ((getImage().getHeight() / 2) - halfImgH));
-		g2d.drawImage(img, newX, newY, null);
-		drawLifeBar(g2d);
-		g2d.dispose();
+	public int snapshot(RenderSnapshot snapshot) {
+		int piece = super.snapshot(snapshot);
+		snapshot.setAngle(piece, getDirection().getAngle());
+		snapshot.setLifeBar(piece, (health * 100) / maxHealth,
+				maxSpeed > getSpeed());
+		return piece;
 	}
 
 	@Override
@@ -94,7 +65,7 @@ public class Monster extends MovablePiece implements Cloneable {
 		if (!move()) {
 			goldAdded = true;
 			setDead(true);
-			GameConfig.player.spendLife();
+			getContext().getPlayer().spendLife();
 		}
 		for (Effect effect : effects)
 			if (modifier != null)
@@ -104,7 +75,7 @@ public class Monster extends MovablePiece implements Cloneable {
 
 		Iterator<Effect> it = effects.iterator();
 		while (it.hasNext())
-			if (it.next().hasEnd())
+			if (it.next().hasEnd(getContext().getClock()))
 				it.remove();
 
 	}
@@ -115,7 +86,7 @@ public class Monster extends MovablePiece implements Cloneable {
 
 		if (dead && !goldAdded) {
 			goldAdded = true;
-			GameConfig.player.addGold(gold);
+			getContext().getPlayer().addGold(gold);
 		}
 	}
 
@@ -145,18 +116,20 @@ public class Monster extends MovablePiece implements Cloneable {
 
 	private boolean pathDone = false;
 
-	public void makeTempPath(MatrixGraph graph) {
-		pathDone = false;
-		makePath(getXTarget(), getYTarget(), tempPath, graph);
-		pathDone = true;
+	/**
+	 * Keeps a route made out of this piece, such as by a background worker,
+	 * to be followed after the next changePath().
+	 */
+	public void setTempRoute(PathNode route) {
+		tempRoute = route;
+		pathDone = route != null;
 	}
 
 	public void changePath() {
-		if (pathDone) {
-			getPath().clear();
-			getPath().addAll(tempPath);
-		}
+		if (pathDone)
+			setRoute(tempRoute, getXTarget(), getYTarget());
 		pathDone = false;
+		tempRoute = null;
 	}
 
 	@Override
@@ -6,15 +6,19 @@ import java.util.List;
 
 import jgf.imaging.ImageItem;
 import jgf.math.Vector2D;
-import jgf.pathfinding.AStar;
+import jgf.pathfinding.JumpPointSearch;
 import jgf.pathfinding.MatrixGraph;
-import jgf.pathfinding.Node;
 import td.cfg.GameConfig;
+import td.cfg.GameContext;
 import td.path.PathManager;
+import td.path.PathNode;
 
 public abstract class MovablePiece extends Piece implements Cloneable {
 
-	private List<Point2D> path;
+	// the next tile to walk to and, after the last one, the path target
+	private PathNode route;
+	private double xPath, yPath;
+	private boolean walking;
 	private MatrixGraph graph;
 	private double speed;
 	
@@ -22,11 +26,11 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 	private double xTarget, yTarget;
 
 	public MovablePiece(Vector2D pos, Vector2D target, double speed,
-			MatrixGraph graph, ImageItem image) {
+			GameContext context, ImageItem image) {
 		super(pos, image);
 
-		path = new ArrayList<Point2D>();
-		this.graph = graph;
+		setContext(context);
+		this.graph = context.getGraph();
 		this.speed = speed;
 		setDead(false);
 		setTarget(target);
@@ -34,11 +38,11 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 	}
 
 	public MovablePiece(int x, int y, int xTarget, int yTarget, double speed,
-			MatrixGraph graph, String imageName) {
+			GameContext context, String imageName) {
 		super(x, y, imageName);
 
-		path = new ArrayList<Point2D>();
-		this.graph = graph;
+		setContext(context);
+		this.graph = context.getGraph();
 		this.speed = speed;
 		setDead(false);
 		this.xTarget = xTarget;
@@ -56,9 +60,15 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 	}
 
 	public boolean move() {
-		if (path.isEmpty())
+		if (!walking)
 			return false;
-		Vector2D tilePos = new Vector2D(path.get(0).getX(), path.get(0).getY());
+		Vector2D tilePos;
+		if (route != null)
+			tilePos = new Vector2D(GameConfig.tileToPixel(graph
+					.indexToX(route.getTile())), GameConfig.tileToPixel(graph
+					.indexToY(route.getTile())));
+		else
+			tilePos = new Vector2D(xPath, yPath);
 		Vector2D trail = tilePos.subtract(getPosition());
 
 		getDirection().rotateMe(getDirection().angleBetween(trail));
@@ -73,10 +83,14 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 
 		setPosition(newX, newY);
 
-		if (trail.getMagnitude() < 6)
-			path.remove(0);
+		if (trail.getMagnitude() < 6) {
+			if (route != null)
+				route = route.getNext();
+			else
+				walking = false;
+		}
 
-		return !path.isEmpty();
+		return walking;
 	}
 
 	public void makePath(Vector2D target) {
@@ -84,32 +98,47 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 	}
 
 	public void makePath(double x, double y) {
-		makePath(x, y, path, graph);
+		setRoute(findRoute(x, y, graph), x, y);
 	}
 
-	public void makePath(double x, double y, List<Point2D> path,
-			MatrixGraph graph) {
-		path.clear();
+	/**
+	 * Finds the path from the piece tile to the target tile in the given
+	 * graph, including the piece tile.
+	 */
+	protected PathNode findRoute(double x, double y, MatrixGraph graph) {
 		int xI = GameConfig.pixelToTile(getPosition().getX());
 		int yI = GameConfig.pixelToTile(getPosition().getY());
-		if (PathManager.getPathManager().hasPath(xI, yI)) {
-			path.addAll(PathManager.getPathManager().getPath(xI, yI));
-			return;
+		int xT = GameConfig.pixelToTile(x);
+		int yT = GameConfig.pixelToTile(y);
+
+		// the pieces heading to an exit share the cached paths of the flow
+		// field
+		PathManager manager = getContext().getPathManager();
+		if (manager.isExit(graph, xT, yT)) {
+			PathNode route = manager.getExitPath(graph, xI, yI);
+			if (route != null)
+				return route;
 		}
 
-		AStar aStar = new AStar(graph);
-
-		List<Node> nodePath = aStar.search(xI, yI, GameConfig.pixelToTile(x),
-				GameConfig.pixelToTile(y), true);
+		JumpPointSearch search = graph.getJumpPointSearch();
+		int[] tiles = search.getPathBuffer();
+		int length = search.search(xI, yI, xT, yT, true, tiles);
+		if (length == 0)
+			throw new IllegalStateException("No path from tile " + xI + ", "
+					+ yI);
 
-		nodePath.remove(0);
-		for (Node node : nodePath)
-			path.add(new Point2D.Double(GameConfig.tileToPixel(node.getX()),
-					GameConfig.tileToPixel(node.getY())));
-
-		path.add(new Point2D.Double(x, y));
+		return PathNode.create(tiles, length);
+	}
 
-		PathManager.getPathManager().addPath(xI, yI, path);
+	/**
+	 * Makes the piece follow the route, which starts in its current tile,
+	 * and then go to the point (x, y).
+	 */
+	protected void setRoute(PathNode route, double x, double y) {
+		this.route = route.getNext();
+		xPath = x;
+		yPath = y;
+		walking = true;
 	}
 
 	@Override
@@ -117,7 +146,8 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 		try {
 			MovablePiece clone = (MovablePiece) super.clone();
 			clone.graph = graph;
-			clone.path = new ArrayList<Point2D>();
+			clone.route = null;
+			clone.walking = false;
 			clone.speed = speed;
 			clone.xTarget = xTarget;
 			clone.yTarget = yTarget;
@@ -154,21 +184,51 @@ public abstract class MovablePiece extends Piece implements Cloneable {
 
 	public static boolean canMakePath(Vector2D start, Vector2D target,
 			MatrixGraph graph) {
-		AStar aStar = new AStar(graph);
+		JumpPointSearch search = graph.getJumpPointSearch();
 
-		List<Node> nodePath = aStar.search(
-				GameConfig.pixelToTile(start.getX()), GameConfig
-						.pixelToTile(start.getY()), GameConfig
+		int length = search.search(GameConfig.pixelToTile(start.getX()),
+				GameConfig.pixelToTile(start.getY()), GameConfig
 						.pixelToTile(target.getX()), GameConfig
-						.pixelToTile(target.getY()), true);
+						.pixelToTile(target.getY()), true, search
+						.getPathBuffer());
 
-		return nodePath.size() != 0;
+		return length != 0;
 	}
 
+	/**
+	 * @return The rest of the path, starting at the next tile, or null if
+	 *         only the target point is left.
+	 */
+	public PathNode getRoute() {
+		return route;
+	}
+
+	/**
+	 * @return A copy of the rest of the path as points: the centers of the
+	 *         tiles left and then the target point, or an empty list if the
+	 *         piece isn't walking.
+	 */
 	public List<Point2D> getPath() {
+		List<Point2D> path = new ArrayList<Point2D>(getRemainingTiles() + 1);
+		if (!walking)
+			return path;
+
+		for (PathNode node = route; node != null; node = node.getNext())
+			path.add(new Point2D.Double(GameConfig.tileToPixel(graph
+					.indexToX(node.getTile())), GameConfig.tileToPixel(graph
+					.indexToY(node.getTile()))));
+		path.add(new Point2D.Double(xPath, yPath));
 		return path;
 	}
 
+	/**
+	 * @return The number of tiles of the route left to walk, zero once only
+	 *         the target point is left.
+	 */
+	public int getRemainingTiles() {
+		return route == null ? 0 : route.getLength();
+	}
+
 	public int getPathKey() {
 		return pathKey;
 	}
@@ -1,23 +1,24 @@
 package td.pieces;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
+import jgf.core.profile.Profiler;
 import jgf.imaging.ImageItem;
 import jgf.imaging.ImageItemList;
 import jgf.math.Vector2D;
 import td.cfg.GameConfig;
-import td.gui.TDGame;
+import td.cfg.GameContext;
+import td.gui.RenderSnapshot;
 import td.util.image.AnimationImage;
 import td.util.image.ComposedImage;
 import td.util.image.SingleImage;
 
 public abstract class Piece implements Cloneable {
+	private static final int VISION_SLOT = Profiler.getInstance().register(
+			"Piece.getVision");
+
 	private Vector2D position;
 	private Vector2D direction;
 
@@ -28,6 +29,11 @@ public abstract class Piece implements Cloneable {
 
 	private boolean dead;
 
+	private GameContext context;
+
+	// the position in the last render snapshot
+	private double snapshotX = Double.NaN, snapshotY;
+
 	public Piece(int x, int y, String imageFile) {
 		position = new Vector2D(x, y);
 		drawer = new SingleImage(GameConfig.images.getSingleImage(imageFile));
@@ -52,6 +58,21 @@ public abstract class Piece implements Cloneable {
 		position = new Vector2D(x, y);
 	}
 
+	/**
+	 * @return The game of the piece, or null if it wasn't added to a game.
+	 */
+	public GameContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Sets the game of the piece. Called when the piece is created for a game
+	 * or added to its PiecesManager.
+	 */
+	public void setContext(GameContext context) {
+		this.context = context;
+	}
+
 	public Vector2D getPosition() {
 		return position;
 	}
@@ -106,38 +127,87 @@ public abstract class Piece implements Cloneable {
 
 	public abstract void processAI();
 
-	public void draw(Graphics g) {
-		Graphics2D g2d = (Graphics2D) g.create();
-		g2d.drawImage(drawer.getImage(), (int) getX(), (int) getY(), null);
-		g2d.dispose();
+	/**
+	 * Adds what is needed to draw this piece to the render snapshot of the
+	 * current tick, with the position it had in the previous snapshot.
+	 *
+	 * @return The index of the piece in the snapshot.
+	 */
+	public int snapshot(RenderSnapshot snapshot) {
+		double previousX = Double.isNaN(snapshotX) ? getX() : snapshotX;
+		double previousY = Double.isNaN(snapshotX) ? getY() : snapshotY;
+		snapshotX = getX();
+		snapshotY = getY();
+		return snapshot.add(drawer.getImage(), snapshotX, snapshotY,
+				previousX, previousY);
 	}
 
-	public Set<Piece> getVision() {
-		double circleX1 = (getX() - visionRadius);
-		double circleY1 = (getY() - visionRadius);
+	/**
+	 * Finds the other pieces inside the vision radius and angle of this piece.
+	 * Only the pieces near it are visited.
+	 *
+	 * @param result Where the pieces are put, after clearing it.
+	 * @return The result.
+	 */
+	public List<Piece> getVision(List<Piece> result) {
+		long start = Profiler.getInstance().start();
+		result.clear();
+		context.getPiecesManager().findInRadius(getX(), getY(), visionRadius,
+				this, result);
+		keepInVisionAngle(result);
+		Profiler.getInstance().stop(VISION_SLOT, start);
+		return result;
+	}
 
-		Ellipse2D circle = new Ellipse2D.Double(circleX1, circleY1,
-				visionRadius * 2, visionRadius * 2);
+	/**
+	 * Finds the monsters inside the vision radius and angle of this piece,
+	 * without visiting the other kinds of pieces.
+	 *
+	 * @param result Where the monsters are put, after clearing it.
+	 * @return The result.
+	 */
+	public List<Monster> getVisibleMonsters(List<Monster> result) {
+		long start = Profiler.getInstance().start();
+		result.clear();
+		context.getPiecesManager().findMonsters(getX(), getY(), visionRadius,
+				this, result);
+		keepInVisionAngle(result);
+		Profiler.getInstance().stop(VISION_SLOT, start);
+		return result;
+	}
 
-		Set<Piece> piecesSet = new HashSet<Piece>();
+	/**
+	 * Finds the towers inside the vision radius and angle of this piece,
+	 * without visiting the other kinds of pieces.
+	 *
+	 * @param result Where the towers are put, after clearing it.
+	 * @return The result.
+	 */
+	public List<Tower> getVisibleTowers(List<Tower> result) {
+		long start = Profiler.getInstance().start();
+		result.clear();
+		context.getPiecesManager().findTowers(getX(), getY(), visionRadius,
+				this, result);
+		keepInVisionAngle(result);
+		Profiler.getInstance().stop(VISION_SLOT, start);
+		return result;
+	}
 
-		for (Piece piece : TDGame.getInstance().getPiecesManager().getPieces()) {
-			if (piece == this)
-				continue;
-			if (!(circle.contains(piece.getPosition().asPoint())))
-				continue;
+	private <T extends Piece> void keepInVisionAngle(List<T> pieces) {
+		// the angle between two directions is never wider than PI
+		if (visionAngle >= Math.PI)
+			return;
 
+		int kept = 0;
+		for (int i = 0; i < pieces.size(); i++) {
+			T piece = pieces.get(i);
 			Vector2D temp = getPosition().subtract(piece.getPosition())
 					.normalize();
 			double targetAngle = temp.angleBetween(getDirection());
-
-			if (targetAngle > this.visionAngle)
-				continue;
-
-			piecesSet.add(piece);
+			if (!(targetAngle > visionAngle))
+				pieces.set(kept++, piece);
 		}
-
-		return piecesSet;
+		pieces.subList(kept, pieces.size()).clear();
 	}
 
 	@Override
@@ -166,6 +236,7 @@ public abstract class Piece implements Cloneable {
 			clone.visionRadius = visionRadius;
 			clone.drawer = drawer;
 			clone.dead = dead;
+			clone.snapshotX = Double.NaN;
 			return clone;
 		} catch (CloneNotSupportedException e) {
 			throw new RuntimeException(e);
@@ -1,13 +1,9 @@
 package td.pieces;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-
-import jgf.imaging.ImageWorker;
 import jgf.math.Vector2D;
-import jgf.pathfinding.MatrixGraph;
+import td.cfg.GameContext;
 import td.effect.Effect;
+import td.gui.RenderSnapshot;
 
 public class Shoot extends MovablePiece implements Cloneable {
 	private Monster target;
@@ -15,8 +11,8 @@ public class Shoot extends MovablePiece implements Cloneable {
 	private Effect effect;
 
 	public Shoot(int x, int y, Monster target, int strength, double speed,
-			MatrixGraph graph, Effect effect) {
-		super(x, y, 0, 0, speed, graph, "shoot");
+			GameContext context, Effect effect) {
+		super(x, y, 0, 0, speed, context, "shoot");
 		this.effect = effect;
 		this.target = target;
 		str = strength;
@@ -50,16 +46,10 @@ public class Shoot extends MovablePiece implements Cloneable {
 	}
 
 	@Override
-	public void draw(Graphics g) {
-		Graphics2D g2d = (Graphics2D) g.create();
-		BufferedImage img = getImage();
-		img = ImageWorker.getInstance().rotateImage(img,
-				getDirection().getAngle());
-		int newX = (int) (getX() + (getImage().getWidth() / 2) - img.getWidth() / 2);
-		int newY = (int) (getY() + (getImage().getHeight() / 2) - img
-				.getHeight() / 2);
-		g2d.drawImage(img, newX, newY, null);
-		g2d.dispose();
+	public int snapshot(RenderSnapshot snapshot) {
+		int piece = super.snapshot(snapshot);
+		snapshot.setAngle(piece, getDirection().getAngle());
+		return piece;
 	}
 
 	@Override
@@ -1,32 +1,26 @@
 package td.pieces;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
-import jgf.pathfinding.MatrixGraph;
+import td.cfg.GameContext;
 import td.effect.Effect;
 
 public class SplashShoot extends Shoot {
+	private List<Monster> hit = new ArrayList<Monster>();
+
 	public SplashShoot(int x, int y, Monster target, int strength,
-			double speed, MatrixGraph graph, Effect effect, double splashRadius) {
-		super(x, y, target, strength, speed, graph, effect);
+			double speed, GameContext context, Effect effect,
+			double splashRadius) {
+		super(x, y, target, strength, speed, context, effect);
 		setVisionRadius(splashRadius);
 		setVisionAngle(360);
 	}
 
 	protected void hitTarget() {
-		Set<Monster> vision = getMonsters(getVision());
-		for (Monster target : vision) {
+		for (Monster target : getVisibleMonsters(hit)) {
 			target.setHealth(target.getHealth() - getStr());
 			target.addEffect((Effect) getEffect().clone());
 		}
 	}
-
-	private Set<Monster> getMonsters(Set<Piece> pieces) {
-		Set<Monster> monsters = new HashSet<Monster>();
-		for (Piece piece : pieces)
-			if (piece instanceof Monster)
-				monsters.add((Monster) piece);
-		return monsters;
-	}
 }
@@ -0,0 +1,18 @@
+package td.pieces;
+
+/**
+ * How a tower chooses the monster to fire at among the ones in its range.
+ * The tower keeps firing at it while it is alive and in range. How far along
+ * a monster is is told by the tiles of its path left to walk, and ties go to
+ * the monster spawned first.
+ */
+public enum Targeting {
+	/** The monster furthest along its path, the closest to an exit. */
+	FIRST,
+	/** The monster least far along its path. */
+	LAST,
+	/** The monster with the most health, the furthest along of them. */
+	STRONGEST,
+	/** The fastest monster, the furthest along of them. */
+	FASTEST
+}
@@ -1,28 +1,19 @@
 package td.pieces;
 
-import java.awt.AlphaComposite;
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.geom.Ellipse2D;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
 
-import td.cfg.GameConfig;
+import td.cfg.GameContext;
 import td.effect.Effect;
 import td.effect.TowerModifier;
-import td.gui.TDGame;
+import td.gui.RenderSnapshot;
 import td.pieces.template.TowerTemplate;
 
 import jgf.imaging.ImageItem;
 import jgf.math.Vector2D;
-import jgf.pathfinding.MatrixGraph;
 
 public class Tower extends Piece {
 	private Ellipse2D circle;
 	private Monster target;
-	private MatrixGraph graph;
 	private int shootStrenght;
 	private double shootSplashRadius;
 	private int fireRate;
@@ -30,13 +21,19 @@ public class Tower extends Piece {
 	private Effect effect;
 	private TowerTemplate template;
 	private boolean selected;
-	private List<TowerModifier> buffs;
+	// the stats of the template, before the buffs
+	private double baseVisionRadius;
+	private int baseShootStrenght;
+	private int baseFireRate;
+	// how many buffs of each modifier the tower has, by ordinal
+	private int[] buffs = new int[TowerModifier.values().length];
 
 	public Tower(int x, int y, double visionRadius, int fireRate,
-			int shootStrength, MatrixGraph graph, ImageItem image,
+			int shootStrength, GameContext context, ImageItem image,
 			Effect effect, double shootSplashRadius) {
 		super(x, y, image);
 
+		setContext(context);
 		selected = false;
 		this.effect = effect;
 		setVisionRadius(visionRadius);
@@ -45,44 +42,37 @@ public class Tower extends Piece {
 		this.shootStrenght = shootStrength;
 		this.shootSplashRadius = shootSplashRadius;
 		this.fireRate = fireRate;
-
-		buffs = new ArrayList<TowerModifier>();
+		baseVisionRadius = visionRadius;
+		baseShootStrenght = shootStrength;
+		baseFireRate = fireRate;
 
 		double circleX1 = (getX() - visionRadius);
 		double circleY1 = (getY() - visionRadius);
 
 		circle = new Ellipse2D.Double(circleX1, circleY1, visionRadius * 2,
 				visionRadius * 2);
-
-		this.graph = graph;
 	}
 
 	@Override
-	public void draw(Graphics g) {
-		super.draw(g);
-
-		Graphics2D g2d = (Graphics2D) g.create();
-		if (selected) {
-			drawVisionArea(g2d);
-			g2d.setComposite(AlphaComposite.SrcOver.derive(0.5f));
-			g2d.setColor(Color.white);
-			g2d.fillRect((int) getX(), (int) getY(), getImage().getWidth(),
-					getImage().getHeight());
-		}
-		g2d.dispose();
+	public int snapshot(RenderSnapshot snapshot) {
+		int piece = super.snapshot(snapshot);
+		if (selected)
+			snapshot.setSelected(piece, getVisionRadius());
+		return piece;
 	}
 
 	private void tryFire() {
-		long currentTime = System.currentTimeMillis();
+		long currentTime = getContext().getClock().currentTimeMillis();
 		if ((currentTime - lastFire) >= fireRate) {
 			Shoot shoot = null;
 			if (shootSplashRadius > 0)
 				shoot = new SplashShoot((int) getX(), (int) getY(), target,
-						shootStrenght, 8.0d, graph, effect, shootSplashRadius);
+						shootStrenght, 8.0d, getContext(), effect,
+						shootSplashRadius);
 			else
 				shoot = new Shoot((int) getX(), (int) getY(), target,
-						shootStrenght, 8.0d, graph, effect);
-			TDGame.getInstance().getPiecesManager().add(shoot);
+						shootStrenght, 8.0d, getContext(), effect);
+			getContext().getPiecesManager().add(shoot);
 			lastFire = currentTime;
 		}
 	}
@@ -95,23 +85,23 @@ public class Tower extends Piece {
 			return;
 		}
 
-		Set<Piece> pieces = getVision();
-		target = getFirstMonster(pieces);
+		target = getContext().getPiecesManager().findTarget(this);
 	}
 
-	private Monster getFirstMonster(Set<Piece> pieces) {
-		for (Piece piece : pieces)
-			if (piece instanceof Monster)
-				return (Monster) piece;
-		return null;
+	/**
+	 * Called instead of processAI() while no monster can be in range: forgets
+	 * the target, as processAI() would.
+	 */
+	public void sleep() {
+		target = null;
 	}
 
-	private void drawVisionArea(Graphics2D g2d) {
-		int xCenter = (int) (getX() + (getImage().getWidth() / 2));
-		int yCenter = (int) (getY() + (getImage().getHeight() / 2));
-		g2d.drawOval((int) (xCenter - getVisionRadius()),
-				(int) (yCenter - getVisionRadius()),
-				(int) getVisionRadius() * 2, (int) getVisionRadius() * 2);
+	/**
+	 * @return If the tower looks for monsters. The towers that don't never
+	 *         think, and the ones that do sleep while no monster is near.
+	 */
+	public boolean isTargetingMonsters() {
+		return true;
 	}
 
 	public int getShootStrenght() {
@@ -130,6 +120,14 @@ public class Tower extends Piece {
 		return template;
 	}
 
+	/**
+	 * @return How the tower chooses the monster to fire at, as told by its
+	 *         template.
+	 */
+	public Targeting getTargeting() {
+		return template != null ? template.getTargeting() : Targeting.FIRST;
+	}
+
 	public void setTemplate(TowerTemplate template) {
 		this.template = template;
 	}
@@ -138,16 +136,67 @@ public class Tower extends Piece {
 		this.selected = selected;
 	}
 
+	/**
+	 * Adds a buff to the tower. Buffs of the same modifier stack.
+	 */
 	public void addModifier(TowerModifier modifier) {
-		for (TowerModifier mod : buffs)
-			if (mod.getId() == modifier.getId())
-				return;
+		buffs[modifier.ordinal()]++;
+		if (applyModifiers())
+			getContext().getPiecesManager().towerChanged(this);
+	}
+
+	/**
+	 * Takes back a buff given by addModifier().
+	 */
+	public void removeModifier(TowerModifier modifier) {
+		if (buffs[modifier.ordinal()] == 0)
+			return;
 
-		buffs.add(modifier);
-		modifier.modify(this);
+		buffs[modifier.ordinal()]--;
+		if (applyModifiers())
+			getContext().getPiecesManager().towerChanged(this);
+	}
+
+	/**
+	 * @return How many buffs of the modifier the tower has.
+	 */
+	public int getModifierCount(TowerModifier modifier) {
+		return buffs[modifier.ordinal()];
+	}
+
+	/**
+	 * Sets the stats of the tower to the ones of its template with every buff
+	 * applied, in one pass.
+	 *
+	 * @return If the range changed.
+	 */
+	private boolean applyModifiers() {
+		int shootStrenght = baseShootStrenght;
+		int fireRate = baseFireRate;
+		double visionRadius = baseVisionRadius;
+		TowerModifier[] modifiers = TowerModifier.values();
+		for (int i = 0; i < modifiers.length; i++)
+			for (int n = 0; n < buffs[i]; n++) {
+				shootStrenght = modifiers[i].modifyShootStrenght(shootStrenght);
+				fireRate = modifiers[i].modifyFireRate(fireRate);
+				visionRadius = modifiers[i].modifyVisionRadius(visionRadius);
+			}
+
+		this.shootStrenght = shootStrenght;
+		this.fireRate = fireRate;
+		if (visionRadius == getVisionRadius())
+			return false;
+
+		setCircle(visionRadius);
+		return true;
 	}
 
 	public void setRadius(double visionRadius) {
+		setCircle(visionRadius);
+		getContext().getPiecesManager().towerChanged(this);
+	}
+
+	private void setCircle(double visionRadius) {
 		setVisionRadius(visionRadius);
 		double circleX1 = (getX() - getVisionRadius());
 		double circleY1 = (getY() - getVisionRadius());
@@ -157,18 +206,19 @@ public class Tower extends Piece {
 
 	public void upgrade() {
 		TowerTemplate next = getTemplate().getNextTower();
-		if (next == null || GameConfig.player.getGold() < next.getValue())
+		if (next == null
+				|| getContext().getPlayer().getGold() < next.getValue())
 			return;
 		effect = next.getEffect();
-		fireRate = next.getFireRate();
-		shootStrenght = next.getShootStrenght();
-		setRadius(next.getVisionRadius());
+		baseFireRate = next.getFireRate();
+		baseShootStrenght = next.getShootStrenght();
+		baseVisionRadius = next.getVisionRadius();
+		applyModifiers();
 
 		setTemplate(next);
-		GameConfig.player.spendGold(next.getValue());
-
-		for (TowerModifier t : buffs)
-			t.modify(this);
+		getContext().getPlayer().spendGold(next.getValue());
+		// the range or the targeting may have changed
+		getContext().getPiecesManager().towerChanged(this);
 	}
 
 	public void setShootStrenght(int shootStrenght) {
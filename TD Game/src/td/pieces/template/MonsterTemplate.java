@@ -3,8 +3,8 @@ package td.pieces.template;
 import java.awt.Color;
 
 import jgf.math.Vector2D;
-import jgf.pathfinding.MatrixGraph;
 import td.cfg.GameConfig;
+import td.cfg.GameContext;
 import td.effect.ImuneEffect;
 import td.pieces.Monster;
 import td.util.image.AnimationImage;
@@ -15,8 +15,8 @@ public enum MonsterTemplate {
 	Basic(1000, 1.1d, Color.gray, "monster-basic"), Fast(800, 3.d, Color.cyan,
 			"monster-fast"), Imune(800, 1.2d, Color.pink, "monster-imune") {
 		public Monster createMonster(Vector2D pos, Vector2D target,
-				MatrixGraph graph, int lvl, boolean boss) {
-			Monster m = super.createMonster(pos, target, graph, lvl, boss);
+				GameContext context, int lvl, boolean boss) {
+			Monster m = super.createMonster(pos, target, context, lvl, boss);
 			m.setModifier(new ImuneEffect());
 			return m;
 		};
@@ -38,10 +38,10 @@ public enum MonsterTemplate {
 	}
 
 	public Monster createMonster(Vector2D pos, Vector2D target,
-			MatrixGraph graph, int lvl, boolean boss) {
+			GameContext context, int lvl, boolean boss) {
 		int maxhp = maxHp + (maxHp * (boss ? lvl + 20 : lvl) / 5);
 		int gp = (int) (3 + (lvl * (boss ? 1.4 : 0.6)));
-		return new Monster(pos, target, speed, maxhp, graph, image, gp);
+		return new Monster(pos, target, speed, maxhp, context, image, gp);
 	}
 
 	public Color getColor() {
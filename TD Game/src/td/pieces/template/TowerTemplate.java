@@ -3,11 +3,12 @@ package td.pieces.template;
 import java.awt.Graphics2D;
 
 import jgf.imaging.ImageItem;
-import jgf.pathfinding.MatrixGraph;
 import td.cfg.GameConfig;
+import td.cfg.GameContext;
 import td.effect.Effect;
 import td.effect.TowerModifier;
 import td.pieces.BuffTower;
+import td.pieces.Targeting;
 import td.pieces.Tower;
 
 public enum TowerTemplate {
@@ -39,6 +40,11 @@ public enum TowerTemplate {
 		public TowerTemplate getNextTower() {
 			return null;
 		}
+
+		@Override
+		public Targeting getTargeting() {
+			return Targeting.STRONGEST;
+		}
 	},
 	Fire(100.d, 1000, 80, "tower_fire", "Fire tower, splash damage.\n30 Gold.",
 			30, 20) {
@@ -94,6 +100,11 @@ public enum TowerTemplate {
 		public TowerTemplate getNextTower() {
 			return Ice2;
 		}
+
+		@Override
+		public Targeting getTargeting() {
+			return Targeting.FASTEST;
+		}
 	},
 	Ice2(
 			90.d,
@@ -109,6 +120,11 @@ public enum TowerTemplate {
 		public TowerTemplate getNextTower() {
 			return Ice3;
 		}
+
+		@Override
+		public Targeting getTargeting() {
+			return Targeting.FASTEST;
+		}
 	},
 	Ice3(
 			100.d,
@@ -124,6 +140,11 @@ public enum TowerTemplate {
 		public TowerTemplate getNextTower() {
 			return null;
 		}
+
+		@Override
+		public Targeting getTargeting() {
+			return Targeting.FASTEST;
+		}
 	},
 	DamageBoost(40, 0, 0, "tower_damage",
 			"Damage boost damage of all towers in range in 10%.\n50 Gold.", 50,
@@ -139,16 +160,10 @@ public enum TowerTemplate {
 		}
 
 		@Override
-		public Tower createTower(int x, int y, MatrixGraph graph) {
-			TowerModifier modifier = new TowerModifier(Integer.valueOf(String
-					.valueOf(x).concat(String.valueOf(y)))) {
-				@Override
-				public void modify(Tower t) {
-					t.setShootStrenght((t.getShootStrenght() * 110 / 100));
-				}
-			};
+		public Tower createTower(int x, int y, GameContext context) {
 			Tower t = new BuffTower(x, y, getVisionRadius(), getFireRate(),
-					getShootStrenght(), graph, getImageItem(), modifier);
+					getShootStrenght(), context, getImageItem(),
+					TowerModifier.DAMAGE);
 			t.setTemplate(this);
 
 			return t;
@@ -168,16 +183,10 @@ public enum TowerTemplate {
 		}
 
 		@Override
-		public Tower createTower(int x, int y, MatrixGraph graph) {
-			TowerModifier modifier = new TowerModifier(Integer.valueOf(String
-					.valueOf(x).concat(String.valueOf(y)))) {
-				@Override
-				public void modify(Tower t) {
-					t.setFireRate(t.getFireRate() * 90 / 100);
-				}
-			};
+		public Tower createTower(int x, int y, GameContext context) {
 			Tower t = new BuffTower(x, y, getVisionRadius(), getFireRate(),
-					getShootStrenght(), graph, getImageItem(), modifier);
+					getShootStrenght(), context, getImageItem(),
+					TowerModifier.FIRE_RATE);
 			t.setTemplate(this);
 
 			return t;
@@ -197,16 +206,10 @@ public enum TowerTemplate {
 		}
 
 		@Override
-		public Tower createTower(int x, int y, MatrixGraph graph) {
-			TowerModifier modifier = new TowerModifier(Integer.valueOf(String
-					.valueOf(x).concat(String.valueOf(y)))) {
-				@Override
-				public void modify(Tower t) {
-					t.setRadius(t.getVisionRadius() * 110 / 100);
-				}
-			};
+		public Tower createTower(int x, int y, GameContext context) {
 			Tower t = new BuffTower(x, y, getVisionRadius(), getFireRate(),
-					getShootStrenght(), graph, getImageItem(), modifier);
+					getShootStrenght(), context, getImageItem(),
+					TowerModifier.RANGE);
 			t.setTemplate(this);
 
 			return t;
@@ -225,8 +228,8 @@ public enum TowerTemplate {
 		this.shootSplash = shootSplash;
 	}
 
-	public Tower createTower(int x, int y, MatrixGraph graph) {
-		Tower t = new Tower(x, y, visionRadius, fireRate, shootStrenght, graph,
+	public Tower createTower(int x, int y, GameContext context) {
+		Tower t = new Tower(x, y, visionRadius, fireRate, shootStrenght, context,
 				image, getEffect(), shootSplash);
 		t.setTemplate(this);
 		return t;
@@ -242,6 +245,14 @@ public enum TowerTemplate {
 
 	public abstract Effect getEffect();
 
+	/**
+	 * @return How the towers choose the monster to fire at, by default the
+	 *         one furthest along.
+	 */
+	public Targeting getTargeting() {
+		return Targeting.FIRST;
+	}
+
 	public void draw(Graphics2D surface, int x, int y) {
 		image.draw(surface, x, y);
 	}
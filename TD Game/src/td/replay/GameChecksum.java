@@ -0,0 +1,34 @@
+package td.replay;
+
+import td.cfg.GameContext;
+import td.pieces.Monster;
+import td.pieces.Piece;
+
+/**
+ * Sums up the state of a game in a number, to find out if a replay played the
+ * same as the recorded game: the tick, the gold and lives of the player and
+ * the kind, position and health of every piece.
+ */
+public class GameChecksum {
+	private GameChecksum() {
+	}
+
+	public static int compute(GameContext context) {
+		long hash = context.getClock().getTicks();
+		hash = mix(hash, context.getPlayer().getGold());
+		hash = mix(hash, context.getPlayer().getLives());
+		for (Piece piece : context.getPiecesManager().getPieces()) {
+			hash = mix(hash, piece.getClass().getName().hashCode());
+			hash = mix(hash, Double.doubleToLongBits(piece.getX()));
+			hash = mix(hash, Double.doubleToLongBits(piece.getY()));
+			if (piece instanceof Monster)
+				hash = mix(hash, ((Monster) piece).getHealth());
+		}
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private static long mix(long hash, long value) {
+		hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+}
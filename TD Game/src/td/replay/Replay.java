@@ -0,0 +1,172 @@
+package td.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded game: the seed of its random numbers and the commands of the
+ * player, each in the tick it was done, with a checksum of the game state
+ * every few ticks.
+ * <p>
+ * The file starts with the magic number, the version, the seed and the
+ * checksum interval. Each record follows with its type, the ticks since the
+ * previous record (as a variable length number) and its arguments: the tower
+ * template and tile of a placed tower, the tile of an upgraded or sold tower
+ * or the checksum. The END record has the last tick of the game.
+ *
+ * @see ReplayRecorder
+ * @see ReplayPlayer
+ */
+public class Replay {
+	public static final int MAGIC = 0x54445250; // "TDRP"
+	public static final int VERSION = 1;
+
+	public static final byte END = 0;
+	public static final byte PLACE = 1;
+	public static final byte UPGRADE = 2;
+	public static final byte SELL = 3;
+	public static final byte CHECKSUM = 4;
+
+	private long seed;
+	private int checksumInterval;
+	private long lastTick;
+
+	private int size;
+	private long[] ticks = new long[64];
+	private byte[] types = new byte[64];
+	// the tower template of a PLACE, or the checksum
+	private int[] values = new int[64];
+	private byte[] tileXs = new byte[64];
+	private byte[] tileYs = new byte[64];
+
+	private Replay() {
+	}
+
+	public static Replay load(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return load(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static Replay load(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a replay file");
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unknown replay version: " + version);
+
+		Replay replay = new Replay();
+		replay.seed = in.readLong();
+		replay.checksumInterval = in.readInt();
+
+		long tick = 0;
+		while (true) {
+			byte type = in.readByte();
+			tick += readVarLong(in);
+			if (type == END) {
+				replay.lastTick = tick;
+				return replay;
+			}
+
+			switch (type) {
+			case PLACE:
+				int template = in.readUnsignedByte();
+				replay.add(tick, type, template, in.readByte(), in.readByte());
+				break;
+			case UPGRADE:
+			case SELL:
+				replay.add(tick, type, 0, in.readByte(), in.readByte());
+				break;
+			case CHECKSUM:
+				replay.add(tick, type, in.readInt(), (byte) 0, (byte) 0);
+				break;
+			default:
+				throw new IOException("Unknown record type: " + type);
+			}
+		}
+	}
+
+	static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new EOFException("Malformed number");
+	}
+
+	private void add(long tick, byte type, int value, byte tileX, byte tileY) {
+		if (size == ticks.length) {
+			int capacity = size * 2;
+			ticks = Arrays.copyOf(ticks, capacity);
+			types = Arrays.copyOf(types, capacity);
+			values = Arrays.copyOf(values, capacity);
+			tileXs = Arrays.copyOf(tileXs, capacity);
+			tileYs = Arrays.copyOf(tileYs, capacity);
+		}
+		ticks[size] = tick;
+		types[size] = type;
+		values[size] = value;
+		tileXs[size] = tileX;
+		tileYs[size] = tileY;
+		size++;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getChecksumInterval() {
+		return checksumInterval;
+	}
+
+	/**
+	 * @return The tick the recording stopped.
+	 */
+	public long getLastTick() {
+		return lastTick;
+	}
+
+	/**
+	 * @return The number of records, commands and checksums.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getTick(int record) {
+		return ticks[record];
+	}
+
+	public byte getType(int record) {
+		return types[record];
+	}
+
+	/**
+	 * @return The ordinal of the tower template of a PLACE record, or the
+	 *         checksum of a CHECKSUM record.
+	 */
+	public int getValue(int record) {
+		return values[record];
+	}
+
+	public int getTileX(int record) {
+		return tileXs[record];
+	}
+
+	public int getTileY(int record) {
+		return tileYs[record];
+	}
+}
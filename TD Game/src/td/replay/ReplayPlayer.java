@@ -0,0 +1,96 @@
+package td.replay;
+
+import td.gui.TDGame;
+import td.pieces.template.TowerTemplate;
+
+/**
+ * Plays the commands of a replay in the ticks they were recorded, and
+ * compares the checksums of the game state with the recorded ones.
+ * <p>
+ * The game must have the seed of the replay and be set up as the recorded
+ * one was; then every tick is the same as it was, whatever the speed of the
+ * game loop. If a checksum differs, the game diverged from the recording and
+ * the tick is kept in getDivergedTick().
+ */
+public class ReplayPlayer {
+	private Replay replay;
+	private int next;
+	private long divergedTick = -1;
+
+	public ReplayPlayer(Replay replay) {
+		this.replay = replay;
+	}
+
+	/**
+	 * Does the commands recorded in the given tick. Must be called by the game
+	 * loop, at the same point of the tick they were recorded.
+	 */
+	public void play(TDGame game, long tick) {
+		skipUntil(tick);
+		while (next < replay.size() && replay.getTick(next) == tick
+				&& replay.getType(next) != Replay.CHECKSUM) {
+			int tileX = replay.getTileX(next);
+			int tileY = replay.getTileY(next);
+			switch (replay.getType(next)) {
+			case Replay.PLACE:
+				game.doPlaceTower(TowerTemplate.values()[replay
+						.getValue(next)], tileX, tileY);
+				break;
+			case Replay.UPGRADE:
+				game.doUpgradeTower(tileX, tileY);
+				break;
+			case Replay.SELL:
+				game.doSellTower(tileX, tileY);
+				break;
+			}
+			next++;
+		}
+	}
+
+	/**
+	 * Compares the checksum recorded in the given tick, if any, with the
+	 * current game state. Must be called by the game loop at the end of the
+	 * tick.
+	 *
+	 * @return False if the game diverged from the recording in this tick.
+	 */
+	public boolean verify(TDGame game, long tick) {
+		skipUntil(tick);
+		if (next >= replay.size() || replay.getTick(next) != tick
+				|| replay.getType(next) != Replay.CHECKSUM)
+			return true;
+
+		int expected = replay.getValue(next++);
+		if (expected == GameChecksum.compute(game.getContext()))
+			return true;
+
+		if (divergedTick < 0) {
+			divergedTick = tick;
+			System.err.printf("Replay diverged at tick %d%n", tick);
+		}
+		return false;
+	}
+
+	private void skipUntil(long tick) {
+		while (next < replay.size() && replay.getTick(next) < tick)
+			next++;
+	}
+
+	/**
+	 * @return True if the tick is the last one recorded.
+	 */
+	public boolean isFinished(long tick) {
+		return tick >= replay.getLastTick();
+	}
+
+	/**
+	 * @return The first tick whose checksum differed, or -1.
+	 */
+	public long getDivergedTick() {
+		return divergedTick;
+	}
+
+	public Replay getReplay() {
+		return replay;
+	}
+}
@@ -0,0 +1,134 @@
+package td.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import td.pieces.template.TowerTemplate;
+
+/**
+ * Records the commands of the player while the game is played, in the format
+ * read by {@link Replay}. The records are kept in memory, a few bytes each,
+ * and written to a file by save().
+ * <p>
+ * The commands are recorded by the game loop, in the tick they are done, and
+ * save() can be called by any other thread.
+ */
+public class ReplayRecorder {
+	private ByteArrayOutputStream bytes;
+	private DataOutputStream out;
+	private int checksumInterval;
+	private long lastTick;
+
+	/**
+	 * @param seed The seed of the random numbers of the game.
+	 * @param checksumInterval Every how many ticks the game state is
+	 *            checked.
+	 */
+	public ReplayRecorder(long seed, int checksumInterval) {
+		if (checksumInterval < 1)
+			throw new IllegalArgumentException("The checksum interval must be at least 1!");
+
+		this.checksumInterval = checksumInterval;
+		bytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(Replay.MAGIC);
+			out.writeByte(Replay.VERSION);
+			out.writeLong(seed);
+			out.writeInt(checksumInterval);
+		} catch (IOException e) {
+			// never thrown by a ByteArrayOutputStream
+			throw new RuntimeException(e);
+		}
+	}
+
+	public synchronized void place(long tick, TowerTemplate tower, int tileX,
+			int tileY) {
+		record(Replay.PLACE, tick);
+		write(tower.ordinal());
+		write(tileX);
+		write(tileY);
+	}
+
+	public synchronized void upgrade(long tick, int tileX, int tileY) {
+		record(Replay.UPGRADE, tick);
+		write(tileX);
+		write(tileY);
+	}
+
+	public synchronized void sell(long tick, int tileX, int tileY) {
+		record(Replay.SELL, tick);
+		write(tileX);
+		write(tileY);
+	}
+
+	public synchronized void checksum(long tick, int checksum) {
+		record(Replay.CHECKSUM, tick);
+		try {
+			out.writeInt(checksum);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int getChecksumInterval() {
+		return checksumInterval;
+	}
+
+	/**
+	 * @return The number of bytes recorded so far.
+	 */
+	public synchronized int size() {
+		return bytes.size();
+	}
+
+	private void record(byte type, long tick) {
+		write(type);
+		writeVarLong(tick - lastTick);
+		lastTick = tick;
+	}
+
+	private void write(int b) {
+		bytes.write(b);
+	}
+
+	private void writeVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		write((int) value);
+	}
+
+	/**
+	 * Writes the recorded game, ending in the given tick. The recording can
+	 * go on afterwards.
+	 */
+	public synchronized void save(OutputStream stream, long tick)
+			throws IOException {
+		bytes.writeTo(stream);
+		stream.write(Replay.END);
+		long delta = Math.max(0, tick - lastTick);
+		while ((delta & ~0x7FL) != 0) {
+			stream.write((int) (delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		stream.write((int) delta);
+		stream.flush();
+	}
+
+	public void save(File file, long tick) throws IOException {
+		OutputStream stream = new BufferedOutputStream(new FileOutputStream(
+				file));
+		try {
+			save(stream, tick);
+		} finally {
+			stream.close();
+		}
+	}
+}
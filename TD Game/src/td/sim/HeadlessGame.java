@@ -0,0 +1,43 @@
+package td.sim;
+
+import jgf.core.profile.Profiler;
+import td.gui.TDGame;
+import td.level.WaveManager;
+import td.player.Player;
+
+/**
+ * Plays the whole game without a display, as fast as possible, and reports
+ * how fast the game time went, and the profiled code if the jgf.profile system
+ * property is set.
+ * <p>
+ * Usage: HeadlessGame [max ticks] [lives]
+ */
+public class HeadlessGame {
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		long maxTicks = args.length > 0 ? Long.parseLong(args[0])
+				: Long.MAX_VALUE;
+		TDGame game = TDGame.createHeadless();
+		if (args.length > 1)
+			game.getContext().getPlayer().setLives(Integer.parseInt(args[1]));
+		game.getMapView().setupLevel();
+
+		long start = System.nanoTime();
+		long ticks = game.runHeadless(maxTicks);
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+
+		double gameSeconds = game.getClock().currentTimeMillis() / 1000.0;
+		WaveManager waves = game.getWaveManager();
+		Player player = game.getContext().getPlayer();
+		System.out.printf("%d ticks, %.1f s of game time in %.2f s "
+				+ "(%.0f ticks/s, %.0fx)%n", ticks, gameSeconds, seconds,
+				ticks / seconds, gameSeconds / seconds);
+		System.out.printf("wave %d of %d%s, %d lives, %d gold%n", waves
+				.getCurrentLevel(), waves.getTotalLevels() - 1,
+				waves.isFinished() ? " (finished)" : "", player.getLives(),
+				player.getGold());
+		if (Profiler.ENABLED)
+			Profiler.getInstance().report(System.out);
+	}
+}
@@ -0,0 +1,123 @@
+package td.sim;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+
+import jgf.core.profile.Profiler;
+import td.gui.TDGame;
+import td.level.Scenario;
+
+/**
+ * Plays load test scenarios without a display, as fast as possible, and
+ * reports for each one how fast the game time went, how much the game loop
+ * allocated and the peak heap. The scenarios can be generated and saved
+ * first:
+ * <p>
+ * Usage: LoadTest generate file monsters [waves] [spawn rate] [per spawn]
+ * [tower density] [seed]<br>
+ * Usage: LoadTest file...
+ * <p>
+ * The allocation is of the game loop thread only, as told by the JVM, when it
+ * can tell. The peak heap is the sum of the peaks of every heap memory pool,
+ * so it may be a bit above the real peak.
+ */
+public class LoadTest {
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length == 0) {
+			System.out.println("Usage: LoadTest generate file monsters "
+					+ "[waves] [spawn rate] [per spawn] [tower density] "
+					+ "[seed]");
+			System.out.println("Usage: LoadTest file...");
+			return;
+		}
+
+		if (args[0].equals("generate")) {
+			generate(args);
+			return;
+		}
+
+		System.out.printf("%-24s %8s %7s %10s %9s %10s %9s %10s %8s%n",
+				"scenario", "monsters", "towers", "ticks", "ticks/s",
+				"alloc MB/s", "B/tick", "peak MB", "gc ms");
+		for (String name : args)
+			run(new File(name));
+		if (Profiler.ENABLED)
+			Profiler.getInstance().report(System.out);
+	}
+
+	private static void generate(String[] args) throws Exception {
+		File file = new File(args[1]);
+		int monsters = Integer.parseInt(args[2]);
+		int waves = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		int spawnRate = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+		int perSpawn = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+		double density = args.length > 6 ? Double.parseDouble(args[6]) : 0.1;
+		long seed = args.length > 7 ? Long.parseLong(args[7]) : 42;
+
+		Scenario scenario = Scenario.generate(monsters, waves, spawnRate,
+				perSpawn, density, seed);
+		scenario.save(file);
+		System.out.printf("%s: %d monsters in %d waves, %d towers%n", file,
+				scenario.getMonsterCount(), scenario.getWaveCount(), scenario
+						.getTowerCount());
+	}
+
+	private static void run(File file) throws Exception {
+		Scenario scenario = Scenario.load(file);
+		TDGame game = TDGame.createHeadless();
+		game.setScenario(scenario);
+
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			pool.resetPeakUsage();
+		long gcTime = gcTime();
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+
+		long ticks = game.runHeadless(Long.MAX_VALUE);
+
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		allocated = allocatedBytes() - allocated;
+		gcTime = gcTime() - gcTime;
+
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+
+		System.out.printf("%-24s %8d %7d %10d %9.0f %10.1f %9.0f %10.1f "
+				+ "%8d%n", file.getName(), scenario.getMonsterCount(),
+				scenario.getTowerCount(), ticks, ticks / seconds, allocated
+						/ seconds / (1 << 20), (double) allocated / ticks,
+				peak / (double) (1 << 20), gcTime);
+	}
+
+	/**
+	 * @return The bytes allocated by the current thread so far, or a negative
+	 *         number if the JVM can't tell.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/**
+	 * @return The milliseconds spent collecting garbage so far.
+	 */
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans())
+			time += Math.max(0, gc.getCollectionTime());
+		return time;
+	}
+}
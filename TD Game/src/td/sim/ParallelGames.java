@@ -0,0 +1,77 @@
+package td.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jgf.core.profile.Profiler;
+import td.gui.TDGame;
+import td.replay.GameChecksum;
+
+/**
+ * Plays many headless games at the same time, each with a context of its own,
+ * in a pool of threads, and reports how fast they went. The games are seeded
+ * by their number, so each one ends the same way in every run.
+ * <p>
+ * Usage: ParallelGames [games] [threads] [max ticks]
+ */
+public class ParallelGames {
+	/**
+	 * How a game ended.
+	 */
+	private static class Result {
+		private long seed;
+		private long ticks;
+		private int wave;
+		private int checksum;
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+				.getRuntime().availableProcessors();
+		final long maxTicks = args.length > 2 ? Long.parseLong(args[2])
+				: Long.MAX_VALUE;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Result>> results = new ArrayList<Future<Result>>();
+		long start = System.nanoTime();
+		for (int i = 0; i < games; i++) {
+			final long seed = i;
+			results.add(pool.submit(new Callable<Result>() {
+				public Result call() {
+					TDGame game = TDGame.createHeadless();
+					game.setSeed(seed);
+					game.getMapView().setupLevel();
+
+					Result result = new Result();
+					result.seed = seed;
+					result.ticks = game.runHeadless(maxTicks);
+					result.wave = game.getWaveManager().getCurrentLevel();
+					result.checksum = GameChecksum.compute(game.getContext());
+					return result;
+				}
+			}));
+		}
+
+		long ticks = 0;
+		for (Future<Result> future : results) {
+			Result result = future.get();
+			System.out.printf("game %d: %d ticks, wave %d, checksum %08x%n",
+					result.seed, result.ticks, result.wave, result.checksum);
+			ticks += result.ticks;
+		}
+		pool.shutdown();
+
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		System.out.printf("%d games in %.2f s on %d threads (%.0f ticks/s)%n",
+				games, seconds, threads, ticks / seconds);
+		if (Profiler.ENABLED)
+			Profiler.getInstance().report(System.out);
+	}
+}
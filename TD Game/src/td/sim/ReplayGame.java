@@ -0,0 +1,54 @@
+package td.sim;
+
+import java.io.File;
+import java.io.IOException;
+
+import td.gui.TDGame;
+import td.replay.Replay;
+import td.replay.ReplayPlayer;
+
+/**
+ * Plays a recorded game, headless and as fast as possible by default, and
+ * reports how fast it went and if it played as recorded. With the "normal"
+ * option the replay is shown in the game window, at the normal speed.
+ * <p>
+ * Usage: ReplayGame replay-file [normal]
+ */
+public class ReplayGame {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: ReplayGame replay-file [normal]");
+			System.exit(1);
+		}
+		Replay replay = Replay.load(new File(args[0]));
+		ReplayPlayer player = new ReplayPlayer(replay);
+
+		if (args.length > 1 && args[1].equals("normal")) {
+			TDGame game = TDGame.getInstance();
+			game.setSeed(replay.getSeed());
+			game.setReplayPlayer(player);
+			game.getMapView().setupLevel();
+			game.start();
+			return;
+		}
+
+		System.setProperty("java.awt.headless", "true");
+		TDGame game = TDGame.createHeadless();
+		game.setSeed(replay.getSeed());
+		game.setReplayPlayer(player);
+		game.getMapView().setupLevel();
+
+		long start = System.nanoTime();
+		long ticks = game.runHeadless(replay.getLastTick());
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+
+		System.out.printf("%d of %d ticks in %.2f s (%.0f ticks/s), "
+				+ "%d records%n", ticks, replay.getLastTick(), seconds, ticks
+				/ seconds, replay.size());
+		if (player.getDivergedTick() >= 0)
+			System.out.printf("diverged at tick %d%n", player
+					.getDivergedTick());
+		else
+			System.out.println("played as recorded");
+	}
+}